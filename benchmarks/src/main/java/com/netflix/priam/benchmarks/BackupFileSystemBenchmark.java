@@ -0,0 +1,66 @@
+package com.netflix.priam.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.aws.S3BackupPath;
+import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.compress.SnappyCompression;
+
+/**
+ * End to end upload and download of a single file through an in-memory
+ * IBackupFileSystem, covering compression, chunking, throttling and part
+ * checksums.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackupFileSystemBenchmark
+{
+    @Param({ "33554432" })
+    public int fileSize;
+
+    private InMemoryBackupFileSystem fs;
+    private S3BackupPath path;
+    private byte[] raw;
+
+    @Setup
+    public void setup() throws BackupRestoreException
+    {
+        FakeConfiguration config = new FakeConfiguration("us-east-1", "fake-app", "az1", "fakeInstance1");
+        fs = new InMemoryBackupFileSystem(config, new SnappyCompression());
+        path = new S3BackupPath(config, null);
+        path.parseRemote(BackupPathBenchmark.REMOTE_PATH);
+        raw = BenchmarkData.sstableLike(fileSize);
+        fs.upload(path, new ByteArrayInputStream(raw));
+    }
+
+    @Benchmark
+    public void upload() throws BackupRestoreException
+    {
+        fs.upload(path, new ByteArrayInputStream(raw));
+    }
+
+    @Benchmark
+    public void download() throws BackupRestoreException
+    {
+        fs.download(path, new NullOutputStream());
+    }
+}
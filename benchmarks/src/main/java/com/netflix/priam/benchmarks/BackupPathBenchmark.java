@@ -0,0 +1,57 @@
+package com.netflix.priam.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.aws.S3BackupPath;
+
+/**
+ * Cost of parsing and formatting S3 keys, done for every object listed or
+ * uploaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BackupPathBenchmark
+{
+    public static final String REMOTE_PATH = "casstestbackup/us-east-1/fake-app/1808575600/201108082320/SNAP/ks1/cf1-hc-1-Data.db";
+
+    private FakeConfiguration config;
+    private S3BackupPath parsed;
+
+    @Setup
+    public void setup()
+    {
+        config = new FakeConfiguration("us-east-1", "fake-app", "az1", "fakeInstance1");
+        parsed = new S3BackupPath(config, null);
+        parsed.parseRemote(REMOTE_PATH);
+    }
+
+    @Benchmark
+    public S3BackupPath parseRemote()
+    {
+        S3BackupPath path = new S3BackupPath(config, null);
+        path.parseRemote(REMOTE_PATH);
+        return path;
+    }
+
+    @Benchmark
+    public String getRemotePath()
+    {
+        return parsed.getRemotePath();
+    }
+}
@@ -0,0 +1,29 @@
+package com.netflix.priam.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates payloads which compress roughly like SSTable data: a mix of
+ * repeated column names and random values.
+ */
+public class BenchmarkData
+{
+    private static final byte[] COLUMN_NAMES = "user_id:event_type:created_at:payload:".getBytes();
+
+    public static byte[] sstableLike(int size)
+    {
+        Random random = new Random(42);
+        byte[] data = new byte[size];
+        int pos = 0;
+        while (pos < size)
+        {
+            int len = Math.min(COLUMN_NAMES.length, size - pos);
+            System.arraycopy(COLUMN_NAMES, 0, data, pos, len);
+            pos += len;
+            int values = Math.min(16 + random.nextInt(48), size - pos);
+            for (int i = 0; i < values; i++)
+                data[pos++] = (byte) random.nextInt(256);
+        }
+        return data;
+    }
+}
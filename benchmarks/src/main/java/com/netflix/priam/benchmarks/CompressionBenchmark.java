@@ -0,0 +1,74 @@
+package com.netflix.priam.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.compress.SnappyCompression;
+
+/**
+ * Throughput of the upload compression path (ChunkedStream) for the chunk
+ * sizes worth considering for getBackupChunkSize(), and of the restore
+ * decompression path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompressionBenchmark
+{
+    @Param({ "1048576", "5242880", "10485760" })
+    public long chunkSize;
+
+    @Param({ "33554432" })
+    public int fileSize;
+
+    private final ICompression compression = new SnappyCompression();
+    private byte[] raw;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        raw = BenchmarkData.sstableLike(fileSize);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Iterator<byte[]> chunks = compression.compress(new ByteArrayInputStream(raw), chunkSize);
+        while (chunks.hasNext())
+            bos.write(chunks.next());
+        compressed = bos.toByteArray();
+    }
+
+    @Benchmark
+    public long compress() throws IOException
+    {
+        long total = 0;
+        Iterator<byte[]> chunks = compression.compress(new ByteArrayInputStream(raw), chunkSize);
+        while (chunks.hasNext())
+            total += chunks.next().length;
+        return total;
+    }
+
+    @Benchmark
+    public void decompressAndClose() throws IOException
+    {
+        compression.decompressAndClose(new ByteArrayInputStream(compressed), new NullOutputStream());
+    }
+}
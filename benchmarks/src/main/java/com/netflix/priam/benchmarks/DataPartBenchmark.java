@@ -0,0 +1,46 @@
+package com.netflix.priam.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.priam.aws.DataPart;
+
+/**
+ * MD5 computation done by DataPart for every uploaded part.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataPartBenchmark
+{
+    @Param({ "1048576", "5242880", "10485760" })
+    public int partSize;
+
+    private byte[] data;
+
+    @Setup
+    public void setup()
+    {
+        data = BenchmarkData.sstableLike(partSize);
+    }
+
+    @Benchmark
+    public byte[] md5()
+    {
+        return new DataPart(1, data, "bucket", "key", "uploadId").getMd5();
+    }
+}
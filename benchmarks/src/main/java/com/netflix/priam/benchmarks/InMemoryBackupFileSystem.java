@@ -0,0 +1,136 @@
+package com.netflix.priam.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.Lists;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.aws.DataPart;
+import com.netflix.priam.aws.S3BackupPath;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backup.IBackupFileSystem;
+import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.utils.Throttle;
+
+/**
+ * Backup file system keeping objects in memory. Runs the same
+ * compress/throttle/checksum pipeline as S3FileSystem, minus the network, so
+ * that the local cost of an upload or a download can be measured end to end.
+ */
+public class InMemoryBackupFileSystem implements IBackupFileSystem
+{
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<String, byte[]>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final IConfiguration config;
+    private final ICompression compress;
+    private final Throttle throttle;
+
+    public InMemoryBackupFileSystem(IConfiguration config, ICompression compress)
+    {
+        this.config = config;
+        this.compress = compress;
+        this.throttle = new Throttle(getClass().getName(), new Throttle.ThroughputFunction()
+        {
+            public int targetThroughput()
+            {
+                return 0;
+            }
+        });
+    }
+
+    @Override
+    public void download(AbstractBackupPath path, OutputStream os) throws BackupRestoreException
+    {
+        byte[] object = objects.get(path.getRemotePath());
+        if (object == null)
+            throw new BackupRestoreException("No such object " + path.getRemotePath());
+        activeCount.incrementAndGet();
+        try
+        {
+            compress.decompressAndClose(new ByteArrayInputStream(object), os);
+        }
+        catch (IOException e)
+        {
+            throw new BackupRestoreException(e.getMessage(), e);
+        }
+        finally
+        {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void upload(AbstractBackupPath path, InputStream in) throws BackupRestoreException
+    {
+        activeCount.incrementAndGet();
+        try
+        {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            Iterator<byte[]> chunks = compress.compress(in, config.getBackupChunkSize());
+            int partNum = 0;
+            while (chunks.hasNext())
+            {
+                byte[] chunk = chunks.next();
+                throttle.throttle(chunk.length);
+                DataPart dp = new DataPart(++partNum, chunk, config.getBackupPrefix(), path.getRemotePath(), "in-memory");
+                bos.write(dp.getPartData());
+            }
+            objects.put(path.getRemotePath(), bos.toByteArray());
+        }
+        catch (IOException e)
+        {
+            throw new BackupRestoreException(e.getMessage(), e);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+            activeCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public Iterator<AbstractBackupPath> list(String path, Date start, Date till)
+    {
+        List<AbstractBackupPath> paths = Lists.newArrayList();
+        for (String key : objects.keySet())
+        {
+            if (!key.startsWith(path))
+                continue;
+            S3BackupPath p = new S3BackupPath(config, null);
+            p.parseRemote(key);
+            if (!p.getTime().before(start) && !p.getTime().after(till))
+                paths.add(p);
+        }
+        return paths.iterator();
+    }
+
+    @Override
+    public Iterator<AbstractBackupPath> listPrefixes(Date date)
+    {
+        return Lists.<AbstractBackupPath> newArrayList().iterator();
+    }
+
+    @Override
+    public void cleanup()
+    {
+        objects.clear();
+    }
+
+    @Override
+    public int getActivecount()
+    {
+        return activeCount.get();
+    }
+}
@@ -0,0 +1,99 @@
+package com.netflix.priam.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.backup.BackupFileReader;
+import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.compress.SnappyCompression;
+
+/**
+ * Reading a local file into the upload compressor, through read calls or
+ * through mapped windows (isBackupReadMapped()), from small sstables to
+ * the largest ones compaction produces. The file is written to java.io.tmpdir,
+ * which needs room for the largest size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocalReadBenchmark
+{
+    private static final int WRITE_SIZE = 64 * 1024 * 1024;
+
+    @Param({ "1048576", "67108864", "1073741824", "10737418240" })
+    public long fileSize;
+
+    @Param({ "stream", "mmap" })
+    public String mode;
+
+    @Param({ "10485760" })
+    public long chunkSize;
+
+    private final ICompression compression = new SnappyCompression();
+    private FakeConfiguration config;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        config = new FakeConfiguration("us-east-1", "fake-app", "az1", "fakeInstance1");
+        file = File.createTempFile("local-read", "-Data.db");
+        byte[] data = BenchmarkData.sstableLike((int) Math.min(fileSize, WRITE_SIZE));
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try
+        {
+            for (long written = 0; written < fileSize; written += data.length)
+                out.write(data, 0, (int) Math.min(data.length, fileSize - written));
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    @TearDown
+    public void teardown()
+    {
+        file.delete();
+    }
+
+    @Benchmark
+    public long compress() throws IOException
+    {
+        BackupFileReader reader = new BackupFileReader(file, config, "mmap".equals(mode));
+        try
+        {
+            long total = 0;
+            Iterator<byte[]> chunks = compression.compress(reader, chunkSize);
+            while (chunks.hasNext())
+                total += chunks.next().length;
+            return total;
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
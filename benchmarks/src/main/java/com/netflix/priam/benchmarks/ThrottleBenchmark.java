@@ -0,0 +1,65 @@
+package com.netflix.priam.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.priam.utils.Throttle;
+
+/**
+ * Per call overhead of Throttle.throttleDelta(), both with throttling
+ * disabled and with a target high enough to never sleep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ThrottleBenchmark
+{
+    private static final long CHUNK = 5L * 1024 * 1024;
+
+    private Throttle disabled;
+    private Throttle unbounded;
+
+    @Setup
+    public void setup()
+    {
+        disabled = new Throttle("disabled", new Throttle.ThroughputFunction()
+        {
+            public int targetThroughput()
+            {
+                return 0;
+            }
+        });
+        unbounded = new Throttle("unbounded", new Throttle.ThroughputFunction()
+        {
+            public int targetThroughput()
+            {
+                return Integer.MAX_VALUE;
+            }
+        });
+    }
+
+    @Benchmark
+    public void throttleDisabled()
+    {
+        disabled.throttleDelta(CHUNK);
+    }
+
+    @Benchmark
+    public void throttleEnabled()
+    {
+        unbounded.throttleDelta(CHUNK);
+    }
+}
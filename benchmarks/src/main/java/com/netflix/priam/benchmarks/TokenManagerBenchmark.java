@@ -0,0 +1,70 @@
+package com.netflix.priam.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.netflix.priam.utils.TokenManager;
+
+/**
+ * Closest token lookup as done by restore, for small to large rings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TokenManagerBenchmark
+{
+    @Param({ "12", "96", "768" })
+    public int ringSize;
+
+    private List<BigInteger> tokens;
+    private BigInteger[] sortedTokens;
+    private BigInteger search;
+
+    @Setup
+    public void setup()
+    {
+        tokens = Lists.newArrayList();
+        for (int i = 0; i < ringSize; i++)
+            tokens.add(new BigInteger(TokenManager.createToken(i, ringSize, "us-east-1")));
+        // unsorted input, as read from the backup listing
+        Collections.shuffle(tokens, new Random(42));
+        search = new BigInteger(127, new Random(7));
+        sortedTokens = tokens.toArray(new BigInteger[ringSize]);
+        Arrays.sort(sortedTokens);
+    }
+
+    @Benchmark
+    public BigInteger findClosestToken()
+    {
+        return TokenManager.findClosestToken(search, tokens);
+    }
+
+    /**
+     * Lookup against the pre-sorted tokens of a RingTopology snapshot.
+     */
+    @Benchmark
+    public BigInteger findClosestTokenSorted()
+    {
+        return TokenManager.findClosestToken(search, sortedTokens);
+    }
+}
@@ -64,10 +64,17 @@ public interface IConfiguration
     public List<String> getRestoreKeySpaces();
 
     /**
-     * @return Location of the local data dir
+     * @return Location of the local data dir, the first one if there are
+     *         several
      */
     public String getDataFileLocation();
 
+    /**
+     * @return Locations of the local data dirs, one per disk when Cassandra
+     *         is given the disks separately
+     */
+    public List<String> getDataFileLocations();
+
     /**
      * @return Location of local cache
      */
@@ -268,4 +275,109 @@ public interface IConfiguration
      * @return multithreaded_compaction in yaml
      */
     public boolean getMultithreadedCompaction();
-}
\ No newline at end of file
+
+    /**
+     * @return Seconds a read of the instance registry is cached, 0 to disable
+     */
+    public int getInstanceCacheTTL();
+
+    /**
+     * @return File the seed list is written to for NFSeedProvider
+     */
+    public String getSeedFileLocation();
+
+    /**
+     * @return Implementation of IPriamInstanceFactory holding the instance
+     *         registry
+     */
+    public String getInstanceFactoryName();
+
+    /**
+     * @return Directory of the instance registry when it is kept in files
+     */
+    public String getInstanceRegistryLocation();
+
+    /**
+     * @return Column families flushed, compacted, cleaned up or repaired at
+     *         the same time by a maintenance run
+     */
+    public int getMaintenanceConcurrency();
+
+    /**
+     * @return Pending compactions above which a maintenance run waits before
+     *         starting its next column family
+     */
+    public int getMaintenanceMaxPendingCompactions();
+
+    /**
+     * @return Recent read latency in ms above which a maintenance run waits
+     *         before starting its next column family, 0 to ignore latency
+     */
+    public int getMaintenanceMaxReadLatency();
+
+    /**
+     * @return Directory of Priam's local state: the progress of maintenance
+     *         runs, repair times and the index of the last snapshot
+     */
+    public String getMaintenanceStateLocation();
+
+    /**
+     * @return Days within which the node's primary range is repaired, 0 to
+     *         not repair on a schedule
+     */
+    public int getRepairWindow();
+
+    /**
+     * @return Days between full snapshots, the snapshots in between only
+     *         upload the files the last one did not have. 0 for a full
+     *         snapshot every time. Capped at half the backup retention: a
+     *         snapshot can be restored for the retention less this interval
+     *         after it was taken
+     */
+    public int getSnapshotRebaseInterval();
+
+    /**
+     * @return MB per second all backup uploads may read from disk together,
+     *         0 for no limit
+     */
+    public int getBackupReadThroughput();
+
+    /**
+     * @return true to drop what backups read from the page cache. Snapshot
+     *         and incremental files are links to live sstables, this drops
+     *         the pages Cassandra reads from as well. Off by default
+     */
+    public boolean isBackupSkipPageCache();
+
+    /**
+     * @return true to read backup files through memory mappings rather than
+     *         read calls
+     */
+    public boolean isBackupReadMapped();
+
+    /**
+     * @return MB of part data S3 requests may hold in flight together. Uploads
+     *         wait for room once it is spent, whatever the number of threads.
+     *         Two chunks per upload thread by default
+     */
+    public int getS3BufferBudget();
+
+    /**
+     * @return Ranged GETs in flight for each object restored from this
+     *         node's region, 1 for a single GET
+     */
+    public int getRestoreRangeConcurrency();
+
+    /**
+     * @return Ranged GETs in flight for each object restored from another
+     *         region, where the round trip makes a single GET slow
+     */
+    public int getRestoreRemoteRangeConcurrency();
+
+    /**
+     * @return Minutes past the backup hour the snapshot may be delayed by, a
+     *         random delay picked by each node so the cluster does not
+     *         snapshot at once. 0 for none, less than a day
+     */
+    public int getBackupJitter();
+}
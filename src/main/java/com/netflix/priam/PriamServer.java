@@ -7,12 +7,20 @@ import com.netflix.priam.aws.UpdateSecuritySettings;
 import com.netflix.priam.backup.IncrementalBackup;
 import com.netflix.priam.backup.Restore;
 import com.netflix.priam.backup.SnapshotBackup;
+import com.netflix.priam.identity.IMembership;
+import com.netflix.priam.identity.IMembershipListener;
 import com.netflix.priam.identity.InstanceIdentity;
 import com.netflix.priam.scheduler.PriamScheduler;
+import com.netflix.priam.utils.ScheduledRepair;
 import com.netflix.priam.utils.Sleeper;
 import com.netflix.priam.utils.SystemUtils;
 import com.netflix.priam.utils.TuneCassandra;
+import com.netflix.priam.utils.UpdateSeedFile;
 import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
 
 /**
  * Start all tasks here - Property update task - Backup task - Restore task -
@@ -21,17 +29,20 @@ import org.apache.commons.collections.CollectionUtils;
 @Singleton
 public class PriamServer
 {
+    private static final Logger logger = LoggerFactory.getLogger(PriamServer.class);
     private final PriamScheduler scheduler;
     private final IConfiguration config;
     private final InstanceIdentity id;
+    private final IMembership membership;
     private final Sleeper sleeper;
 
     @Inject
-    public PriamServer(IConfiguration config, PriamScheduler scheduler, InstanceIdentity id, Sleeper sleeper)
+    public PriamServer(IConfiguration config, PriamScheduler scheduler, InstanceIdentity id, IMembership membership, Sleeper sleeper)
     {
         this.config = config;
         this.scheduler = scheduler;
         this.id = id;
+        this.membership = membership;
         this.sleeper = sleeper;
     }
 
@@ -51,11 +62,32 @@ public class PriamServer
             if (UpdateSecuritySettings.firstTimeUpdated)
                 sleeper.sleep(60 * 1000);
             scheduler.addTask(UpdateSecuritySettings.JOBNAME, UpdateSecuritySettings.class, UpdateSecuritySettings.getTimer(id));
+            // the timer still picks up nodes of the other regions, our own
+            // RAC is handled as soon as it changes
+            membership.addListener(new IMembershipListener()
+            {
+                public void membershipChanged(Set<String> joined, Set<String> left)
+                {
+                    if (!id.isSeed())
+                        return;
+                    try
+                    {
+                        scheduler.runTaskNow(UpdateSecuritySettings.class);
+                    }
+                    catch (Exception e)
+                    {
+                        logger.error("Unable to update the security group after a membership change", e);
+                    }
+                }
+            });
         }
 
         // Run the task to tune Cassandra
         scheduler.runTaskNow(TuneCassandra.class);
 
+        // Keep the seed file NFSeedProvider reads current
+        scheduler.addTask(UpdateSeedFile.JOBNAME, UpdateSeedFile.class, UpdateSeedFile.getTimer());
+
         // restore from backup else start cassandra.
         if (!config.getRestoreSnapshot().equals(""))
             scheduler.addTask(Restore.JOBNAME, Restore.class, Restore.getTimer());
@@ -75,6 +107,10 @@ public class PriamServer
         
         //Set cleanup
         scheduler.addTask(UpdateCleanupPolicy.JOBNAME, UpdateCleanupPolicy.class, UpdateCleanupPolicy.getTimer());
+
+        // Repair the primary range a column family at a time within the window
+        if (config.getRepairWindow() > 0)
+            scheduler.addTask(ScheduledRepair.JOBNAME, ScheduledRepair.class, ScheduledRepair.getTimer());
     }
 
     public InstanceIdentity getId()
@@ -9,10 +9,16 @@ import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.*;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.ICredential;
 import com.netflix.priam.identity.IMembership;
+import com.netflix.priam.identity.IMembershipListener;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,17 +26,48 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class to query amazon ASG for its members to provide - Number of valid nodes
  * in the ASG - Number of zones - Methods for adding ACLs for the nodes
+ *
+ * The ASG is described once on first use and then polled in the background,
+ * reads are served from the last description. Listeners are told about
+ * instances joining or leaving the ASG.
  */
+@Singleton
 public class AWSMembership implements IMembership
 {
     private static final Logger logger = LoggerFactory.getLogger(AWSMembership.class);
+    private static final long POLL_INTERVAL = 30 * 1000;
+    private static final Timer describeTimer = MetricRegistry.getInstance().timer("membership.describe_asg");
     private final IConfiguration config;
-    private final ICredential provider;    
+    private final ICredential provider;
+    private final AtomicReference<RacState> state = new AtomicReference<RacState>();
+    private final List<IMembershipListener> listeners = new CopyOnWriteArrayList<IMembershipListener>();
+
+    /**
+     * What the ASG looked like when last described
+     */
+    public static class RacState
+    {
+        final List<String> instanceIds;
+        final int maxSize;
+
+        public RacState(List<String> instanceIds, int maxSize)
+        {
+            this.instanceIds = Collections.unmodifiableList(instanceIds);
+            this.maxSize = maxSize;
+        }
+    }
 
     @Inject
     public AWSMembership(IConfiguration config, ICredential provider)
@@ -42,36 +79,105 @@ public class AWSMembership implements IMembership
     @Override
     public List<String> getRacMembership()
     {
-        AmazonAutoScaling client = null;
-        try
+        return current().instanceIds;
+    }
+
+    /**
+     * Actual membership AWS source of truth...
+     */
+    @Override
+    public int getRacMembershipSize()
+    {
+        return current().maxSize;
+    }
+
+    @Override
+    public void addListener(IMembershipListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    private RacState current()
+    {
+        RacState current = state.get();
+        if (current != null)
+            return current;
+        synchronized (this)
         {
-            client = getAutoScalingClient();
-            DescribeAutoScalingGroupsRequest asgReq = new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(config.getASGName());
-            DescribeAutoScalingGroupsResult res = client.describeAutoScalingGroups(asgReq);
+            if (state.get() == null)
+            {
+                refresh();
+                startPolling();
+            }
+        }
+        return state.get();
+    }
 
-            List<String> instanceIds = Lists.newArrayList();
-            for (AutoScalingGroup asg : res.getAutoScalingGroups())
+    private void startPolling()
+    {
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("AWSMembership"));
+        poller.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
             {
-                for (Instance ins : asg.getInstances())
-                    if (!(ins.getLifecycleState().equalsIgnoreCase("Terminating") || ins.getLifecycleState().equalsIgnoreCase("shutting-down") || ins.getLifecycleState()
-                            .equalsIgnoreCase("Terminated")))
-                        instanceIds.add(ins.getInstanceId());
+                try
+                {
+                    refresh();
+                }
+                catch (Exception e)
+                {
+                    logger.warn("Unable to describe ASG " + config.getASGName() + ", keeping the last membership: " + e.getMessage());
+                }
             }
-            logger.info(String.format("Querying Amazon returned following instance in the ASG: %s --> %s", config.getRac(), StringUtils.join(instanceIds, ",")));
-            return instanceIds;
+        }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Describe the ASG and tell listeners about the difference with the
+     * previous description. The poller and a resize both refresh, one at a
+     * time so each change is told once and in order.
+     */
+    synchronized void refresh()
+    {
+        RacState latest;
+        Timer.Context timing = describeTimer.time();
+        try
+        {
+            latest = describeRac();
         }
         finally
         {
-            if (client != null)
-                client.shutdown();
+            timing.stop();
+        }
+        RacState previous = state.getAndSet(latest);
+        Set<String> joined = Sets.newHashSet(latest.instanceIds);
+        Set<String> left = Sets.newHashSet();
+        if (previous != null)
+        {
+            joined.removeAll(previous.instanceIds);
+            left.addAll(previous.instanceIds);
+            left.removeAll(latest.instanceIds);
+        }
+        if (joined.isEmpty() && left.isEmpty())
+            return;
+        logger.info(String.format("Querying Amazon returned following instance in the ASG: %s --> %s", config.getRac(), StringUtils.join(latest.instanceIds, ",")));
+        // the first description is not a change
+        if (previous == null)
+            return;
+        for (IMembershipListener listener : listeners)
+        {
+            try
+            {
+                listener.membershipChanged(joined, left);
+            }
+            catch (Exception e)
+            {
+                logger.error("Membership listener failed", e);
+            }
         }
     }
 
-    /**
-     * Actual membership AWS source of truth...
-     */
-    @Override
-    public int getRacMembershipSize()
+    protected RacState describeRac()
     {
         AmazonAutoScaling client = null;
         try
@@ -79,13 +185,18 @@ public class AWSMembership implements IMembership
             client = getAutoScalingClient();
             DescribeAutoScalingGroupsRequest asgReq = new DescribeAutoScalingGroupsRequest().withAutoScalingGroupNames(config.getASGName());
             DescribeAutoScalingGroupsResult res = client.describeAutoScalingGroups(asgReq);
+
+            List<String> instanceIds = Lists.newArrayList();
             int size = 0;
             for (AutoScalingGroup asg : res.getAutoScalingGroups())
             {
+                for (Instance ins : asg.getInstances())
+                    if (!(ins.getLifecycleState().equalsIgnoreCase("Terminating") || ins.getLifecycleState().equalsIgnoreCase("shutting-down") || ins.getLifecycleState()
+                            .equalsIgnoreCase("Terminated")))
+                        instanceIds.add(ins.getInstanceId());
                 size += asg.getMaxSize();
             }
-            logger.info(String.format("Query on ASG returning %d instances", size));
-            return size;
+            return new RacState(instanceIds, size);
         }
         finally
         {
@@ -188,6 +299,8 @@ public class AWSMembership implements IMembership
             if (client != null)
                 client.shutdown();
         }
+        // the size changed, don't wait for the next poll
+        refresh();
     }
 
     protected AmazonAutoScaling getAutoScalingClient()
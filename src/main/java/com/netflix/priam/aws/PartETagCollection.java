@@ -0,0 +1,109 @@
+package com.netflix.priam.aws;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.amazonaws.services.s3.model.PartETag;
+import com.google.common.collect.Lists;
+
+/**
+ * Results of the parts of one multipart upload, addressed by part number.
+ * Uploader threads write to their own slot, so no locking is needed. A part's
+ * data is held from submission until its ETag is recorded, which lets parts
+ * that exhausted their retries be re-uploaded on their own.
+ */
+public class PartETagCollection
+{
+    private final AtomicReferenceArray<PartETag> etags;
+    private final AtomicReferenceArray<DataPart> pending;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger highestPart = new AtomicInteger();
+
+    /**
+     * @param capacity
+     *            highest part number this upload may use
+     */
+    public PartETagCollection(int capacity)
+    {
+        this.etags = new AtomicReferenceArray<PartETag>(capacity);
+        this.pending = new AtomicReferenceArray<DataPart>(capacity);
+    }
+
+    /**
+     * Track a part before it is handed to an uploader.
+     */
+    public void submitted(DataPart part)
+    {
+        pending.set(index(part.getPartNo()), part);
+        raiseHighestPart(part.getPartNo());
+    }
+
+    /**
+     * Record the ETag of an uploaded part and release its data.
+     */
+    public void add(PartETag etag)
+    {
+        int index = index(etag.getPartNumber());
+        if (etags.getAndSet(index, etag) == null)
+            completed.incrementAndGet();
+        pending.set(index, null);
+        raiseHighestPart(etag.getPartNumber());
+    }
+
+    /**
+     * Number of parts uploaded successfully
+     */
+    public int size()
+    {
+        return completed.get();
+    }
+
+    /**
+     * Parts which were submitted but have no ETag, in part number order. Only
+     * meaningful once all uploaders are done.
+     */
+    public List<DataPart> getFailedParts()
+    {
+        List<DataPart> failed = Lists.newArrayList();
+        for (int i = 0; i < highestPart.get(); i++)
+        {
+            DataPart part = pending.get(i);
+            if (part != null && etags.get(i) == null)
+                failed.add(part);
+        }
+        return failed;
+    }
+
+    /**
+     * ETags sorted by part number, as required to complete the upload.
+     */
+    public List<PartETag> getSortedETags()
+    {
+        List<PartETag> sorted = Lists.newArrayListWithCapacity(completed.get());
+        for (int i = 0; i < highestPart.get(); i++)
+        {
+            PartETag etag = etags.get(i);
+            if (etag != null)
+                sorted.add(etag);
+        }
+        return sorted;
+    }
+
+    private void raiseHighestPart(int partNumber)
+    {
+        while (true)
+        {
+            int highest = highestPart.get();
+            if (partNumber <= highest || highestPart.compareAndSet(highest, partNumber))
+                return;
+        }
+    }
+
+    private int index(int partNumber)
+    {
+        if (partNumber < 1 || partNumber > etags.length())
+            throw new IllegalArgumentException("Part number " + partNumber + " is out of range 1-" + etags.length());
+        return partNumber - 1;
+    }
+}
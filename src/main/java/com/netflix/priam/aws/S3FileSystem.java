@@ -1,14 +1,23 @@
 package com.netflix.priam.aws;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -25,7 +34,7 @@ import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
-import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration.Rule;
 import com.google.common.collect.Lists;
@@ -38,18 +47,43 @@ import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.backup.IBackupFileSystem;
 import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.metrics.Gauge;
+import com.netflix.priam.metrics.Meter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 import com.netflix.priam.scheduler.CustomizedThreadPoolExecutor;
+import com.netflix.priam.utils.ByteBudget;
 import com.netflix.priam.utils.Throttle;
 
 /**
  * Implementation of IBackupFileSystem for S3
+ *
+ * Parts of all uploads go to one pool of request threads. What bounds them is
+ * the bytes they hold, not the pool: an upload waits for room in the buffer
+ * budget ({@link IConfiguration#getS3BufferBudget()}) before handing over a
+ * part, which holds back its compressor. Request threads are created with a
+ * small stack since they only block on sockets, so the pool can be sized for
+ * the latency to S3 rather than for memory.
+ *
+ * Downloads from another region than this node's read objects through several
+ * ranged GETs at once ({@link IConfiguration#getRestoreRemoteRangeConcurrency()}).
+ * Their ranges have a budget of their own, room for every download thread's
+ * ranges, so a restore is not held to what uploads need. The client is kept
+ * between calls, so its connections are too, as long as the credentials do
+ * not change.
  */
 @Singleton
 public class S3FileSystem implements IBackupFileSystem, S3FileSystemMBean
 {
     private static final Logger logger = LoggerFactory.getLogger(S3FileSystem.class);
     private static final int MAX_CHUNKS = 10000;
+    private static final int MAX_PART_RESUBMITS = 2;
     private static final long UPLOAD_TIMEOUT = (2 * 60 * 60 * 1000L);
+    private static final long REQUEST_STACK_SIZE = 256 * 1024;
+    private static final Timer uploadTimer = MetricRegistry.getInstance().timer("s3.upload");
+    private static final Timer downloadTimer = MetricRegistry.getInstance().timer("s3.download");
+    private static final Meter uploadBytes = MetricRegistry.getInstance().meter("s3.upload_bytes");
+    private static final Meter downloadBytes = MetricRegistry.getInstance().meter("s3.download_bytes");
 
     private final Provider<AbstractBackupPath> pathProvider;
     private final ICompression compress;
@@ -57,6 +91,13 @@ public class S3FileSystem implements IBackupFileSystem, S3FileSystemMBean
     private final ICredential cred;
     private Throttle throttle;
     private CustomizedThreadPoolExecutor executor;
+    private final ByteBudget budget;
+    private final ByteBudget downloadBudget;
+    private final ExecutorService rangeExecutor;
+    // read before a restore can point the configuration at another region
+    private final String region;
+    private AmazonS3 client;
+    private String clientCredentials;
 
     private AtomicLong bytesDownloaded = new AtomicLong();
     private AtomicLong bytesUploaded = new AtomicLong();
@@ -65,14 +106,44 @@ public class S3FileSystem implements IBackupFileSystem, S3FileSystemMBean
 
     @Inject
     public S3FileSystem(Provider<AbstractBackupPath> pathProvider, ICompression compress, final IConfiguration config, ICredential cred)
+    {
+        this(pathProvider, compress, config, cred, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public S3FileSystem(Provider<AbstractBackupPath> pathProvider, ICompression compress, final IConfiguration config, ICredential cred, MBeanServer mbs)
     {
         this.pathProvider = pathProvider;
         this.compress = compress;
         this.config = config;
         this.cred = cred;
         int threads = config.getMaxBackupUploadThreads();
-        LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>(threads);
-        this.executor = new CustomizedThreadPoolExecutor(threads, queue, UPLOAD_TIMEOUT);
+        // the budget bounds what waits in the queue
+        this.executor = new CustomizedThreadPoolExecutor(threads, new LinkedBlockingQueue<Runnable>(), UPLOAD_TIMEOUT, MetricRegistry.getInstance().timer("s3.part_queue_wait"));
+        this.executor.setThreadFactory(requestThreads("s3-request-"));
+        // bounded by the download budget, each range holds some of it
+        this.rangeExecutor = Executors.newCachedThreadPool(requestThreads("s3-range-"));
+        this.region = config.getDC();
+        this.budget = new ByteBudget(config.getS3BufferBudget() * 1024L * 1024L);
+        MetricRegistry.getInstance().gauge("s3.buffered_bytes", new Gauge()
+        {
+            @Override
+            public double getValue()
+            {
+                return budget.getInFlight();
+            }
+        });
+        // restores run apart from uploads, every download thread may keep its
+        // ranges in flight
+        int ranges = Math.max(config.getRestoreRangeConcurrency(), config.getRestoreRemoteRangeConcurrency());
+        this.downloadBudget = new ByteBudget(Math.max(1, config.getMaxBackupDownloadThreads()) * (long) Math.max(1, ranges) * config.getBackupChunkSize());
+        MetricRegistry.getInstance().gauge("s3.download_buffered_bytes", new Gauge()
+        {
+            @Override
+            public double getValue()
+            {
+                return downloadBudget.getInFlight();
+            }
+        });
         this.throttle = new Throttle(this.getClass().getCanonicalName(), new Throttle.ThroughputFunction()
         {
             public int targetThroughput()
@@ -84,7 +155,6 @@ public class S3FileSystem implements IBackupFileSystem, S3FileSystemMBean
                 return totalBytesPerMS;
             }
         });
-        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
         String mbeanName = MBEAN_NAME;
         try
         {
@@ -96,63 +166,246 @@ public class S3FileSystem implements IBackupFileSystem, S3FileSystemMBean
         }
     }
 
+    private static ThreadFactory requestThreads(final String prefix)
+    {
+        return new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(null, r, prefix + count.incrementAndGet(), REQUEST_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
     @Override
     public void download(AbstractBackupPath path, OutputStream os) throws BackupRestoreException
     {
+        Timer.Context timer = downloadTimer.time();
         try
         {
             logger.info("Downloading " + path.getRemotePath());
             downloadCount.incrementAndGet();
             AmazonS3 client = getS3Client();
-            S3Object obj = client.getObject(getPrefix(), path.getRemotePath());
-            compress.decompressAndClose(obj.getObjectContent(), os);
-            bytesDownloaded.addAndGet(obj.getObjectMetadata().getContentLength());
+            long length = download(client, path, os);
+            bytesDownloaded.addAndGet(length);
+            downloadBytes.mark(length);
         }
         catch (Exception e)
         {
             throw new BackupRestoreException(e.getMessage(), e);
         }
+        finally
+        {
+            timer.stop();
+        }
+    }
+
+    /**
+     * @return the bytes read from S3
+     */
+    private long download(AmazonS3 client, AbstractBackupPath path, OutputStream os) throws IOException
+    {
+        int ranges = region.equals(path.getRegion()) ? config.getRestoreRangeConcurrency() : config.getRestoreRemoteRangeConcurrency();
+        long rangeSize = config.getBackupChunkSize();
+        if (ranges > 1)
+        {
+            ObjectMetadata metadata = client.getObjectMetadata(getPrefix(), path.getRemotePath());
+            long length = metadata.getContentLength();
+            if (length > rangeSize)
+            {
+                compress.decompressAndClose(new S3RangeReader(client, getPrefix(), path.getRemotePath(), length, rangeSize, ranges, rangeExecutor, downloadBudget), os);
+                return length;
+            }
+        }
+        S3Object obj = client.getObject(getPrefix(), path.getRemotePath());
+        compress.decompressAndClose(obj.getObjectContent(), os);
+        return obj.getObjectMetadata().getContentLength();
     }
 
     @Override
     public void upload(AbstractBackupPath path, InputStream in) throws BackupRestoreException
     {
         uploadCount.incrementAndGet();
-        AmazonS3 s3Client = getS3Client();
-        InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(config.getBackupPrefix(), path.getRemotePath());
-        InitiateMultipartUploadResult initResponse = s3Client.initiateMultipartUpload(initRequest);
-        DataPart part = new DataPart(config.getBackupPrefix(), path.getRemotePath(), initResponse.getUploadId());
-        List<PartETag> partETags = Lists.newArrayList();
+        Timer.Context timer = uploadTimer.time();
+        try
+        {
+            AmazonS3 s3Client = getS3Client();
+            InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(config.getBackupPrefix(), path.getRemotePath());
+            InitiateMultipartUploadResult initResponse = s3Client.initiateMultipartUpload(initRequest);
+            DataPart part = new DataPart(config.getBackupPrefix(), path.getRemotePath(), initResponse.getUploadId());
+            PartETagCollection partETags = new PartETagCollection(MAX_CHUNKS);
+            try
+            {
+                uploadParts(s3Client, path, in, initResponse.getUploadId(), partETags);
+                new S3PartUploader(s3Client, part, partETags).completeUpload();
+            }
+            catch (Exception e)
+            {
+                new S3PartUploader(s3Client, part, partETags).abortUpload();
+                throw new BackupRestoreException("Error uploading file " + path.getFileName(), e);
+            }
+        }
+        finally
+        {
+            timer.stop();
+        }
+    }
+
+    private void uploadParts(AmazonS3 s3Client, AbstractBackupPath path, InputStream in, String uploadId, PartETagCollection partETags) throws Exception
+    {
         long chunkSize = config.getBackupChunkSize();
         if (path.getSize() > 0)
             chunkSize = (path.getSize() / chunkSize >= MAX_CHUNKS) ? (path.getSize() / (MAX_CHUNKS - 1)) : chunkSize;
         logger.info(String.format("Uploading to %s with chunk size %d", path.getRemotePath(), chunkSize));
+        Iterator<byte[]> chunks = compress.compress(in, chunkSize);
+        // Upload parts.
+        long deadline = System.currentTimeMillis() + UPLOAD_TIMEOUT;
+        List<PartRequest> requests = Lists.newArrayList();
+        int partNum = 0;
         try
         {
-            Iterator<byte[]> chunks = compress.compress(in, chunkSize);
-            // Upload parts.
-            int partNum = 0;
             while (chunks.hasNext())
             {
                 byte[] chunk = chunks.next();
                 throttle.throttle(chunk.length);
-                DataPart dp = new DataPart(++partNum, chunk, config.getBackupPrefix(), path.getRemotePath(), initResponse.getUploadId());
-                S3PartUploader partUploader = new S3PartUploader(s3Client, dp, partETags);
-                executor.submit(partUploader);
+                DataPart dp = new DataPart(++partNum, chunk, config.getBackupPrefix(), path.getRemotePath(), uploadId);
+                partETags.submitted(dp);
+                requests.add(submit(s3Client, dp, partETags));
                 bytesUploaded.addAndGet(chunk.length);
+                uploadBytes.mark(chunk.length);
+            }
+            await(requests, deadline);
+            // Re-upload only the parts which ran out of retries
+            for (int round = 0; round < MAX_PART_RESUBMITS && partETags.size() != partNum; round++)
+            {
+                List<DataPart> failed = partETags.getFailedParts();
+                logger.warn(String.format("Resubmitting %d failed parts of %s", failed.size(), path.getRemotePath()));
+                requests.clear();
+                for (DataPart dp : failed)
+                    requests.add(submit(s3Client, dp, partETags));
+                await(requests, deadline);
             }
-            executor.sleepTillEmpty();
-            if (partNum != partETags.size())
-                throw new BackupRestoreException("Number of parts(" + partNum + ")  does not match the uploaded parts(" + partETags.size() + ")");
-            new S3PartUploader(s3Client, part, partETags).completeUpload();
         }
         catch (Exception e)
         {
-            new S3PartUploader(s3Client, part, partETags).abortUpload();
-            throw new BackupRestoreException("Error uploading file " + path.getFileName(), e);
+            // the upload is aborted, its parts are not left holding the budget
+            cancel(requests);
+            throw e;
+        }
+        if (partNum != partETags.size())
+            throw new BackupRestoreException("Number of parts(" + partNum + ")  does not match the uploaded parts(" + partETags.size() + ")");
+    }
+
+    /**
+     * Hand a part to the request threads once the buffer budget has room for
+     * it, the room is given back when its request is done.
+     */
+    private PartRequest submit(AmazonS3 s3Client, DataPart dp, PartETagCollection partETags) throws InterruptedException
+    {
+        PartRequest request = new PartRequest(dp, new S3PartUploader(s3Client, dp, partETags));
+        budget.acquire(request.size);
+        try
+        {
+            request.future = executor.submit(request);
+            return request;
+        }
+        catch (RuntimeException e)
+        {
+            budget.release(request.size);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for the requests of one upload. A part which failed has no ETag,
+     * the caller resubmits it.
+     */
+    private void await(List<PartRequest> requests, long deadline) throws InterruptedException, TimeoutException
+    {
+        for (PartRequest request : requests)
+        {
+            try
+            {
+                request.future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+            catch (ExecutionException e)
+            {
+                logger.warn(String.format("Upload of part %d of %s failed: %s", request.part.getPartNo(), request.part.getS3key(), e.getCause()));
+            }
+        }
+    }
+
+    /**
+     * Cancel the requests of a failed upload, and wait for those already
+     * talking to S3 to give their part's room in the budget back.
+     */
+    private void cancel(List<PartRequest> requests) throws InterruptedException
+    {
+        for (PartRequest request : requests)
+            request.cancel();
+        for (PartRequest request : requests)
+            request.finished.await();
+    }
+
+    /**
+     * One part's request, holding the part's room in the budget until it is
+     * done, or cancelled before it started.
+     */
+    private class PartRequest implements Callable<Void>
+    {
+        private final DataPart part;
+        private final int size;
+        private final S3PartUploader uploader;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private Future<Void> future;
+
+        PartRequest(DataPart part, S3PartUploader uploader)
+        {
+            this.part = part;
+            this.size = part.getPartData().length;
+            this.uploader = uploader;
+        }
+
+        public Void call() throws Exception
+        {
+            if (!started.compareAndSet(false, true))
+                return null;
+            try
+            {
+                return uploader.call();
+            }
+            finally
+            {
+                budget.release(size);
+                finished.countDown();
+            }
+        }
+
+        void cancel()
+        {
+            if (started.compareAndSet(false, true))
+            {
+                // never ran, its room is given back here
+                future.cancel(false);
+                budget.release(size);
+                finished.countDown();
+            }
+            else
+                future.cancel(true);
         }
     }
 
+    @Override
+    public long getBufferedBytes()
+    {
+        return budget.getInFlight() + downloadBudget.getInFlight();
+    }
+
     @Override
     public int getActivecount()
     {
@@ -239,9 +492,17 @@ public class S3FileSystem implements IBackupFileSystem, S3FileSystemMBean
         return true;
     }
 
-    private AmazonS3 getS3Client()
+    protected synchronized AmazonS3 getS3Client()
     {
-        return new AmazonS3Client(new BasicAWSCredentials(cred.getAccessKeyId(), cred.getSecretAccessKey()));
+        String accessKey = cred.getAccessKeyId();
+        String secretKey = cred.getSecretAccessKey();
+        String credentials = accessKey + ":" + secretKey;
+        if (client == null || !credentials.equals(clientCredentials))
+        {
+            client = new AmazonS3Client(new BasicAWSCredentials(accessKey, secretKey));
+            clientCredentials = credentials;
+        }
+        return client;
     }
 
     /**
@@ -10,6 +10,8 @@ public interface S3FileSystemMBean
 
     public int getActivecount();
 
+    public long getBufferedBytes();
+
     public long bytesUploaded();
 
     public long bytesDownloaded();
@@ -1,7 +1,6 @@
 package com.netflix.priam.aws;
 
 import java.io.ByteArrayInputStream;
-import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +13,10 @@ import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.model.UploadPartResult;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+import com.netflix.priam.utils.Backoff;
+import com.netflix.priam.utils.RetryBudget;
 import com.netflix.priam.utils.RetryableCallable;
 import com.netflix.priam.utils.SystemUtils;
 
@@ -21,14 +24,16 @@ public class S3PartUploader extends RetryableCallable<Void>
 {               
     private final AmazonS3 client;
     private DataPart dataPart;
-    private List<PartETag> partETags;
+    private PartETagCollection partETags;
     
     private static final Logger logger = LoggerFactory.getLogger(S3PartUploader.class);
     private static final int MAX_RETRIES = 5;
+    private static final long MAX_BACKOFF = 10 * 1000;
+    private static final Timer partRequests = MetricRegistry.getInstance().timer("s3.part_request");
 
-    public S3PartUploader(AmazonS3 client, DataPart dp, List<PartETag> partETags)
+    public S3PartUploader(AmazonS3 client, DataPart dp, PartETagCollection partETags)
     {
-        super(MAX_RETRIES, RetryableCallable.DEFAULT_WAIT_TIME);
+        super(MAX_RETRIES, RetryableCallable.DEFAULT_WAIT_TIME, RetryBudget.NODE);
         this.client = client;
         this.dataPart = dp;
         this.partETags = partETags;
@@ -44,7 +49,16 @@ public class S3PartUploader extends RetryableCallable<Void>
         req.setPartSize(dataPart.getPartData().length);
         req.setMd5Digest(SystemUtils.toBase64(dataPart.getMd5()));
         req.setInputStream(new ByteArrayInputStream(dataPart.getPartData()));
-        UploadPartResult res = client.uploadPart(req);
+        UploadPartResult res;
+        Timer.Context request = partRequests.time();
+        try
+        {
+            res = client.uploadPart(req);
+        }
+        finally
+        {
+            request.stop();
+        }
         PartETag partETag = res.getPartETag();
         if (!partETag.getETag().equals(SystemUtils.toHex(dataPart.getMd5())))
             throw new BackupRestoreException("Unable to match MD5 for part " + dataPart.getPartNo());
@@ -54,7 +68,7 @@ public class S3PartUploader extends RetryableCallable<Void>
 
     public void completeUpload() throws BackupRestoreException
     {
-        CompleteMultipartUploadRequest compRequest = new CompleteMultipartUploadRequest(dataPart.getBucketName(), dataPart.getS3key(), dataPart.getUploadID(), partETags);
+        CompleteMultipartUploadRequest compRequest = new CompleteMultipartUploadRequest(dataPart.getBucketName(), dataPart.getS3key(), dataPart.getUploadID(), partETags.getSortedETags());
         client.completeMultipartUpload(compRequest);
     }
 
@@ -65,6 +79,12 @@ public class S3PartUploader extends RetryableCallable<Void>
         client.abortMultipartUpload(abortRequest);
     }
 
+    @Override
+    protected Backoff newBackoff()
+    {
+        return Backoff.decorrelated(RetryableCallable.DEFAULT_WAIT_TIME, MAX_BACKOFF);
+    }
+
     @Override
     public Void retriableCall() throws AmazonClientException, BackupRestoreException
     {
@@ -0,0 +1,206 @@
+package com.netflix.priam.aws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+import com.netflix.priam.utils.Backoff;
+import com.netflix.priam.utils.ByteBudget;
+import com.netflix.priam.utils.RetryBudget;
+import com.netflix.priam.utils.RetryableCallable;
+
+/**
+ * Reads an S3 object through several ranged GETs in flight at once, in order.
+ * Over a long round trip a single GET spends most of its time waiting for the
+ * window to open; a few of them side by side fill the link. Each range is
+ * buffered whole and counted against the download budget until it is read, a
+ * range only waits for room when the reader holds no other.
+ */
+class S3RangeReader extends InputStream
+{
+    private static final int MAX_RETRIES = 5;
+    private static final long MAX_BACKOFF = 10 * 1000;
+    private static final Timer rangeRequests = MetricRegistry.getInstance().timer("s3.range_request");
+
+    private final AmazonS3 client;
+    private final String bucket;
+    private final String key;
+    private final long length;
+    private final long rangeSize;
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final ByteBudget budget;
+    private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+    private final LinkedList<Long> pendingSizes = new LinkedList<Long>();
+    private long next;
+    private byte[] current;
+    private int position;
+
+    S3RangeReader(AmazonS3 client, String bucket, String key, long length, long rangeSize, int concurrency, ExecutorService executor, ByteBudget budget)
+    {
+        this.client = client;
+        this.bucket = bucket;
+        this.key = key;
+        this.length = length;
+        this.rangeSize = rangeSize;
+        this.concurrency = concurrency;
+        this.executor = executor;
+        this.budget = budget;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!ready())
+            return -1;
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+        if (!ready())
+            return -1;
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, bytes, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * @return false at the end of the object
+     */
+    private boolean ready() throws IOException
+    {
+        if (current != null && position < current.length)
+            return true;
+        if (current != null)
+        {
+            budget.release(current.length);
+            current = null;
+        }
+        fill();
+        if (pending.isEmpty())
+            return false;
+        long size = pendingSizes.removeFirst();
+        try
+        {
+            current = await(pending.removeFirst());
+        }
+        catch (IOException e)
+        {
+            budget.release(size);
+            throw e;
+        }
+        position = 0;
+        fill();
+        return true;
+    }
+
+    private void fill() throws IOException
+    {
+        while (pending.size() < concurrency && next < length)
+        {
+            long size = Math.min(rangeSize, length - next);
+            if (current == null && pending.isEmpty())
+            {
+                try
+                {
+                    budget.acquire(size);
+                }
+                catch (InterruptedException e)
+                {
+                    throw new InterruptedIOException("Interrupted waiting for buffer space for " + key);
+                }
+            }
+            else if (!budget.tryAcquire(size))
+                return;
+            final long start = next;
+            final long end = next + size - 1;
+            next += size;
+            pendingSizes.add(size);
+            pending.add(executor.submit(new RetryableCallable<byte[]>(MAX_RETRIES, RetryableCallable.DEFAULT_WAIT_TIME, RetryBudget.NODE)
+            {
+                @Override
+                public byte[] retriableCall() throws Exception
+                {
+                    return get(start, end);
+                }
+
+                @Override
+                protected Backoff newBackoff()
+                {
+                    return Backoff.decorrelated(RetryableCallable.DEFAULT_WAIT_TIME, MAX_BACKOFF);
+                }
+            }));
+        }
+    }
+
+    private byte[] get(long start, long end) throws IOException
+    {
+        Timer.Context request = rangeRequests.time();
+        try
+        {
+            S3Object range = client.getObject(new GetObjectRequest(bucket, key).withRange(start, end));
+            InputStream in = range.getObjectContent();
+            try
+            {
+                byte[] data = IOUtils.toByteArray(in);
+                if (data.length != end - start + 1)
+                    throw new IOException(String.format("Got %d bytes of %s for range %d-%d", data.length, key, start, end));
+                return data;
+            }
+            finally
+            {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        finally
+        {
+            request.stop();
+        }
+    }
+
+    private byte[] await(Future<byte[]> range) throws IOException
+    {
+        try
+        {
+            return range.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new InterruptedIOException("Interrupted reading " + key);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Unable to read " + key, e.getCause());
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (current != null)
+            budget.release(current.length);
+        current = null;
+        for (Future<byte[]> range : pending)
+            range.cancel(true);
+        for (Long size : pendingSizes)
+            budget.release(size);
+        pending.clear();
+        pendingSizes.clear();
+    }
+}
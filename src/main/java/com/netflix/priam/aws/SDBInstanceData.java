@@ -1,27 +1,40 @@
 package com.netflix.priam.aws;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.simpledb.model.BatchPutAttributesRequest;
 import com.amazonaws.services.simpledb.model.Item;
 import com.amazonaws.services.simpledb.AmazonSimpleDBClient;
 import com.amazonaws.services.simpledb.model.Attribute;
 import com.amazonaws.services.simpledb.model.DeleteAttributesRequest;
 import com.amazonaws.services.simpledb.model.PutAttributesRequest;
 import com.amazonaws.services.simpledb.model.ReplaceableAttribute;
+import com.amazonaws.services.simpledb.model.ReplaceableItem;
 import com.amazonaws.services.simpledb.model.SelectRequest;
 import com.amazonaws.services.simpledb.model.SelectResult;
 import com.amazonaws.services.simpledb.model.UpdateCondition;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.priam.ICredential;
 import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 
 /**
  * DAO for handling Instance identity information such as token, zone, region
@@ -42,15 +55,28 @@ public class SDBInstanceData
         public final static String HOSTNAME = "hostname";
     }
     public static final String DOMAIN = "InstanceIdentity";
-    public static final String ALL_QUERY = "select * from " + DOMAIN + " where " + Attributes.APP_ID + "='%s'";
+    // SimpleDB returns 100 items a page unless asked for more, 2500 is the most it allows
+    public static final String ALL_QUERY = "select * from " + DOMAIN + " where " + Attributes.APP_ID + "='%s' limit 2500";
     public static final String INSTANCE_QUERY = "select * from " + DOMAIN + " where " + Attributes.APP_ID + "='%s' and " + Attributes.ID + "='%d'";
+    // most items a BatchPutAttributes call accepts
+    public static final int MAX_BATCH_SIZE = 25;
+    // bounds the concurrent select chains of a single read
+    private static final int MAX_CONCURRENT_SELECTS = 4;
+
+    private static final Timer selectTimer = MetricRegistry.getInstance().timer("sdb.select");
+    private static final Timer putTimer = MetricRegistry.getInstance().timer("sdb.put");
+    private static final Timer batchPutTimer = MetricRegistry.getInstance().timer("sdb.batch_put");
+    private static final Timer deleteTimer = MetricRegistry.getInstance().timer("sdb.delete");
 
     private final ICredential provider;
-    
+    private final ExecutorService selects = Executors.newFixedThreadPool(MAX_CONCURRENT_SELECTS, new NamedThreadFactory("SDBSelect"));
+    private AmazonSimpleDBClient client;
+    private String clientKeyId;
+
     @Inject
     public SDBInstanceData(ICredential provider)
     {
-        this.provider = provider;       
+        this.provider = provider;
     }
 
     /**
@@ -64,7 +90,7 @@ public class SDBInstanceData
     {
         AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
         SelectRequest request = new SelectRequest(String.format(INSTANCE_QUERY, app, id));
-        SelectResult result = simpleDBClient.select(request);
+        SelectResult result = select(simpleDBClient, request);
         if (result.getItems().size() == 0)
             return null;
         return transform(result.getItems().get(0));
@@ -78,14 +104,65 @@ public class SDBInstanceData
      */
     public Set<PriamInstance> getAllIds(String app)
     {
-        AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
+        return selectAll(getSimpleDBClient(), app);
+    }
+
+    /**
+     * Get the nodes of several apps in one read, typically a cluster and its
+     * -dead entries. Pages of one app follow each other's next token and have
+     * to be read in turn, the apps themselves are read concurrently.
+     * 
+     * @param apps Cluster names
+     * @return the instances of all the given {@code apps}
+     */
+    public Set<PriamInstance> getAllIds(Collection<String> apps)
+    {
+        final AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
+        List<Future<Set<PriamInstance>>> reads = Lists.newArrayList();
+        for (final String app : apps)
+        {
+            reads.add(selects.submit(new Callable<Set<PriamInstance>>()
+            {
+                public Set<PriamInstance> call()
+                {
+                    return selectAll(simpleDBClient, app);
+                }
+            }));
+        }
+        Set<PriamInstance> inslist = new HashSet<PriamInstance>();
+        try
+        {
+            for (Future<Set<PriamInstance>> read : reads)
+                inslist.addAll(read.get());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            for (Future<Set<PriamInstance>> read : reads)
+                read.cancel(true);
+        }
+        return inslist;
+    }
+
+    private Set<PriamInstance> selectAll(AmazonSimpleDBClient simpleDBClient, String app)
+    {
         Set<PriamInstance> inslist = new HashSet<PriamInstance>();
         String nextToken = null;
         do
         {
             SelectRequest request = new SelectRequest(String.format(ALL_QUERY, app));
             request.setNextToken(nextToken);
-            SelectResult result = simpleDBClient.select(request);
+            SelectResult result = select(simpleDBClient, request);
             nextToken = result.getNextToken();
             Iterator<Item> itemiter = result.getItems().iterator();
             while (itemiter.hasNext())
@@ -97,6 +174,22 @@ public class SDBInstanceData
         return inslist;
     }
 
+    private SelectResult select(AmazonSimpleDBClient simpleDBClient, SelectRequest request)
+    {
+        // slots are claimed by conditional writes, a stale read would only
+        // lead to a conflict
+        request.setConsistentRead(true);
+        Timer.Context timing = selectTimer.time();
+        try
+        {
+            return simpleDBClient.select(request);
+        }
+        finally
+        {
+            timing.stop();
+        }
+    }
+
     /**
      * Create a new instance entry in SimpleDB
      * 
@@ -107,7 +200,35 @@ public class SDBInstanceData
     {
         AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
         PutAttributesRequest putReq = new PutAttributesRequest(DOMAIN, getKey(instance), createAttributesToRegister(instance));
-        simpleDBClient.putAttributes(putReq);
+        put(simpleDBClient, putReq);
+    }
+
+    /**
+     * Create or overwrite several instance entries, {@link #MAX_BATCH_SIZE}
+     * per request. Batched puts cannot be conditional, entries are written
+     * just like {@link #createInstance(PriamInstance)} does.
+     * 
+     * @param instances
+     * @throws AmazonServiceException
+     */
+    public void createInstances(List<PriamInstance> instances) throws AmazonServiceException
+    {
+        AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
+        List<ReplaceableItem> items = Lists.newArrayList();
+        for (PriamInstance instance : instances)
+            items.add(new ReplaceableItem(getKey(instance), createAttributesToRegister(instance)));
+        for (List<ReplaceableItem> batch : Lists.partition(items, MAX_BATCH_SIZE))
+        {
+            Timer.Context timing = batchPutTimer.time();
+            try
+            {
+                simpleDBClient.batchPutAttributes(new BatchPutAttributesRequest(DOMAIN, batch));
+            }
+            finally
+            {
+                timing.stop();
+            }
+        }
     }
 
     /**
@@ -124,11 +245,27 @@ public class SDBInstanceData
         expected.setName(Attributes.INSTANCE_ID);
         expected.setExists(false);
         putReq.setExpected(expected);
-        simpleDBClient.putAttributes(putReq);
+        put(simpleDBClient, putReq);
     }
 
     /**
-     * Deregister instance (same as delete)
+     * Overwrite the instance entry, only if it still belongs to the instance
+     * id
+     * 
+     * @param instance
+     * @throws AmazonServiceException
+     */
+    public void renewInstance(PriamInstance instance) throws AmazonServiceException
+    {
+        AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
+        PutAttributesRequest putReq = new PutAttributesRequest(DOMAIN, getKey(instance), createAttributesToRegister(instance));
+        putReq.setExpected(new UpdateCondition(Attributes.INSTANCE_ID, instance.getInstanceId(), true));
+        put(simpleDBClient, putReq);
+    }
+
+    /**
+     * Deregister instance (same as delete). Fails if the entry no longer
+     * belongs to the instance id.
      * 
      * @param instance
      * @throws AmazonServiceException
@@ -137,7 +274,29 @@ public class SDBInstanceData
     {
         AmazonSimpleDBClient simpleDBClient = getSimpleDBClient();
         DeleteAttributesRequest delReq = new DeleteAttributesRequest(DOMAIN, getKey(instance), createAttributesToDeRegister(instance));
-        simpleDBClient.deleteAttributes(delReq);
+        delReq.setExpected(new UpdateCondition(Attributes.INSTANCE_ID, instance.getInstanceId(), true));
+        Timer.Context timing = deleteTimer.time();
+        try
+        {
+            simpleDBClient.deleteAttributes(delReq);
+        }
+        finally
+        {
+            timing.stop();
+        }
+    }
+
+    private void put(AmazonSimpleDBClient simpleDBClient, PutAttributesRequest putReq)
+    {
+        Timer.Context timing = putTimer.time();
+        try
+        {
+            simpleDBClient.putAttributes(putReq);
+        }
+        finally
+        {
+            timing.stop();
+        }
     }
 
     protected List<ReplaceableAttribute> createAttributesToRegister(PriamInstance instance)
@@ -211,8 +370,18 @@ public class SDBInstanceData
         return instance.getApp() + instance.getId();
     }
     
-    private AmazonSimpleDBClient getSimpleDBClient(){
-        //Create per request
-        return new AmazonSimpleDBClient(new BasicAWSCredentials(provider.getAccessKeyId(), provider.getSecretAccessKey()));
+    /**
+     * The client is thread safe and keeps its connections, it is only rebuilt
+     * when the credentials rotate.
+     */
+    private synchronized AmazonSimpleDBClient getSimpleDBClient()
+    {
+        String keyId = provider.getAccessKeyId();
+        if (client == null || !keyId.equals(clientKeyId))
+        {
+            client = new AmazonSimpleDBClient(new BasicAWSCredentials(keyId, provider.getSecretAccessKey()));
+            clientKeyId = keyId;
+        }
+        return client;
     }
 }
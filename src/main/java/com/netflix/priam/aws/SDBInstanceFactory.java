@@ -1,11 +1,14 @@
 package com.netflix.priam.aws;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,7 +18,9 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.identity.IPriamInstanceFactory;
+import com.netflix.priam.identity.InstanceRegistryCache;
 import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.identity.SlotTakenException;
 
 /**
  * SimpleDB based instance factory. Requires 'InstanceIdentity' domain to be
@@ -25,29 +30,60 @@ import com.netflix.priam.identity.PriamInstance;
 public class SDBInstanceFactory implements IPriamInstanceFactory
 {
     private static final Logger logger = LoggerFactory.getLogger(SDBInstanceFactory.class);
+    private static final String DEAD_SUFFIX = "-dead";
 
     private final IConfiguration config;
     private final SDBInstanceData dao;
+    private final InstanceRegistryCache cache;
 
     @Inject
     public SDBInstanceFactory(IConfiguration config, SDBInstanceData dao)
     {
         this.config = config;
         this.dao = dao;
+        // live and dead entries of a cluster are always needed together, one
+        // read of both fills the cache for each
+        this.cache = new InstanceRegistryCache(new InstanceRegistryCache.Loader()
+        {
+            public List<PriamInstance> load(String cluster)
+            {
+                return loadAllIds(cluster);
+            }
+        }, config.getInstanceCacheTTL() * 1000L);
     }
 
     @Override
     public List<PriamInstance> getAllIds(String appName)
     {
         List<PriamInstance> return_ = new ArrayList<PriamInstance>();
-        for (PriamInstance instance : dao.getAllIds(appName))
+        for (PriamInstance instance : cache.get(cluster(appName)))
         {
-            return_.add(instance);
+            if (appName.equals(instance.getApp()))
+                return_.add(instance);
         }
+        return return_;
+    }
+
+    private List<PriamInstance> loadAllIds(String cluster)
+    {
+        List<PriamInstance> return_ = new ArrayList<PriamInstance>(dao.getAllIds(Arrays.asList(cluster, cluster + DEAD_SUFFIX)));
         sort(return_);
         return return_;
     }
 
+    /**
+     * The expected instance id was not found: the entry changed or is gone
+     */
+    private static boolean isConditionFailure(AmazonServiceException e)
+    {
+        return "ConditionalCheckFailed".equals(e.getErrorCode()) || "AttributeDoesNotExist".equals(e.getErrorCode());
+    }
+
+    private static String cluster(String appName)
+    {
+        return appName.endsWith(DEAD_SUFFIX) ? appName.substring(0, appName.length() - DEAD_SUFFIX.length()) : appName;
+    }
+
     @Override
     public PriamInstance getInstance(String appName, int id)
     {
@@ -61,7 +97,7 @@ public class SDBInstanceFactory implements IPriamInstanceFactory
         {
             PriamInstance ins = makePriamInstance(app, id, instanceID, hostname, ip, rac, volumes, token);
             // remove old data node which are dead.
-            if (app.endsWith("-dead"))
+            if (app.endsWith(DEAD_SUFFIX))
             {
                 try
                 {
@@ -83,11 +119,23 @@ public class SDBInstanceFactory implements IPriamInstanceFactory
             dao.registerInstance(ins);
             return ins;
         }
+        catch (AmazonServiceException e)
+        {
+            if (isConditionFailure(e))
+                throw new SlotTakenException(String.format("Slot %d of %s is taken", id, app), e);
+            logger.error(e.getMessage());
+            throw new RuntimeException(e);
+        }
         catch (Exception e)
         {
             logger.error(e.getMessage());
             throw new RuntimeException(e);
         }
+        finally
+        {
+            // a failed conditional put means our view was stale as well
+            cache.invalidate(cluster(app));
+        }
     }
 
     @Override
@@ -99,7 +147,13 @@ public class SDBInstanceFactory implements IPriamInstanceFactory
         }
         catch (AmazonServiceException e)
         {
-            throw new RuntimeException("Unable to deregister priam instance", e);
+            if (!isConditionFailure(e))
+                throw new RuntimeException("Unable to deregister priam instance", e);
+            logger.info(String.format("Slot %d of %s no longer belongs to %s, leaving it", inst.getId(), inst.getApp(), inst.getInstanceId()));
+        }
+        finally
+        {
+            cache.invalidate(cluster(inst.getApp()));
         }
     }
 
@@ -114,6 +168,50 @@ public class SDBInstanceFactory implements IPriamInstanceFactory
         {
             throw new RuntimeException("Unable to update/create priam instance", e);
         }
+        finally
+        {
+            cache.invalidate(cluster(inst.getApp()));
+        }
+    }
+
+    @Override
+    public void renew(PriamInstance inst)
+    {
+        try
+        {
+            dao.renewInstance(inst);
+        }
+        catch (AmazonServiceException e)
+        {
+            if (isConditionFailure(e))
+                throw new SlotTakenException(String.format("Slot %d of %s no longer belongs to %s", inst.getId(), inst.getApp(), inst.getInstanceId()), e);
+            throw new RuntimeException("Unable to renew priam instance", e);
+        }
+        finally
+        {
+            cache.invalidate(cluster(inst.getApp()));
+        }
+    }
+
+    @Override
+    public void updateAll(List<PriamInstance> instances)
+    {
+        Set<String> clusters = new HashSet<String>();
+        for (PriamInstance inst : instances)
+            clusters.add(cluster(inst.getApp()));
+        try
+        {
+            dao.createInstances(instances);
+        }
+        catch (AmazonServiceException e)
+        {
+            throw new RuntimeException("Unable to update/create priam instances", e);
+        }
+        finally
+        {
+            for (String cluster : clusters)
+                cache.invalidate(cluster);
+        }
     }
 
     @Override
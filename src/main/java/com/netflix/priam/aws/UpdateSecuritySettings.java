@@ -1,7 +1,10 @@
 package com.netflix.priam.aws;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
@@ -35,9 +38,15 @@ public class UpdateSecuritySettings extends Task
     public static final String JOBNAME = "Update_SG";
     public static boolean firstTimeUpdated = false;
 
+    // the security group is described at least this often
+    private static final long MAX_RECONCILE_AGE = 30 * 60 * 1000;
+
     private static final Random ran = new Random();
     private final IMembership membership;
     private final IPriamInstanceFactory factory;
+    // instances the security group was last brought in line with
+    private Set<String> reconciled = Collections.emptySet();
+    private long reconciledAt;
 
     @Inject
     public UpdateSecuritySettings(IConfiguration config, IMembership membership, IPriamInstanceFactory factory)
@@ -51,46 +60,44 @@ public class UpdateSecuritySettings extends Task
      * Seeds nodes execute this at the specifed interval.
      * Other nodes run only on startup.
      * Seeds in cassandra are the first node in each Availablity Zone.
+     *
+     * The security group is only described when the set of instances changed
+     * since it was last reconciled, or when that is older than
+     * {@link #MAX_RECONCILE_AGE} in case it was edited by hand.
      */
     @Override
-    public void execute()
+    public synchronized void execute()
     {
-        // if seed dont execute.
-        List<String> acls = membership.listACL();
-        List<PriamInstance> instances = factory.getAllIds(config.getAppName());
+        Set<String> ranges = new HashSet<String>();
+        for (PriamInstance instance : factory.getAllIds(config.getAppName()))
+            ranges.add(instance.getHostIP() + "/32");
+        if (ranges.equals(reconciled) && System.currentTimeMillis() - reconciledAt < MAX_RECONCILE_AGE)
+            return;
 
+        Set<String> acls = new HashSet<String>(membership.listACL());
         // iterate to add...
         List<String> add = Lists.newArrayList();
-        for (PriamInstance instance : factory.getAllIds(config.getAppName()))
-        {
-            String range = instance.getHostIP() + "/32";
+        for (String range : ranges)
             if (!acls.contains(range))
                 add.add(range);
-        }
         if (add.size() > 0)
         {
             membership.addACL(add, 7103, 7103);
             firstTimeUpdated = true;
         }
 
-        // just iterate to generate ranges.
-        List<String> currentRanges = Lists.newArrayList();
-        for (PriamInstance instance : instances)
-        {
-            String range = instance.getHostIP() + "/32";
-            currentRanges.add(range);
-        }
-
         // iterate to remove...
         List<String> remove = Lists.newArrayList();
         for (String acl : acls)
-            if (!currentRanges.contains(acl)) // if not found then remove....
+            if (!ranges.contains(acl)) // if not found then remove....
                 remove.add(acl);
         if (remove.size() > 0)
         {
             membership.removeACL(remove, 7103, 7103);
             firstTimeUpdated = true;
         }
+        reconciled = ranges;
+        reconciledAt = System.currentTimeMillis();
     }
 
     public static TaskTimer getTimer(InstanceIdentity id)
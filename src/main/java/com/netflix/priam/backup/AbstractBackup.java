@@ -2,14 +2,27 @@ package com.netflix.priam.backup;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.MetricRegistry;
 import com.netflix.priam.scheduler.Task;
+import com.netflix.priam.utils.RetryBudget;
 import com.netflix.priam.utils.RetryableCallable;
 
 /**
@@ -17,6 +30,16 @@ import com.netflix.priam.utils.RetryableCallable;
  */
 public abstract class AbstractBackup extends Task
 {
+    /**
+     * Whole file retries. Failed parts are already retried and resubmitted by
+     * the file system, this only covers failures to start or complete.
+     */
+    private static final int UPLOAD_RETRIES = 3;
+    private static final long UPLOAD_RETRY_WAIT = 1000;
+
+    private static final Counter reusedFiles = MetricRegistry.getInstance().counter("backup.reused_files");
+    private static final Counter reusedBytes = MetricRegistry.getInstance().counter("backup.reused_bytes");
+
     protected final List<String> FILTER_KEYSPACE = Arrays.asList("OpsCenter");
     protected final List<String> FILTER_COLUMN_FAMILY = Arrays.asList("LocationInfo");
     protected final Provider<AbstractBackupPath> pathFactory;
@@ -30,6 +53,73 @@ public abstract class AbstractBackup extends Task
         this.pathFactory = pathFactory;
     }
 
+    /**
+     * Upload the files of every keyspace of every data dir. The data dirs of
+     * each device are read by a thread of their own, so disks are read in
+     * parallel without seeking against each other.
+     * 
+     * @param backupDir
+     *            the dir to upload of a keyspace dir
+     */
+    protected List<AbstractBackupPath> uploadDataDirs(final Function<File, File> backupDir, final BackupFileType type, final SnapshotIndex index) throws Exception
+    {
+        Collection<List<File>> devices = DataDirectories.byDevice(config.getDataFileLocations());
+        if (devices.size() == 1)
+            return uploadDevice(devices.iterator().next(), backupDir, type, index);
+        List<AbstractBackupPath> bps = Lists.newArrayList();
+        List<Future<List<AbstractBackupPath>>> uploads = Lists.newArrayList();
+        ExecutorService pool = Executors.newFixedThreadPool(devices.size(), new NamedThreadFactory(getName() + "-device"));
+        try
+        {
+            for (final List<File> dataDirs : devices)
+            {
+                uploads.add(pool.submit(new Callable<List<AbstractBackupPath>>()
+                {
+                    public List<AbstractBackupPath> call() throws Exception
+                    {
+                        return uploadDevice(dataDirs, backupDir, type, index);
+                    }
+                }));
+            }
+            for (Future<List<AbstractBackupPath>> upload : uploads)
+            {
+                try
+                {
+                    bps.addAll(upload.get());
+                }
+                catch (ExecutionException e)
+                {
+                    Throwables.propagateIfPossible(e.getCause(), Exception.class);
+                    throw e;
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        return bps;
+    }
+
+    private List<AbstractBackupPath> uploadDevice(List<File> dataDirs, Function<File, File> backupDir, BackupFileType type, SnapshotIndex index) throws Exception
+    {
+        List<AbstractBackupPath> bps = Lists.newArrayList();
+        for (File dataDir : dataDirs)
+        {
+            File[] keyspaceDirs = dataDir.listFiles();
+            if (keyspaceDirs == null)
+                continue;
+            for (File keyspaceDir : keyspaceDirs)
+            {
+                File dir = backupDir.apply(keyspaceDir);
+                if (dir == null || !isValidBackupDir(keyspaceDir, dir))
+                    continue;
+                bps.addAll(upload(dir, type, index));
+            }
+        }
+        return bps;
+    }
+
     /**
      * Upload files in the specified dir. Does not delete the file in case of
      * error
@@ -42,6 +132,18 @@ public abstract class AbstractBackup extends Task
      * @throws Exception
      */
     protected List<AbstractBackupPath> upload(File parent, BackupFileType type) throws Exception
+    {
+        return upload(parent, type, null);
+    }
+
+    /**
+     * Upload the files in the dir which are not in the index, the others are
+     * returned as they were uploaded before.
+     * 
+     * @param index
+     *            files uploaded by the last snapshot, null to upload all
+     */
+    protected List<AbstractBackupPath> upload(File parent, BackupFileType type, SnapshotIndex index) throws Exception
     {
         List<AbstractBackupPath> bps = Lists.newArrayList();
         for (File file : parent.listFiles())
@@ -51,8 +153,22 @@ public abstract class AbstractBackup extends Task
             String[] cfPrefix = bp.fileName.split("-");
             if (cfPrefix.length > 1 && FILTER_COLUMN_FAMILY.contains(cfPrefix[0]))
                 continue;
-            upload(bp);
-            bps.add(bp);
+            String uploaded = index == null ? null : index.uploaded(bp.keyspace, file);
+            if (uploaded == null)
+            {
+                upload(bp);
+                bps.add(bp);
+            }
+            else
+            {
+                AbstractBackupPath previous = pathFactory.get();
+                previous.parseRemote(uploaded);
+                bps.add(previous);
+                reusedFiles.inc();
+                reusedBytes.inc(file.length());
+            }
+            if (index != null)
+                index.add(bp.keyspace, file, uploaded == null ? bp.getRemotePath() : uploaded);
             file.delete();
         }
         return bps;
@@ -63,7 +179,7 @@ public abstract class AbstractBackup extends Task
      */
     protected void upload(final AbstractBackupPath bp) throws Exception
     {
-        new RetryableCallable<Void>()
+        new RetryableCallable<Void>(UPLOAD_RETRIES, UPLOAD_RETRY_WAIT, RetryBudget.NODE)
         {
             @Override
             public Void retriableCall() throws Exception
@@ -10,7 +10,6 @@ import java.util.Date;
 import java.util.regex.Pattern;
 
 import org.apache.cassandra.io.util.FileUtils;
-import org.apache.cassandra.io.util.RandomAccessReader;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.EqualsBuilder;
 
@@ -56,7 +55,7 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
     public InputStream localReader() throws IOException
     {
         assert backupFile != null;
-        return new RafInputStream(RandomAccessReader.open(backupFile, true));
+        return new BackupFileReader(backupFile, config);
     }
 
     public void parseLocal(File file, BackupFileType type) throws ParseException
@@ -64,7 +63,7 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
         // TODO cleanup.
         this.backupFile = file;
 
-        String rpath = new File(config.getDataFileLocation()).toURI().relativize(file.toURI()).getPath();
+        String rpath = dataDir(file).toURI().relativize(file.toURI()).getPath();
         String[] elements = rpath.split("" + PATH_SEP);
         this.clusterName = config.getAppName();
         this.baseDir = config.getBackupLocation();
@@ -81,6 +80,22 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
         this.size = file.length();
     }
 
+    /**
+     * @return the data dir the file is in, the remote path is relative to it
+     *         so it does not depend on the disk
+     */
+    private File dataDir(File file)
+    {
+        String path = file.getAbsoluteFile().toURI().getPath();
+        for (String location : config.getDataFileLocations())
+        {
+            File dir = new File(location);
+            if (path.startsWith(dir.getAbsoluteFile().toURI().getPath()))
+                return dir;
+        }
+        return new File(config.getDataFileLocation());
+    }
+
     /**
      * Given a date range, find a common string prefix Eg: 20120212, 20120213 =>
      * 2012021
@@ -101,7 +116,10 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
     public File newRestoreFile()
     {
         StringBuffer buff = new StringBuffer();
-        buff.append(config.getDataFileLocation()).append(PATH_SEP);
+        if (type == BackupFileType.META)
+            buff.append(config.getDataFileLocation()).append(PATH_SEP);
+        else
+            buff.append(DataDirectories.restoreLocation(config.getDataFileLocations(), keyspace, fileName).getPath()).append(PATH_SEP);
         if (type != BackupFileType.META)
             buff.append(keyspace).append(PATH_SEP);
         buff.append(fileName);
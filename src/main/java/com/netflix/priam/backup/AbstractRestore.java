@@ -3,6 +3,8 @@ package com.netflix.priam.backup;
 import com.google.inject.Inject;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 import com.netflix.priam.scheduler.Task;
 import com.netflix.priam.utils.FifoQueue;
 import com.netflix.priam.utils.RetryableCallable;
@@ -16,10 +18,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.math.BigInteger;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractRestore extends Task
 {
@@ -28,7 +34,12 @@ public abstract class AbstractRestore extends Task
     // keeps track of the last few download which was executed.
     // TODO fix the magic number of 100 => the idea of 100 is 10% of 1000 files limit per s3 query
     protected static final FifoQueue<AbstractBackupPath> tracker = new FifoQueue<AbstractBackupPath>(100);
+    private static final Timer queueWait = MetricRegistry.getInstance().timer("restore.queue_wait");
+    // per file, including retries
+    private static final Timer downloads = MetricRegistry.getInstance().timer("restore.download");
     private AtomicInteger count = new AtomicInteger();
+    // bytes restored from each region since the last logBandwidth
+    private final ConcurrentMap<String, AtomicLong> restored = new ConcurrentHashMap<String, AtomicLong>();
     
     protected IConfiguration config;
     protected ThreadPoolExecutor executor;
@@ -54,6 +65,15 @@ public abstract class AbstractRestore extends Task
     }
 
     protected void download(Iterator<AbstractBackupPath> fsIterator, BackupFileType filter) throws Exception
+    {
+        submit(fsIterator, filter);
+        waitToComplete();
+    }
+
+    /**
+     * Queue the downloads of the files of the type, without waiting for them
+     */
+    protected void submit(Iterator<AbstractBackupPath> fsIterator, BackupFileType filter) throws Exception
     {
         while (fsIterator.hasNext())
         {
@@ -63,7 +83,6 @@ public abstract class AbstractRestore extends Task
             if (temp.getType() == filter)
                 download(temp, temp.newRestoreFile());
         }
-        waitToComplete();
     }
 
     /**
@@ -74,13 +93,30 @@ public abstract class AbstractRestore extends Task
         if (config.getRestoreKeySpaces().size() != 0 && (!config.getRestoreKeySpaces().contains(path.keyspace) || path.keyspace.equals(SYSTEM_KEYSPACE)))
             return;
         count.incrementAndGet();
+        final Timer.Context waiting = queueWait.time();
         executor.submit(new RetryableCallable<Integer>()
         {
+            @Override
+            public Integer call() throws Exception
+            {
+                waiting.stop();
+                Timer.Context timer = downloads.time();
+                try
+                {
+                    return super.call();
+                }
+                finally
+                {
+                    timer.stop();
+                }
+            }
+
             @Override
             public Integer retriableCall() throws Exception
             {
                 logger.info("Downloading file: " + path);
                 fs.download(path, new FileOutputStream(restoreLocation));
+                restored(path.getRegion(), restoreLocation.length());
                 tracker.adjustAndAdd(path);
                 // TODO: fix me -> if there is exception the why hang?
                 return count.decrementAndGet();
@@ -88,6 +124,33 @@ public abstract class AbstractRestore extends Task
         });
     }
     
+    private void restored(String region, long bytes)
+    {
+        AtomicLong total = restored.get(region);
+        if (total == null)
+        {
+            restored.putIfAbsent(region, new AtomicLong());
+            total = restored.get(region);
+        }
+        total.addAndGet(bytes);
+        MetricRegistry.getInstance().meter("restore.bytes." + region).mark(bytes);
+    }
+
+    /**
+     * Log the bytes restored from each region and the bandwidth they took
+     * since the start, and start counting again.
+     */
+    protected void logBandwidth(long start)
+    {
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        for (Map.Entry<String, AtomicLong> entry : restored.entrySet())
+        {
+            double mb = entry.getValue().get() / 1024.0 / 1024.0;
+            logger.info(String.format("Restored %.1f MB from %s in %.0f s (%.2f MB/s)", mb, entry.getKey(), seconds, mb / seconds));
+        }
+        restored.clear();
+    }
+
     protected void waitToComplete()
     {
         while (count.get() != 0)
@@ -0,0 +1,231 @@
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.cassandra.utils.CLibrary;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.utils.Throttle;
+
+/**
+ * Reads a file to back up in large sequential reads, instead of the small
+ * reads the compressor asks for. With
+ * {@link IConfiguration#isBackupSkipPageCache()}, each range read is dropped
+ * from the page cache so backups do not push out other pages. Snapshot files
+ * are links to live sstables though, the pages Cassandra had cached for them
+ * are dropped as well, which is why it is off by default.
+ *
+ * All readers share one rate limit ({@link IConfiguration#getBackupReadThroughput()}),
+ * it bounds the disk bandwidth backups take whatever the number of uploads.
+ *
+ * Mapped ({@link IConfiguration#isBackupReadMapped()}), the file is mapped a
+ * window at a time and copied from the mapping, without a read call per
+ * buffer. A window is unmapped as soon as it is consumed rather than when
+ * the garbage collector gets to it.
+ */
+public class BackupFileReader extends InputStream
+{
+    private static final Logger logger = LoggerFactory.getLogger(BackupFileReader.class);
+    public static final int READ_SIZE = 4 * 1024 * 1024;
+    public static final int MAP_SIZE = 32 * 1024 * 1024;
+    private static Throttle throttle;
+    private static Method cleaner;
+    private static Method clean;
+
+    private final FileInputStream in;
+    private final FileChannel channel;
+    private final boolean mapped;
+    private final Throttle limit;
+    private ByteBuffer buffer;
+    private int fd = -1;
+    private long position;
+    private boolean eof;
+
+    static
+    {
+        try
+        {
+            cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+        }
+        catch (Exception e)
+        {
+            logger.debug("Mappings cannot be released early: " + e.getMessage());
+        }
+    }
+
+    public BackupFileReader(File file, IConfiguration config) throws IOException
+    {
+        this(file, config, config.isBackupReadMapped());
+    }
+
+    public BackupFileReader(File file, IConfiguration config, boolean mapped) throws IOException
+    {
+        this.mapped = mapped;
+        this.in = new FileInputStream(file);
+        this.channel = in.getChannel();
+        this.limit = throttle(config);
+        if (config.isBackupSkipPageCache())
+        {
+            try
+            {
+                fd = CLibrary.getfd(in.getFD());
+            }
+            catch (NoClassDefFoundError e)
+            {
+                logger.debug("JNA is not available, keeping backup reads in the page cache");
+            }
+        }
+        buffer = mapped ? ByteBuffer.allocate(0) : ByteBuffer.allocate(READ_SIZE);
+        buffer.flip();
+    }
+
+    private static synchronized Throttle throttle(final IConfiguration config)
+    {
+        if (throttle == null)
+        {
+            throttle = new Throttle(BackupFileReader.class.getCanonicalName(), new Throttle.ThroughputFunction()
+            {
+                public int targetThroughput()
+                {
+                    int limit = config.getBackupReadThroughput();
+                    if (limit < 1)
+                        return 0;
+                    return (limit * 1024 * 1024) / 1000;
+                }
+            });
+        }
+        return throttle;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException
+    {
+        if (!buffer.hasRemaining() && !fill())
+            return -1;
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(bytes, off, count);
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (!buffer.hasRemaining() && !fill())
+            return -1;
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int available()
+    {
+        return buffer.remaining();
+    }
+
+    /**
+     * @return false at the end of the file
+     */
+    private boolean fill() throws IOException
+    {
+        if (eof)
+            return false;
+        if (mapped)
+            map();
+        else
+            readBuffer();
+        int count = buffer.remaining();
+        if (count == 0)
+            return false;
+        // one reader sleeping holds the others back, they share the limit
+        synchronized (limit)
+        {
+            limit.throttleDelta(count);
+        }
+        // mapped pages cannot be dropped until they are unmapped
+        if (!mapped)
+            skipCache(position, count);
+        position += count;
+        return true;
+    }
+
+    private void readBuffer() throws IOException
+    {
+        buffer.clear();
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private void map() throws IOException
+    {
+        unmap();
+        long size = Math.min(MAP_SIZE, channel.size() - position);
+        if (size <= 0)
+        {
+            eof = true;
+            buffer = ByteBuffer.allocate(0);
+            return;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    private void unmap()
+    {
+        if (!(buffer instanceof MappedByteBuffer) || cleaner == null)
+            return;
+        int length = buffer.capacity();
+        try
+        {
+            Object bufferCleaner = cleaner.invoke(buffer);
+            if (bufferCleaner != null)
+                clean.invoke(bufferCleaner);
+        }
+        catch (Exception e)
+        {
+            // left to the garbage collector
+            cleaner = null;
+            return;
+        }
+        buffer = ByteBuffer.allocate(0);
+        skipCache(position - length, length);
+    }
+
+    private void skipCache(long offset, int length)
+    {
+        if (fd < 0)
+            return;
+        try
+        {
+            CLibrary.trySkipCache(fd, offset, length);
+        }
+        catch (RuntimeException e)
+        {
+            logger.debug("Unable to drop backup reads from the page cache: " + e.getMessage());
+            fd = -1;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        unmap();
+        buffer = ByteBuffer.allocate(0);
+        IOUtils.closeQuietly(in);
+    }
+}
@@ -0,0 +1,168 @@
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+/**
+ * Placement of files over Cassandra's data directories, when it has several
+ * (JBOD). Backup paths do not name the directory, a file restores to
+ * whichever directory has room.
+ */
+public class DataDirectories
+{
+    private static final Logger logger = LoggerFactory.getLogger(DataDirectories.class);
+    private static final File MOUNTS = new File("/proc/mounts");
+    private static final Random random = new Random();
+    // directory picked for each sstable of the restore under way, its components have to stay together
+    private static final ConcurrentMap<String, File> placements = new ConcurrentHashMap<String, File>();
+
+    private DataDirectories()
+    {
+    }
+
+    /**
+     * @return the data directories grouped by the device they are on, every
+     *         directory on its own if the mounts cannot be read
+     */
+    public static Collection<List<File>> byDevice(List<String> locations)
+    {
+        List<String[]> mounts = mounts();
+        Map<String, List<File>> devices = new LinkedHashMap<String, List<File>>();
+        for (String location : locations)
+        {
+            File dir = new File(location).getAbsoluteFile();
+            String device = device(dir, mounts);
+            if (!devices.containsKey(device))
+                devices.put(device, Lists.<File> newArrayList());
+            devices.get(device).add(dir);
+        }
+        return devices.values();
+    }
+
+    private static String device(File dir, List<String[]> mounts)
+    {
+        String path;
+        try
+        {
+            path = dir.getCanonicalPath();
+        }
+        catch (IOException e)
+        {
+            path = dir.getPath();
+        }
+        String device = path;
+        int longest = -1;
+        for (String[] mount : mounts)
+        {
+            String point = mount[1];
+            boolean under = path.equals(point) || path.startsWith(point.endsWith("/") ? point : point + "/");
+            if (under && point.length() > longest)
+            {
+                longest = point.length();
+                device = mount[0];
+            }
+        }
+        return device;
+    }
+
+    private static List<String[]> mounts()
+    {
+        List<String[]> mounts = Lists.newArrayList();
+        if (!MOUNTS.canRead())
+            return mounts;
+        try
+        {
+            for (String line : Files.readLines(MOUNTS, Charsets.UTF_8))
+            {
+                String[] fields = line.split(" ");
+                if (fields.length > 1)
+                    mounts.add(new String[] { fields[0], fields[1] });
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warn("Unable to read " + MOUNTS + ", treating every data directory as a device: " + e.getMessage());
+        }
+        return mounts;
+    }
+
+    /**
+     * @return the data directory the file of the keyspace is restored to.
+     *         Sstables are spread in proportion to the free space of each
+     *         directory; all components of one land in the same directory.
+     */
+    public static File restoreLocation(List<String> locations, String keyspace, String fileName)
+    {
+        if (locations.size() == 1)
+            return new File(locations.get(0));
+        String sstable = keyspace + "/" + sstable(fileName);
+        File placed = placements.get(sstable);
+        if (placed != null)
+            return placed;
+        placements.putIfAbsent(sstable, pick(locations));
+        return placements.get(sstable);
+    }
+
+    /**
+     * Forget where the sstables of the last restore went, at the start and
+     * end of a restore.
+     */
+    public static void clearPlacements()
+    {
+        placements.clear();
+    }
+
+    static int placed()
+    {
+        return placements.size();
+    }
+
+    /**
+     * @return the name without its component, Standard1-hc-5 for
+     *         Standard1-hc-5-Data.db
+     */
+    static String sstable(String fileName)
+    {
+        int dash = fileName.lastIndexOf('-');
+        return dash < 0 ? fileName : fileName.substring(0, dash);
+    }
+
+    private static File pick(List<String> locations)
+    {
+        long total = 0;
+        long[] free = new long[locations.size()];
+        for (int i = 0; i < free.length; i++)
+        {
+            File dir = new File(locations.get(i));
+            dir.mkdirs();
+            free[i] = Math.max(dir.getUsableSpace(), 0);
+            total += free[i];
+        }
+        // weighed rather than the emptiest, concurrent downloads do not show in the free space yet
+        if (total > 0)
+        {
+            long point = (long) (random.nextDouble() * total);
+            for (int i = 0; i < free.length; i++)
+            {
+                if (point < free[i])
+                    return new File(locations.get(i));
+                point -= free[i];
+            }
+        }
+        return new File(locations.get(random.nextInt(locations.size())));
+    }
+}
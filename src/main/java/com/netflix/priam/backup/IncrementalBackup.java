@@ -5,6 +5,7 @@ import java.io.File;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -31,15 +32,14 @@ public class IncrementalBackup extends AbstractBackup
     @Override
     public void execute() throws Exception
     {
-        File dataDir = new File(config.getDataFileLocation());
-        logger.debug("Scanning for backup in: " + dataDir.getAbsolutePath());
-        for (File keyspaceDir : dataDir.listFiles())
+        logger.debug("Scanning for backup in: " + config.getDataFileLocations());
+        uploadDataDirs(new Function<File, File>()
         {
-            File backupDir = new File(keyspaceDir, "backups");
-            if (!isValidBackupDir(keyspaceDir, backupDir))
-                continue;
-            upload(backupDir, BackupFileType.SST);
-        }
+            public File apply(File keyspaceDir)
+            {
+                return new File(keyspaceDir, "backups");
+            }
+        }, BackupFileType.SST, null);
     }
 
     /**
@@ -47,7 +47,7 @@ public class IncrementalBackup extends AbstractBackup
      */
     public static TaskTimer getTimer()
     {
-        return new SimpleTimer(JOBNAME, 10L * 1000);
+        return SimpleTimer.fixedDelay(JOBNAME, 10L * 1000);
     }
 
     @Override
@@ -90,7 +90,7 @@ public class IncrementalRestore extends AbstractRestore
      */
     public static TaskTimer getTimer()
     {
-        return new SimpleTimer(JOBNAME, 20L * 1000);
+        return SimpleTimer.fixedDelay(JOBNAME, 20L * 1000);
     }
 
     @Override
@@ -1,6 +1,6 @@
 package com.netflix.priam.backup;
 
-import com.google.common.collect.Iterators;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -13,25 +13,39 @@ import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.RetryableCallable;
 import com.netflix.priam.utils.Sleeper;
 import com.netflix.priam.utils.SystemUtils;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Collections;
+import java.util.Calendar;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Main class for restoring data from backup
+ *
+ * The backup is listed a day per request, several days at a time and newest
+ * first. Incrementals are downloaded as their day is listed, the listing
+ * stops at the day of the latest snapshot, whose meta file is fetched at
+ * once. Round trips to a backup in another region are then paid mostly in
+ * parallel rather than one after the other.
  */
 @Singleton
 public class Restore extends AbstractRestore
 {
     public static final String JOBNAME = "AUTO_RESTORE_JOB";
     private static final Logger logger = LoggerFactory.getLogger(Restore.class);
+    private static final int LIST_THREADS = 8;
     @Inject
     private Provider<AbstractBackupPath> pathProvider;
     @Inject
@@ -96,37 +110,117 @@ public class Restore extends AbstractRestore
             SystemUtils.stopCassandra(config);
 
         // Cleanup local data
-        SystemUtils.cleanupDir(config.getDataFileLocation(), config.getRestoreKeySpaces());
+        for (String location : config.getDataFileLocations())
+            cleanup(location);
+        DataDirectories.clearPlacements();
 
-        // Try and read the Meta file.
-        List<AbstractBackupPath> metas = Lists.newArrayList();
+        long start = System.currentTimeMillis();
         String prefix = "";
         if (StringUtils.isNotBlank(config.getRestorePrefix()))
             prefix = config.getRestorePrefix();
         else
             prefix = config.getBackupPrefix();
         logger.info("Looking for meta file here:  " + prefix);
-        Iterator<AbstractBackupPath> backupfiles = fs.list(prefix, startTime, endTime);
-        while (backupfiles.hasNext())
+        ExecutorService listing = Executors.newFixedThreadPool(LIST_THREADS, new NamedThreadFactory("RestoreListing"));
+        AbstractBackupPath meta = null;
+        try
         {
-            AbstractBackupPath path = backupfiles.next();
-            if (path.type == BackupFileType.META)
-                metas.add(path);
+            for (Future<List<AbstractBackupPath>> day : listDays(listing, prefix, startTime, endTime))
+            {
+                List<AbstractBackupPath> files = await(day);
+                for (AbstractBackupPath path : files)
+                {
+                    if (path.type == BackupFileType.META && (meta == null || path.compareTo(meta) > 0))
+                        meta = path;
+                }
+                // Download incrementals (SST) newer than the snapshot while older days are listed
+                List<AbstractBackupPath> incrementals = Lists.newArrayList();
+                for (AbstractBackupPath path : files)
+                {
+                    if (meta == null || !path.time.before(meta.time))
+                        incrementals.add(path);
+                }
+                submit(incrementals.iterator(), BackupFileType.SST);
+                if (meta != null)
+                    break;
+            }
         }
-        assert metas.size() != 0 : "[cass_backup] No snapshots found, Restore Failed.";
-
-        Collections.sort(metas);
-        AbstractBackupPath meta = Iterators.getLast(metas.iterator());
+        finally
+        {
+            listing.shutdownNow();
+        }
+        assert meta != null : "[cass_backup] No snapshots found, Restore Failed.";
         logger.info("Meta file for restore " + meta.getRemotePath());
 
         // Download snapshot which is listed in the meta file.
         List<AbstractBackupPath> snapshots = metaData.get(meta);
         download(snapshots.iterator(), BackupFileType.SNAP);
+        DataDirectories.clearPlacements();
+        logBandwidth(start);
+    }
+
+    /**
+     * List the backup a day at a time, the days can be listed in parallel.
+     *
+     * @return the listing of each day in the range, newest first
+     */
+    private List<Future<List<AbstractBackupPath>>> listDays(ExecutorService listing, final String prefix, Date startTime, Date endTime)
+    {
+        List<Future<List<AbstractBackupPath>>> days = Lists.newArrayList();
+        Calendar day = Calendar.getInstance(pathProvider.get().getFormat().getTimeZone());
+        day.setTime(endTime);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        Date till = endTime;
+        while (till.after(startTime))
+        {
+            final Date from = day.getTime().after(startTime) ? day.getTime() : startTime;
+            final Date to = till;
+            if (from.before(to))
+            {
+                days.add(listing.submit(new Callable<List<AbstractBackupPath>>()
+                {
+                    public List<AbstractBackupPath> call() throws Exception
+                    {
+                        return Lists.newArrayList(fs.list(prefix, from, to));
+                    }
+                }));
+            }
+            till = from;
+            day.add(Calendar.DAY_OF_MONTH, -1);
+        }
+        return days;
+    }
 
-        logger.info("Downloading incrementals");
-        // Download incrementals (SST).
-        Iterator<AbstractBackupPath> incrementals = fs.list(prefix, meta.time, endTime);
-        download(incrementals, BackupFileType.SST);
+    private static List<AbstractBackupPath> await(Future<List<AbstractBackupPath>> day) throws Exception
+    {
+        try
+        {
+            return day.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Remove the keyspaces being restored from a data dir, a keyspace need
+     * not have a dir on every disk
+     */
+    private void cleanup(String location) throws IOException
+    {
+        List<String> keyspaces = Lists.newArrayList();
+        for (String keyspace : config.getRestoreKeySpaces())
+        {
+            if (new File(location, keyspace).isDirectory())
+                keyspaces.add(keyspace);
+        }
+        if (config.getRestoreKeySpaces().isEmpty() || !keyspaces.isEmpty())
+            SystemUtils.cleanupDir(location, keyspaces);
     }
 
     public static TaskTimer getTimer()
@@ -1,21 +1,31 @@
 package com.netflix.priam.backup;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Function;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.metrics.Meter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 import com.netflix.priam.scheduler.CronTimer;
+import com.netflix.priam.scheduler.Operation;
+import com.netflix.priam.scheduler.OperationManager;
 import com.netflix.priam.scheduler.TaskTimer;
+import com.netflix.priam.utils.JMXConnectionManager;
 import com.netflix.priam.utils.JMXNodeTool;
 import com.netflix.priam.utils.RetryableCallable;
 
@@ -26,42 +36,91 @@ import com.netflix.priam.utils.RetryableCallable;
 public class SnapshotBackup extends AbstractBackup
 {
     public static String JOBNAME = "SnapshotBackup";
+    private static final long DAY = 24L * 60 * 60 * 1000;
     
     private static final Logger logger = LoggerFactory.getLogger(SnapshotBackup.class);
+    // minutes in a day
+    private static final int MAX_JITTER = 24 * 60;
+    private static final Timer uploads = MetricRegistry.getInstance().timer("s3.upload");
+    private static final Meter uploadBytes = MetricRegistry.getInstance().meter("s3.upload_bytes");
     private final MetaData metaData;
+    private final JMXConnectionManager jmx;
+    private final OperationManager operations;
 
     @Inject
-    public SnapshotBackup(IConfiguration config, IBackupFileSystem fs, Provider<AbstractBackupPath> pathFactory, MetaData metaData)
+    public SnapshotBackup(IConfiguration config, IBackupFileSystem fs, Provider<AbstractBackupPath> pathFactory, MetaData metaData, JMXConnectionManager jmx, OperationManager operations)
     {
         super(config, fs, pathFactory);
         this.metaData = metaData;
+        this.jmx = jmx;
+        this.operations = operations;
+    }
+
+    /**
+     * A snapshot as an admin operation. Scheduled and API snapshots both run
+     * as the {@link #JOBNAME} operation, so they never overlap: they would
+     * share the snapshot name within a minute and the snapshot index.
+     */
+    public Operation operation()
+    {
+        return new Operation(JOBNAME)
+        {
+            // uploads before the snapshot started are not its progress
+            private final long filesBefore = uploads.getCount();
+            private final long bytesBefore = uploadBytes.getCount();
+
+            @Override
+            public void run() throws Exception
+            {
+                snapshot();
+            }
+
+            @Override
+            public JSONObject progress() throws JSONException
+            {
+                JSONObject object = new JSONObject();
+                object.put("files_uploaded", uploads.getCount() - filesBefore);
+                object.put("bytes_uploaded", uploadBytes.getCount() - bytesBefore);
+                object.put("upload_rate_bytes_per_sec", uploadBytes.getOneMinuteRate());
+                return object;
+            }
+        };
     }
 
     @Override
     public void execute() throws Exception
+    {
+        try
+        {
+            operations.run(operation());
+        }
+        catch (RejectedExecutionException e)
+        {
+            logger.info("A snapshot started through the API is running, skipping this one: " + e.getMessage());
+        }
+    }
+
+    private void snapshot() throws Exception
     {
         Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-        String snapshotName = pathFactory.get().getFormat().format(cal.getTime());
+        final String snapshotName = pathFactory.get().getFormat().format(cal.getTime());
         try
         {
             logger.info("Starting snapshot " + snapshotName);
+            SnapshotIndex index = index(cal.getTimeInMillis());
             takeSnapshot(snapshotName);
-            // Collect all snapshot dir's under keyspace dir's
-            List<AbstractBackupPath> bps = Lists.newArrayList();
-            File dataDir = new File(config.getDataFileLocation());
-            File[] keyspaceDirs = dataDir.listFiles();
-            for (File keyspaceDir : keyspaceDirs)
+            // Collect the snapshot dirs under the keyspace dirs of every data dir
+            List<AbstractBackupPath> bps = uploadDataDirs(new Function<File, File>()
             {
-                File snpDir = new File(keyspaceDir, "snapshots");
-                if (!isValidBackupDir(keyspaceDir, snpDir))
-                    continue;
-                File snapshotDir = getValidSnapshot(keyspaceDir, snpDir, snapshotName);
-                // Add files to this dir
-                if (null != snapshotDir)
-                    bps.addAll(upload(snapshotDir, BackupFileType.SNAP));
-            }
-            // Upload meta file
+                public File apply(File keyspaceDir)
+                {
+                    return new File(new File(keyspaceDir, "snapshots"), snapshotName);
+                }
+            }, BackupFileType.SNAP, index);
+            // Upload meta file, it lists the files reused as well
             metaData.set(bps, snapshotName);
+            if (index != null)
+                index.save();
             logger.info("Snapshot upload complete for " + snapshotName);
         }
         finally
@@ -77,12 +136,22 @@ public class SnapshotBackup extends AbstractBackup
         }
     }
 
-    private File getValidSnapshot(File keyspaceDir, File snpDir, String snapshotName)
+    /**
+     * @return the files of the last snapshot, null to upload everything
+     */
+    private SnapshotIndex index(long now) throws IOException
     {
-        for (File snapshotDir : snpDir.listFiles())
-            if (snapshotDir.getName().matches(snapshotName))
-                return snapshotDir;
-        return null;
+        int days = config.getSnapshotRebaseInterval();
+        long interval = SnapshotIndex.rebaseInterval(days, config.getBackupRetentionDays());
+        // reused files expire before the snapshots listing them
+        if (interval < days * DAY)
+            logger.warn("Snapshot rebase interval of " + days + " days is over half the backup retention, using " + interval / DAY);
+        if (interval <= 0)
+            return null;
+        SnapshotIndex index = new SnapshotIndex(new File(config.getMaintenanceStateLocation(), "snapshot.index"), interval, now);
+        if (!index.isFull())
+            logger.info("Uploading only the files the last snapshot did not have");
+        return index;
     }
 
     private void takeSnapshot(final String snapshotName) throws Exception
@@ -91,8 +160,17 @@ public class SnapshotBackup extends AbstractBackup
         {
             public Void retriableCall() throws Exception
             {
-                JMXNodeTool nodetool = JMXNodeTool.instance(config);
-                nodetool.takeSnapshot(snapshotName);
+                JMXNodeTool nodetool = jmx.get();
+                try
+                {
+                    nodetool.takeSnapshot(snapshotName);
+                }
+                catch (IOException e)
+                {
+                    // reconnect on the next attempt
+                    jmx.invalidate(nodetool);
+                    throw e;
+                }
                 return null;
             }
         }.call();
@@ -104,8 +182,17 @@ public class SnapshotBackup extends AbstractBackup
         {
             public Void retriableCall() throws Exception
             {
-                JMXNodeTool nodetool = JMXNodeTool.instance(config);
-                nodetool.clearSnapshot(snapshotTag);
+                JMXNodeTool nodetool = jmx.get();
+                try
+                {
+                    nodetool.clearSnapshot(snapshotTag);
+                }
+                catch (IOException e)
+                {
+                    // reconnect on the next attempt
+                    jmx.invalidate(nodetool);
+                    throw e;
+                }
                 return null;
             }
         }.call();
@@ -120,6 +207,10 @@ public class SnapshotBackup extends AbstractBackup
     public static TaskTimer getTimer(IConfiguration config)
     {
         int hour = config.getBackupHour();
-        return new CronTimer(hour, 1, 0);
+        // a day or more would delay the snapshot into the next day's
+        int jitter = Math.max(0, Math.min(config.getBackupJitter(), MAX_JITTER - 1));
+        if (jitter != config.getBackupJitter())
+            logger.warn("Backup jitter of " + config.getBackupJitter() + " minutes is not within a day, using " + jitter);
+        return new CronTimer(hour, 1, 0).withJitter(jitter * 60L * 1000L);
     }
 }
@@ -0,0 +1,137 @@
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The files of the last snapshot uploaded, by keyspace and name, with the
+ * size and modification time they had and where they were uploaded. SSTable
+ * components never change once written, a file of the next snapshot matching
+ * all three is already in the backup and need not be uploaded again.
+ *
+ * Every rebase interval the index starts over, so that snapshot uploads
+ * everything and no snapshot refers to files older than the interval.
+ *
+ * A reused file expires with the snapshot which uploaded it, while the later
+ * snapshots listing it are kept longer. The interval is therefore capped at
+ * half the backup retention (see {@link #rebaseInterval(int, int)}): a
+ * snapshot can be restored for the retention less the interval after it was
+ * taken, at least half the retention. Older snapshots are still listed but
+ * miss the files they reused.
+ */
+public class SnapshotIndex
+{
+    private static final String FULL = "full";
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private final File file;
+    private final Properties previous = new Properties();
+    private final Properties current = new Properties();
+    private final boolean full;
+
+    /**
+     * @param rebaseInterval
+     *            ms after which the files of the last full snapshot are
+     *            uploaded again
+     */
+    public SnapshotIndex(File file, long rebaseInterval, long now) throws IOException
+    {
+        this.file = file;
+        if (file.isFile())
+        {
+            InputStream in = new FileInputStream(file);
+            try
+            {
+                previous.load(in);
+            }
+            finally
+            {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        String lastFull = previous.getProperty(FULL);
+        full = lastFull == null || now - Long.parseLong(lastFull) >= rebaseInterval;
+        if (full)
+            previous.clear();
+        current.setProperty(FULL, full ? Long.toString(now) : lastFull);
+    }
+
+    /**
+     * @param rebaseDays
+     *            days between full snapshots asked for
+     * @param retentionDays
+     *            days the backup keeps an object, 0 for ever
+     * @return ms between full snapshots, at most half the retention. 0 for a
+     *         full snapshot every time
+     */
+    public static long rebaseInterval(int rebaseDays, int retentionDays)
+    {
+        int days = rebaseDays;
+        if (retentionDays > 0)
+            days = Math.min(days, retentionDays / 2);
+        return Math.max(0, days) * DAY;
+    }
+
+    /**
+     * @return true if nothing is reused by this snapshot
+     */
+    public boolean isFull()
+    {
+        return full;
+    }
+
+    /**
+     * @return the remote path the file was uploaded to, null if it has to be
+     *         uploaded
+     */
+    public String uploaded(String keyspace, File file)
+    {
+        String entry = previous.getProperty(key(keyspace, file));
+        if (entry == null)
+            return null;
+        String[] fields = entry.split(",", 3);
+        if (Long.parseLong(fields[0]) != file.length() || Long.parseLong(fields[1]) != file.lastModified())
+            return null;
+        return fields[2];
+    }
+
+    public void add(String keyspace, File file, String remotePath)
+    {
+        current.setProperty(key(keyspace, file), file.length() + "," + file.lastModified() + "," + remotePath);
+    }
+
+    /**
+     * Keep the files of this snapshot for the next one, once it is complete.
+     */
+    public void save() throws IOException
+    {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try
+        {
+            current.store(out, null);
+            out.getFD().sync();
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+        if (!tmp.renameTo(file))
+        {
+            tmp.delete();
+            throw new IOException("Unable to move " + tmp + " to " + file);
+        }
+    }
+
+    private static String key(String keyspace, File file)
+    {
+        return keyspace + "/" + file.getName();
+    }
+}
@@ -1,39 +1,161 @@
 package com.netflix.priam.cassandra;
 
+import java.io.File;
 import java.net.InetAddress;
-import java.util.ArrayList;
+import java.net.UnknownHostException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.cassandra.locator.SeedProvider;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import com.netflix.priam.utils.SystemUtils;
 
+/**
+ * Seeds from Priam, refreshed in the background so gossip sees ring changes
+ * without restarting Cassandra. The seed file Priam writes (seeds_file
+ * parameter) is preferred as long as it is recent; otherwise the seeds are
+ * fetched from Priam's REST API with a short timeout. A failed refresh keeps
+ * the last good list.
+ */
 public class NFSeedProvider implements SeedProvider
 {
-    List<InetAddress> return_ = new ArrayList<InetAddress>();
+    private static final Logger logger = LoggerFactory.getLogger(NFSeedProvider.class);
+    public static final String SEEDS_FILE = "seeds_file";
+    public static final String SEEDS_URL = "seeds_url";
+    public static final String REFRESH_INTERVAL = "refresh_interval_ms";
+    public static final String TIMEOUT = "timeout_ms";
+    private static final String DEFAULT_SEEDS_URL = "http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_seeds";
+    private static final long DEFAULT_REFRESH_INTERVAL = 30 * 1000;
+    private static final int DEFAULT_TIMEOUT = 2000;
+    // Priam rewrites the file every 30 seconds, an older one means it is not running
+    private static final long MAX_FILE_AGE = 5 * 60 * 1000;
+
+    private final AtomicReference<List<InetAddress>> seeds = new AtomicReference<List<InetAddress>>();
+    private final File seedsFile;
+    private final String seedsUrl;
+    private final int timeout;
 
     /**
      * Populates args with list of seeds queried from Priam
      */
     public NFSeedProvider(Map<String, String> args)
+    {
+        this(args, true);
+    }
+
+    NFSeedProvider(Map<String, String> args, boolean scheduleRefresh)
+    {
+        Map<String, String> params = args == null ? Collections.<String, String> emptyMap() : args;
+        this.seedsFile = StringUtils.isBlank(params.get(SEEDS_FILE)) ? null : new File(params.get(SEEDS_FILE));
+        this.seedsUrl = StringUtils.defaultIfEmpty(params.get(SEEDS_URL), DEFAULT_SEEDS_URL);
+        this.timeout = params.containsKey(TIMEOUT) ? Integer.parseInt(params.get(TIMEOUT)) : DEFAULT_TIMEOUT;
+        long interval = params.containsKey(REFRESH_INTERVAL) ? Long.parseLong(params.get(REFRESH_INTERVAL)) : DEFAULT_REFRESH_INTERVAL;
+
+        refresh();
+        if (seeds.get() == null)
+            seeds.compareAndSet(null, loopback());
+        if (scheduleRefresh && interval > 0)
+        {
+            ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "NFSeedProvider-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            refresher.scheduleWithFixedDelay(new Runnable()
+            {
+                public void run()
+                {
+                    refresh();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public List<InetAddress> getSeeds()
+    {
+        return seeds.get();
+    }
+
+    /**
+     * Replace the seeds with the latest list from Priam, if one is available.
+     */
+    void refresh()
     {
         try
         {
-            String seeds = SystemUtils.getDataFromUrl("http://127.0.0.1:8080/Priam/REST/v1/cassconfig/get_seeds");
-            for (String seed : seeds.split(","))
-                return_.add(InetAddress.getByName(seed));
+            String latest = readSeedsFile();
+            if (latest == null)
+                latest = SystemUtils.getDataFromUrl(seedsUrl, timeout);
+            List<InetAddress> parsed = parse(latest);
+            // An empty list means Priam is waiting for the rac to fill up
+            if (parsed.isEmpty())
+                return;
+            List<InetAddress> previous = seeds.getAndSet(Collections.unmodifiableList(parsed));
+            if (!parsed.equals(previous))
+                logger.info("Seeds are now " + parsed);
         }
         catch (Exception e)
         {
-            e.printStackTrace();
+            logger.warn("Unable to refresh seeds, keeping " + seeds.get() + ": " + e.getMessage());
         }
+    }
 
+    private String readSeedsFile()
+    {
+        if (seedsFile == null || !seedsFile.isFile() || System.currentTimeMillis() - seedsFile.lastModified() > MAX_FILE_AGE)
+            return null;
+        try
+        {
+            return Files.toString(seedsFile, Charsets.UTF_8);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Unable to read " + seedsFile + ": " + e.getMessage());
+            return null;
+        }
     }
 
-    @Override
-    public List<InetAddress> getSeeds()
+    /**
+     * Nothing usable yet, seed ourselves as an empty answer from Priam always
+     * has.
+     */
+    private static List<InetAddress> loopback()
     {
-        return return_;
+        try
+        {
+            return Collections.singletonList(InetAddress.getByName(null));
+        }
+        catch (UnknownHostException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<InetAddress> parse(String seeds) throws UnknownHostException
+    {
+        List<InetAddress> addresses = Lists.newArrayList();
+        for (String seed : seeds.split(","))
+        {
+            if (StringUtils.isNotBlank(seed))
+                addresses.add(InetAddress.getByName(seed.trim()));
+        }
+        return addresses;
     }
 }
@@ -7,6 +7,9 @@ import java.util.Iterator;
 
 import org.apache.commons.io.IOUtils;
 import org.xerial.snappy.SnappyOutputStream;
+
+import com.netflix.priam.metrics.Histogram;
+import com.netflix.priam.metrics.MetricRegistry;
 /**
  * Byte iterator representing compressed data.
  * Uses snappy compression
@@ -18,7 +21,11 @@ public class ChunkedStream implements Iterator<byte[]>
     private SnappyOutputStream compress;
     private InputStream origin;
     private long chunkSize;
-    private static int BYTES_TO_READ = 2048;
+    private static int BYTES_TO_READ = 64 * 1024;
+    // compressed size as a percentage of the original, per stream
+    private static final Histogram compressionRatio = MetricRegistry.getInstance().histogram("compress.ratio_percent");
+    private long bytesRead;
+    private long bytesCompressed;
 
     public ChunkedStream(InputStream is, long chunkSize) throws IOException
     {
@@ -44,6 +51,7 @@ public class ChunkedStream implements Iterator<byte[]>
             while ((count = origin.read(data, 0, data.length)) != -1)
             {
                 compress.write(data, 0, count);
+                bytesRead += count;
                 if (bos.size() >= chunkSize)
                     return returnSafe();
             }
@@ -61,6 +69,9 @@ public class ChunkedStream implements Iterator<byte[]>
         compress.flush();
         byte[] return_ = bos.toByteArray();
         hasnext = false;
+        bytesCompressed += return_.length;
+        if (bytesRead > 0)
+            compressionRatio.update(bytesCompressed * 100 / bytesRead);
         IOUtils.closeQuietly(compress);
         IOUtils.closeQuietly(bos);
         try
@@ -79,6 +90,7 @@ public class ChunkedStream implements Iterator<byte[]>
     {
         byte[] return_ = bos.toByteArray();
         bos.reset();
+        bytesCompressed += return_.length;
         return return_;
     }
 
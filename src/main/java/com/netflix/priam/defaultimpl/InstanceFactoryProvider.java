@@ -0,0 +1,38 @@
+package com.netflix.priam.defaultimpl;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.identity.IPriamInstanceFactory;
+
+/**
+ * Provides the instance registry named by
+ * {@link IConfiguration#getInstanceFactoryName()}, SimpleDB unless configured
+ * otherwise. Resolved on first use, after the configuration is loaded.
+ */
+public class InstanceFactoryProvider implements Provider<IPriamInstanceFactory>
+{
+    private final IConfiguration config;
+    private final Injector injector;
+
+    @Inject
+    public InstanceFactoryProvider(IConfiguration config, Injector injector)
+    {
+        this.config = config;
+        this.injector = injector;
+    }
+
+    @Override
+    public IPriamInstanceFactory get()
+    {
+        try
+        {
+            return injector.getInstance(Class.forName(config.getInstanceFactoryName()).asSubclass(IPriamInstanceFactory.class));
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Unknown instance factory " + config.getInstanceFactoryName(), e);
+        }
+    }
+}
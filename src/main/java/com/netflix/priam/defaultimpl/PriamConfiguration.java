@@ -80,6 +80,23 @@ public class PriamConfiguration implements IConfiguration
     private static final String CONFIG_BACKUP_RACS = PRIAM_PRE + ".backup.racs";
     private static final String CONFIG_MULTITHREADED_COMPACTION = PRIAM_PRE + ".multithreaded.compaction";
     private static final String CONFIG_STREAMING_THROUGHPUT_MB = PRIAM_PRE + ".streaming.throughput.mb";
+    private static final String CONFIG_INSTANCE_CACHE_TTL = PRIAM_PRE + ".instance.cache.ttl";
+    private static final String CONFIG_SEED_FILE_LOCATION = PRIAM_PRE + ".seed.file";
+    private static final String CONFIG_INSTANCE_FACTORY = PRIAM_PRE + ".instance.factory";
+    private static final String CONFIG_INSTANCE_REGISTRY_LOCATION = PRIAM_PRE + ".instance.registry.location";
+    private static final String CONFIG_MAINTENANCE_CONCURRENCY = PRIAM_PRE + ".maintenance.concurrency";
+    private static final String CONFIG_MAINTENANCE_MAX_PENDING_COMPACTIONS = PRIAM_PRE + ".maintenance.max.pending.compactions";
+    private static final String CONFIG_MAINTENANCE_MAX_READ_LATENCY = PRIAM_PRE + ".maintenance.max.read.latency.ms";
+    private static final String CONFIG_MAINTENANCE_STATE_LOCATION = PRIAM_PRE + ".maintenance.state.location";
+    private static final String CONFIG_REPAIR_WINDOW = PRIAM_PRE + ".repair.window.days";
+    private static final String CONFIG_SNAPSHOT_REBASE_INTERVAL = PRIAM_PRE + ".snapshot.rebase.days";
+    private static final String CONFIG_BACKUP_READ_THROUGHPUT = PRIAM_PRE + ".backup.read.throughput.mb";
+    private static final String CONFIG_BACKUP_SKIP_PAGE_CACHE = PRIAM_PRE + ".backup.skip.page.cache";
+    private static final String CONFIG_BACKUP_READ_MAPPED = PRIAM_PRE + ".backup.read.mmap";
+    private static final String CONFIG_S3_BUFFER_BUDGET = PRIAM_PRE + ".s3.buffer.mb";
+    private static final String CONFIG_BACKUP_JITTER = PRIAM_PRE + ".backup.jitter.minutes";
+    private static final String CONFIG_RESTORE_RANGE_CONCURRENCY = PRIAM_PRE + ".restore.range.concurrency";
+    private static final String CONFIG_RESTORE_REMOTE_RANGE_CONCURRENCY = PRIAM_PRE + ".restore.range.concurrency.remote";
 
     // Amazon specific
     private static final String CONFIG_ASG_NAME = PRIAM_PRE + ".az.asgname";
@@ -99,6 +116,11 @@ public class PriamConfiguration implements IConfiguration
     private final String DEFAULT_CACHE_LOCATION = "/var/lib/cassandra/saved_caches";
     private final String DEFULT_ENDPOINT_SNITCH = "org.apache.cassandra.locator.Ec2Snitch";
     private final String DEFAULT_SEED_PROVIDER = "com.netflix.priam.cassandra.NFSeedProvider";
+    private final String DEFAULT_INSTANCE_FACTORY = "com.netflix.priam.aws.SDBInstanceFactory";
+    private final String DEFAULT_INSTANCE_REGISTRY_LOCATION = "/var/lib/priam/registry";
+    private final int DEFAULT_MAINTENANCE_CONCURRENCY = 2;
+    private final int DEFAULT_MAINTENANCE_MAX_PENDING_COMPACTIONS = 32;
+    private final String DEFAULT_MAINTENANCE_STATE_LOCATION = "/var/lib/priam/maintenance";
 
     // rpm based. Can be modified for tar based.
     private final String DEFAULT_CASS_HOME_DIR = "/etc/cassandra";
@@ -115,10 +137,16 @@ public class PriamConfiguration implements IConfiguration
     private final int DEFAULT_THRIFT_PORT = 9160;
     private final int DEFAULT_STORAGE_PORT = 7000;
     private final int DEFAULT_BACKUP_HOUR = 12;
-    private final int DEFAULT_BACKUP_THREADS = 2;
+    // request threads are cheap, memory is bounded by the S3 buffer budget
+    private final int DEFAULT_BACKUP_THREADS = 8;
     private final int DEFAULT_RESTORE_THREADS = 8;
+    // parts in flight per upload thread, one sent while the next is compressed
+    private final int DEFAULT_S3_BUFFERED_PARTS = 2;
+    private final int DEFAULT_RESTORE_RANGE_CONCURRENCY = 1;
+    private final int DEFAULT_RESTORE_REMOTE_RANGE_CONCURRENCY = 4;
     private final int DEFAULT_BACKUP_CHUNK_SIZE = 10;
     private final int DEFAULT_BACKUP_RETENTION = 0;
+    private final int DEFAULT_INSTANCE_CACHE_TTL = 30;
 
     private PriamProperties config;
     private static final Logger logger = LoggerFactory.getLogger(PriamConfiguration.class);
@@ -151,7 +179,8 @@ public class PriamConfiguration implements IConfiguration
         SystemUtils.createDirs(getBackupCommitLogLocation());
         SystemUtils.createDirs(getCommitLogLocation());
         SystemUtils.createDirs(getCacheLocation());
-        SystemUtils.createDirs(getDataFileLocation());
+        for (String location : getDataFileLocations())
+            SystemUtils.createDirs(location);
     }
 
     private void setupEnvVars()
@@ -315,7 +344,20 @@ public class PriamConfiguration implements IConfiguration
     @Override
     public String getDataFileLocation()
     {
-        return config.getProperty(CONFIG_DATA_LOCATION, DEFAULT_DATA_LOCATION);
+        return getDataFileLocations().get(0);
+    }
+
+    @Override
+    public List<String> getDataFileLocations()
+    {
+        // "/mnt/data1, /mnt/data2" is as good as "/mnt/data1,/mnt/data2"
+        List<String> locations = Lists.newArrayList();
+        for (String location : config.getList(CONFIG_DATA_LOCATION, DEFAULT_DATA_LOCATION))
+        {
+            if (StringUtils.isNotBlank(location))
+                locations.add(location.trim());
+        }
+        return locations.isEmpty() ? Lists.newArrayList(DEFAULT_DATA_LOCATION.split(",")) : locations;
     }
 
     @Override
@@ -593,4 +635,108 @@ public class PriamConfiguration implements IConfiguration
         return config.getBoolean(CONFIG_MULTITHREADED_COMPACTION, false);
     }
 
+    @Override
+    public int getInstanceCacheTTL()
+    {
+        return config.getInteger(CONFIG_INSTANCE_CACHE_TTL, DEFAULT_INSTANCE_CACHE_TTL);
+    }
+
+    @Override
+    public String getSeedFileLocation()
+    {
+        return config.getProperty(CONFIG_SEED_FILE_LOCATION, getCassHome() + "/conf/priam_seeds");
+    }
+
+    @Override
+    public String getInstanceFactoryName()
+    {
+        return config.getProperty(CONFIG_INSTANCE_FACTORY, DEFAULT_INSTANCE_FACTORY);
+    }
+
+    @Override
+    public String getInstanceRegistryLocation()
+    {
+        return config.getProperty(CONFIG_INSTANCE_REGISTRY_LOCATION, DEFAULT_INSTANCE_REGISTRY_LOCATION);
+    }
+
+    @Override
+    public int getMaintenanceConcurrency()
+    {
+        return config.getInteger(CONFIG_MAINTENANCE_CONCURRENCY, DEFAULT_MAINTENANCE_CONCURRENCY);
+    }
+
+    @Override
+    public int getMaintenanceMaxPendingCompactions()
+    {
+        return config.getInteger(CONFIG_MAINTENANCE_MAX_PENDING_COMPACTIONS, DEFAULT_MAINTENANCE_MAX_PENDING_COMPACTIONS);
+    }
+
+    @Override
+    public int getMaintenanceMaxReadLatency()
+    {
+        return config.getInteger(CONFIG_MAINTENANCE_MAX_READ_LATENCY, 0);
+    }
+
+    @Override
+    public String getMaintenanceStateLocation()
+    {
+        return config.getProperty(CONFIG_MAINTENANCE_STATE_LOCATION, DEFAULT_MAINTENANCE_STATE_LOCATION);
+    }
+
+    @Override
+    public int getRepairWindow()
+    {
+        return config.getInteger(CONFIG_REPAIR_WINDOW, 0);
+    }
+
+    @Override
+    public int getSnapshotRebaseInterval()
+    {
+        return config.getInteger(CONFIG_SNAPSHOT_REBASE_INTERVAL, 0);
+    }
+
+    @Override
+    public int getBackupReadThroughput()
+    {
+        return config.getInteger(CONFIG_BACKUP_READ_THROUGHPUT, 0);
+    }
+
+    @Override
+    public boolean isBackupSkipPageCache()
+    {
+        return config.getBoolean(CONFIG_BACKUP_SKIP_PAGE_CACHE, false);
+    }
+
+    @Override
+    public boolean isBackupReadMapped()
+    {
+        return config.getBoolean(CONFIG_BACKUP_READ_MAPPED, false);
+    }
+
+    @Override
+    public int getS3BufferBudget()
+    {
+        long parts = (long) getMaxBackupUploadThreads() * DEFAULT_S3_BUFFERED_PARTS;
+        long mb = (parts * getBackupChunkSize() + 1024 * 1024 - 1) / (1024 * 1024);
+        return config.getInteger(CONFIG_S3_BUFFER_BUDGET, (int) Math.max(1, Math.min(mb, Integer.MAX_VALUE)));
+    }
+
+    @Override
+    public int getRestoreRangeConcurrency()
+    {
+        return config.getInteger(CONFIG_RESTORE_RANGE_CONCURRENCY, DEFAULT_RESTORE_RANGE_CONCURRENCY);
+    }
+
+    @Override
+    public int getRestoreRemoteRangeConcurrency()
+    {
+        return config.getInteger(CONFIG_RESTORE_REMOTE_RANGE_CONCURRENCY, DEFAULT_RESTORE_REMOTE_RANGE_CONCURRENCY);
+    }
+
+    @Override
+    public int getBackupJitter()
+    {
+        return config.getInteger(CONFIG_BACKUP_JITTER, 0);
+    }
+
 }
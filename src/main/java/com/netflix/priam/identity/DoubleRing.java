@@ -8,7 +8,9 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
@@ -51,21 +53,39 @@ public class DoubleRing
 
         int hash = TokenManager.regionOffset(config.getDC());
         // move existing slots.
+        List<PriamInstance> moved = Lists.newArrayList();
         for (PriamInstance data : local)
         {
             int slot = (data.getId() - hash) * 2;
-            factory.create(data.getApp(), hash + slot, data.getInstanceId(), data.getHostName(), data.getHostIP(), data.getRac(), data.getVolumes(), data.getToken());
+            moved.add(slot(data.getApp(), hash + slot, data.getInstanceId(), data.getHostName(), data.getHostIP(), data.getRac(), data.getVolumes(), data.getToken()));
         }
 
         int new_ring_size = local.size() * 2;
-        for (PriamInstance data : filteredRemote(factory.getAllIds(config.getAppName())))
+        List<PriamInstance> slots = Lists.newArrayList(moved);
+        for (PriamInstance data : moved)
         {
             // if max then rotate.
             int currentSlot = data.getId() - hash;
             int new_slot = currentSlot + 3 > new_ring_size ? (currentSlot + 3) - new_ring_size : currentSlot + 3;
             String token = TokenManager.createToken(new_slot, new_ring_size, config.getDC());
-            factory.create(data.getApp(), new_slot + hash, "new_slot", "new_host", "new_IP", data.getRac(), null, token);
+            slots.add(slot(data.getApp(), new_slot + hash, "new_slot", "new_host", "new_IP", data.getRac(), null, token));
         }
+        // the slots were all freed above, batched writes need no condition
+        factory.updateAll(slots);
+    }
+
+    private PriamInstance slot(String app, int id, String instanceID, String hostname, String ip, String rac, Map<String, Object> volumes, String token)
+    {
+        PriamInstance ins = new PriamInstance();
+        ins.setApp(app);
+        ins.setId(id);
+        ins.setInstanceId(instanceID);
+        ins.setHost(hostname, ip);
+        ins.setRac(rac);
+        ins.setDC(config.getDC());
+        ins.setVolumes(volumes == null ? new HashMap<String, Object>() : volumes);
+        ins.setToken(token);
+        return ins;
     }
 
     // filter other DC's
@@ -117,8 +137,7 @@ public class DoubleRing
         {
             @SuppressWarnings("unchecked")
             List<PriamInstance> allInstances = (List<PriamInstance>) stream.readObject();
-            for (PriamInstance data : allInstances)
-                factory.create(data.getApp(), data.getId(), data.getInstanceId(), data.getHostName(), data.getHostIP(), data.getRac(), data.getVolumes(), data.getToken());
+            factory.updateAll(allInstances);
             logger.info("Sucecsfully restored the Instances from the backup: " + TMP_BACKUP_FILE.getAbsolutePath());
         }
         finally
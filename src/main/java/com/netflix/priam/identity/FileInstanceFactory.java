@@ -0,0 +1,398 @@
+package com.netflix.priam.identity;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.priam.IConfiguration;
+
+/**
+ * Instance registry kept in files, one per app, under a local or shared
+ * directory. For test and private cloud rings where SimpleDB is not available
+ * or too slow.
+ *
+ * Every change is made under an exclusive lock of the app's lock file, so
+ * creating a slot is a compare-and-swap: it fails if the slot is taken, and
+ * a delete only removes the entry of the instance it was given. The registry
+ * is rewritten to a temp file which is synced and renamed over the old one; a
+ * crash leaves either version, never a partial file. Reads need no lock.
+ */
+@Singleton
+public class FileInstanceFactory implements IPriamInstanceFactory
+{
+    private static final Logger logger = LoggerFactory.getLogger(FileInstanceFactory.class);
+    // file locks are held by the JVM, threads have to be kept apart separately
+    private static final ConcurrentMap<String, ReentrantLock> jvmLocks = new ConcurrentHashMap<String, ReentrantLock>();
+
+    private static final String INSTANCE_ID = "instanceId";
+    private static final String TOKEN = "token";
+    private static final String AVAILABILITY_ZONE = "availabilityZone";
+    private static final String ELASTIC_IP = "elasticIP";
+    private static final String HOSTNAME = "hostname";
+    private static final String LOCATION = "location";
+    private static final String UPDATE_TS = "updateTimestamp";
+
+    private final IConfiguration config;
+    private final File dir;
+
+    @Inject
+    public FileInstanceFactory(IConfiguration config)
+    {
+        this.config = config;
+        this.dir = new File(config.getInstanceRegistryLocation()).getAbsoluteFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IllegalStateException("Unable to create instance registry directory " + dir);
+    }
+
+    @Override
+    public List<PriamInstance> getAllIds(String appName)
+    {
+        try
+        {
+            return new ArrayList<PriamInstance>(read(appName).values());
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to read the instances of " + appName, e);
+        }
+    }
+
+    @Override
+    public PriamInstance getInstance(String appName, int id)
+    {
+        try
+        {
+            return read(appName).get(id);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to read the instances of " + appName, e);
+        }
+    }
+
+    @Override
+    public PriamInstance create(String app, int id, String instanceID, String hostname, String ip, String rac, Map<String, Object> volumes, String token)
+    {
+        PriamInstance ins = makePriamInstance(app, id, instanceID, hostname, ip, rac, volumes, token);
+        FileLock lock = lock(app);
+        try
+        {
+            SortedMap<Integer, PriamInstance> instances = read(app);
+            PriamInstance existing = instances.get(id);
+            // dead markers older than 3 min. are stale and may be replaced
+            boolean stale = existing != null && app.endsWith("-dead") && existing.getUpdatetime() < (System.currentTimeMillis() - (3 * 60 * 1000));
+            if (existing != null && !stale)
+                throw new SlotTakenException(String.format("Slot %d of %s is taken by %s", id, app, existing.getInstanceId()));
+            ins.setUpdatetime(System.currentTimeMillis());
+            instances.put(id, ins);
+            write(app, instances);
+            return ins;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to register priam instance", e);
+        }
+        finally
+        {
+            unlock(app, lock);
+        }
+    }
+
+    @Override
+    public void delete(PriamInstance inst)
+    {
+        FileLock lock = lock(inst.getApp());
+        try
+        {
+            SortedMap<Integer, PriamInstance> instances = read(inst.getApp());
+            PriamInstance existing = instances.get(inst.getId());
+            // the slot may have been taken over since it was read
+            if (existing == null || !existing.getInstanceId().equals(inst.getInstanceId()))
+                return;
+            instances.remove(inst.getId());
+            write(inst.getApp(), instances);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to deregister priam instance", e);
+        }
+        finally
+        {
+            unlock(inst.getApp(), lock);
+        }
+    }
+
+    @Override
+    public void update(PriamInstance inst)
+    {
+        updateAll(Collections.singletonList(inst));
+    }
+
+    @Override
+    public void renew(PriamInstance inst)
+    {
+        FileLock lock = lock(inst.getApp());
+        try
+        {
+            SortedMap<Integer, PriamInstance> instances = read(inst.getApp());
+            PriamInstance existing = instances.get(inst.getId());
+            if (existing == null || !existing.getInstanceId().equals(inst.getInstanceId()))
+                throw new SlotTakenException(String.format("Slot %d of %s no longer belongs to %s", inst.getId(), inst.getApp(), inst.getInstanceId()));
+            inst.setUpdatetime(System.currentTimeMillis());
+            instances.put(inst.getId(), inst);
+            write(inst.getApp(), instances);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Unable to renew priam instance", e);
+        }
+        finally
+        {
+            unlock(inst.getApp(), lock);
+        }
+    }
+
+    @Override
+    public void updateAll(List<PriamInstance> instances)
+    {
+        Map<String, List<PriamInstance>> byApp = Maps.newHashMap();
+        for (PriamInstance inst : instances)
+        {
+            if (!byApp.containsKey(inst.getApp()))
+                byApp.put(inst.getApp(), Lists.<PriamInstance> newArrayList());
+            byApp.get(inst.getApp()).add(inst);
+        }
+        for (Map.Entry<String, List<PriamInstance>> entry : byApp.entrySet())
+        {
+            FileLock lock = lock(entry.getKey());
+            try
+            {
+                SortedMap<Integer, PriamInstance> current = read(entry.getKey());
+                for (PriamInstance inst : entry.getValue())
+                {
+                    inst.setUpdatetime(System.currentTimeMillis());
+                    current.put(inst.getId(), inst);
+                }
+                write(entry.getKey(), current);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Unable to update/create priam instances", e);
+            }
+            finally
+            {
+                unlock(entry.getKey(), lock);
+            }
+        }
+    }
+
+    @Override
+    public void sort(List<PriamInstance> return_)
+    {
+        Comparator<? super PriamInstance> comparator = new Comparator<PriamInstance>()
+        {
+
+            @Override
+            public int compare(PriamInstance o1, PriamInstance o2)
+            {
+                Integer c1 = o1.getId();
+                Integer c2 = o2.getId();
+                return c1.compareTo(c2);
+            }
+        };
+        Collections.sort(return_, comparator);
+    }
+
+    @Override
+    public void attachVolumes(PriamInstance instance, String mountPath, String device)
+    {
+        // nothing to attach
+    }
+
+    private File registry(String app)
+    {
+        return new File(dir, app + ".properties");
+    }
+
+    /**
+     * @return the instances of the app by slot id
+     */
+    private SortedMap<Integer, PriamInstance> read(String app) throws IOException
+    {
+        SortedMap<Integer, PriamInstance> instances = new TreeMap<Integer, PriamInstance>();
+        File file = registry(app);
+        if (!file.exists())
+            return instances;
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            props.load(in);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        for (String name : props.stringPropertyNames())
+        {
+            int dot = name.indexOf('.');
+            int id = Integer.parseInt(name.substring(0, dot));
+            PriamInstance ins = instances.get(id);
+            if (ins == null)
+            {
+                ins = new PriamInstance();
+                ins.setApp(app);
+                ins.setId(id);
+                ins.setVolumes(new HashMap<String, Object>());
+                instances.put(id, ins);
+            }
+            set(ins, name.substring(dot + 1), props.getProperty(name));
+        }
+        return instances;
+    }
+
+    private static void set(PriamInstance ins, String attribute, String value)
+    {
+        if (attribute.equals(INSTANCE_ID))
+            ins.setInstanceId(value);
+        else if (attribute.equals(TOKEN))
+            ins.setToken(value);
+        else if (attribute.equals(AVAILABILITY_ZONE))
+            ins.setRac(value);
+        else if (attribute.equals(ELASTIC_IP))
+            ins.setHostIP(value);
+        else if (attribute.equals(HOSTNAME))
+            ins.setHost(value);
+        else if (attribute.equals(LOCATION))
+            ins.setDC(value);
+        else if (attribute.equals(UPDATE_TS))
+            ins.setUpdatetime(Long.parseLong(value));
+    }
+
+    private void write(String app, SortedMap<Integer, PriamInstance> instances) throws IOException
+    {
+        Properties props = new Properties();
+        for (PriamInstance ins : instances.values())
+        {
+            put(props, ins.getId(), INSTANCE_ID, ins.getInstanceId());
+            put(props, ins.getId(), TOKEN, ins.getToken());
+            put(props, ins.getId(), AVAILABILITY_ZONE, ins.getRac());
+            put(props, ins.getId(), ELASTIC_IP, ins.getHostIP());
+            put(props, ins.getId(), HOSTNAME, ins.getHostName());
+            put(props, ins.getId(), LOCATION, ins.getDC());
+            put(props, ins.getId(), UPDATE_TS, Long.toString(ins.getUpdatetime()));
+        }
+        File file = registry(app);
+        File tmp = new File(dir, "." + file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try
+        {
+            props.store(out, null);
+            out.getFD().sync();
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+        if (!tmp.renameTo(file))
+        {
+            tmp.delete();
+            throw new IOException("Unable to move " + tmp + " to " + file);
+        }
+    }
+
+    private static void put(Properties props, int id, String attribute, String value)
+    {
+        if (value != null)
+            props.setProperty(id + "." + attribute, value);
+    }
+
+    /**
+     * Lock the app against threads of this JVM and other processes sharing
+     * the directory. The file lock goes with its channel, closed by
+     * {@link #unlock(String, FileLock)} or by the OS if we die.
+     */
+    private FileLock lock(String app)
+    {
+        ReentrantLock lock = jvmLock(app);
+        lock.lock();
+        File lockFile = new File(dir, app + ".lock");
+        try
+        {
+            return new RandomAccessFile(lockFile, "rw").getChannel().lock();
+        }
+        catch (IOException e)
+        {
+            lock.unlock();
+            throw new RuntimeException("Unable to lock " + lockFile, e);
+        }
+    }
+
+    private void unlock(String app, FileLock fileLock)
+    {
+        try
+        {
+            fileLock.channel().close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Unable to release the lock of " + app, e);
+        }
+        finally
+        {
+            jvmLock(app).unlock();
+        }
+    }
+
+    private ReentrantLock jvmLock(String app)
+    {
+        String path = new File(dir, app + ".lock").getPath();
+        ReentrantLock lock = jvmLocks.get(path);
+        if (lock == null)
+        {
+            jvmLocks.putIfAbsent(path, new ReentrantLock());
+            lock = jvmLocks.get(path);
+        }
+        return lock;
+    }
+
+    private PriamInstance makePriamInstance(String app, int id, String instanceID, String hostname, String ip, String rac, Map<String, Object> volumes, String token)
+    {
+        Map<String, Object> v = (volumes == null) ? new HashMap<String, Object>() : volumes;
+        PriamInstance ins = new PriamInstance();
+        ins.setApp(app);
+        ins.setRac(rac);
+        ins.setHost(hostname);
+        ins.setHostIP(ip);
+        ins.setId(id);
+        ins.setInstanceId(instanceID);
+        ins.setDC(config.getDC());
+        ins.setToken(token);
+        ins.setVolumes(v);
+        return ins;
+    }
+}
@@ -59,4 +59,11 @@ public interface IMembership
      * @param count
      */
     public void expandRacMembership(int count);
-}
\ No newline at end of file
+
+    /**
+     * Register a listener notified of instances joining or leaving the RAC
+     * 
+     * @param listener
+     */
+    public void addListener(IMembershipListener listener);
+}
@@ -0,0 +1,17 @@
+package com.netflix.priam.identity;
+
+import java.util.Set;
+
+/**
+ * Notified by IMembership when instances join or leave the current RAC
+ */
+public interface IMembershipListener
+{
+    /**
+     * @param joined
+     *            instance ids new to the RAC
+     * @param left
+     *            instance ids no longer in the RAC
+     */
+    public void membershipChanged(Set<String> joined, Set<String> left);
+}
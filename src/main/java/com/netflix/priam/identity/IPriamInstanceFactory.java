@@ -26,7 +26,9 @@ public interface IPriamInstanceFactory
     public PriamInstance getInstance(String appName, int id);
 
     /**
-     * Create/Register an instance of the server with its info.
+     * Create/Register an instance of the server with its info. Fails if the
+     * slot is already registered, letting nodes race for a slot without
+     * further coordination.
      * @param app
      * @param id
      * @param instanceID
@@ -36,11 +38,13 @@ public interface IPriamInstanceFactory
      * @param volumes
      * @param token
      * @return the new node
+     * @throws SlotTakenException if another node holds the slot
      */
     public PriamInstance create(String app, int id, String instanceID, String hostname, String ip, String rac, Map<String, Object> volumes, String token);
 
     /**
-     * Delete the server node from the registry
+     * Delete the server node from the registry. Nothing is deleted if the slot
+     * no longer belongs to the node's instance id.
      * @param inst the node to delete
      */
     public void delete(PriamInstance inst);
@@ -51,6 +55,21 @@ public interface IPriamInstanceFactory
      */
     public void update(PriamInstance inst);
 
+    /**
+     * Write the node's entry again with the current time, only while the slot
+     * still belongs to the node's instance id.
+     * @param inst the node to renew
+     * @throws SlotTakenException if the slot was taken over or removed
+     */
+    public void renew(PriamInstance inst);
+
+    /**
+     * Update the details of several server nodes in the registry, batching
+     * the writes where the registry allows it
+     * @param instances the nodes to update
+     */
+    public void updateAll(List<PriamInstance> instances);
+
     /**
      * Sort the list by instance ID
      * @param return_ the list of nodes to sort
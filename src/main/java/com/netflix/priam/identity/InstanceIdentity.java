@@ -1,20 +1,20 @@
 package com.netflix.priam.identity;
 
-import com.google.common.base.Supplier;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Multimaps;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 import com.netflix.priam.utils.RetryableCallable;
-import com.netflix.priam.utils.Sleeper;
 import com.netflix.priam.utils.TokenManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.UnknownHostException;
-import java.util.*;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This class provides the central place to create and consume the identity of
@@ -25,29 +25,22 @@ import java.util.*;
 public class InstanceIdentity
 {
     private static final Logger logger = LoggerFactory.getLogger(InstanceIdentity.class);
-    private final ListMultimap<String, PriamInstance> locMap = Multimaps.newListMultimap(new HashMap<String, Collection<PriamInstance>>(), new Supplier<List<PriamInstance>>()
-    {
-        public List<PriamInstance> get()
-        {
-            return Lists.newArrayList();
-        }
-    });
+    private static final Timer acquisition = MetricRegistry.getInstance().timer("identity.token_acquisition");
+    private static final Counter conflicts = MetricRegistry.getInstance().counter("identity.slot_conflicts");
+    private final AtomicReference<RingTopology> topology = new AtomicReference<RingTopology>(new RingTopology(0, new LinkedList<PriamInstance>()));
     private final IPriamInstanceFactory factory;
     private final IMembership membership;
     private final IConfiguration config;
-    private final Sleeper sleeper;
 
     private PriamInstance myInstance;
     private boolean isReplace = false;
 
     @Inject
-    public InstanceIdentity(IPriamInstanceFactory factory, IMembership membership, IConfiguration config,
-            Sleeper sleeper) throws Exception
+    public InstanceIdentity(IPriamInstanceFactory factory, IMembership membership, IConfiguration config) throws Exception
     {
         this.factory = factory;
         this.membership = membership;
         this.config = config;
-        this.sleeper = sleeper;
         init();
     }
 
@@ -57,6 +50,20 @@ public class InstanceIdentity
     }
 
     public void init() throws Exception
+    {
+        Timer.Context timing = acquisition.time();
+        try
+        {
+            acquire();
+        }
+        finally
+        {
+            timing.stop();
+        }
+        logger.info("My token: " + myInstance.getToken());
+    }
+
+    private void acquire() throws Exception
     {
         // try to grab the token which was already assigned
         myInstance = new RetryableCallable<PriamInstance>()
@@ -89,107 +96,142 @@ public class InstanceIdentity
         // Grab a new token
         if (null == myInstance)
             myInstance = new GetNewToken().call();
-        logger.info("My token: " + myInstance.getToken());
     }
 
-    private void populateRacMap()
+    /**
+     * Current view of the ring, without reading the registry
+     */
+    public RingTopology getTopology()
     {
-        locMap.clear();
-        for (PriamInstance ins : factory.getAllIds(config.getAppName()))
+        return topology.get();
+    }
+
+    /**
+     * Read the registry and publish a new topology if it changed. Readers
+     * holding the previous snapshot are unaffected.
+     */
+    public RingTopology refreshTopology()
+    {
+        List<PriamInstance> instances = factory.getAllIds(config.getAppName());
+        while (true)
         {
-            locMap.put(ins.getRac(), ins);
+            RingTopology current = topology.get();
+            if (sameInstances(current.getInstances(), instances))
+                return current;
+            RingTopology updated = new RingTopology(current.getVersion() + 1, instances);
+            if (topology.compareAndSet(current, updated))
+                return updated;
         }
     }
 
+    private static boolean sameInstances(List<PriamInstance> current, List<PriamInstance> latest)
+    {
+        if (current.size() != latest.size())
+            return false;
+        // the registry cache hands out the same objects until something changes
+        for (int i = 0; i < current.size(); i++)
+            if (current.get(i) != latest.get(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Take over the slot of a dead node of our rac. Slots are claimed by
+     * conditional writes, a node losing the race for one moves on to the next.
+     */
     public class GetDeadToken extends RetryableCallable<PriamInstance>
     {
         @Override
         public PriamInstance retriableCall() throws Exception
         {
-            final List<PriamInstance> allIds = factory.getAllIds(config.getAppName());
+            final RingTopology ring = refreshTopology();
             List<String> asgInstances = membership.getRacMembership();
-            // Sleep random interval - upto 15 sec
-            sleeper.sleep(new Random().nextInt(5000) + 10000);
-            for (PriamInstance dead : allIds)
+            for (PriamInstance dead : ring.getRac(config.getRac()))
             {
-                // test same zone and is it is alive.
-                if (!dead.getRac().equals(config.getRac()) || asgInstances.contains(dead.getInstanceId()))
+                // test if it is alive.
+                if (asgInstances.contains(dead.getInstanceId()))
                     continue;
                 logger.info("Found dead instances: " + dead.getInstanceId());
-                PriamInstance markAsDead = factory.create(dead.getApp() + "-dead", dead.getId(), dead.getInstanceId(), dead.getHostName(), dead.getHostIP(), dead.getRac(), dead.getVolumes(),
-                        dead.getToken());
-                // remove it as we marked it down...
-                factory.delete(dead);
-                isReplace = true;
-                String payLoad = markAsDead.getToken();
-                logger.info("Trying to grab slot {} with availability zone {}", markAsDead.getId(), markAsDead.getRac());
-                return factory.create(config.getAppName(), markAsDead.getId(), config.getInstanceName(), config.getHostname(), config.getHostIP(), config.getRac(), markAsDead.getVolumes(), payLoad);
+                try
+                {
+                    PriamInstance markAsDead = factory.create(dead.getApp() + "-dead", dead.getId(), dead.getInstanceId(), dead.getHostName(), dead.getHostIP(), dead.getRac(), dead.getVolumes(),
+                            dead.getToken());
+                    // remove it as we marked it down...
+                    factory.delete(dead);
+                    String payLoad = markAsDead.getToken();
+                    logger.info("Trying to grab slot {} with availability zone {}", markAsDead.getId(), markAsDead.getRac());
+                    PriamInstance mine = factory.create(config.getAppName(), markAsDead.getId(), config.getInstanceName(), config.getHostname(), config.getHostIP(), config.getRac(), markAsDead.getVolumes(), payLoad);
+                    isReplace = true;
+                    return mine;
+                }
+                catch (SlotTakenException e)
+                {
+                    conflicts.inc();
+                    logger.info("Lost slot {} to another node: {}", dead.getId(), e.getMessage());
+                }
             }
             return null;
         }
-
-        public void forEachExecution()
-        {
-            populateRacMap();
-        }
     }
 
+    /**
+     * Register the next free slot of our rac. A node losing the race for it
+     * retries with a fresh view of the ring.
+     */
     public class GetNewToken extends RetryableCallable<PriamInstance>
     {
         @Override
         public PriamInstance retriableCall() throws Exception
         {
-            // Sleep random interval - upto 15 sec
-            sleeper.sleep(new Random().nextInt(15000));
             int hash = TokenManager.regionOffset(config.getDC());
             // use this hash so that the nodes are spred far away from the other
             // regions.
 
-            int max = hash;
-            for (PriamInstance data : factory.getAllIds(config.getAppName()))
-                max = (data.getRac().equals(config.getRac()) && (data.getId() > max)) ? data.getId() : max;
+            RingTopology ring = refreshTopology();
+            int max = ring.getMaxId(config.getRac(), hash);
             int maxSlot = max - hash;
             int my_slot = 0;
-            if (hash == max && locMap.get(config.getRac()).size() == 0)
+            if (hash == max && ring.getRac(config.getRac()).isEmpty())
                 my_slot = config.getRacs().indexOf(config.getRac()) + maxSlot;
             else
                 my_slot = config.getRacs().size() + maxSlot;
 
             String payload = TokenManager.createToken(my_slot, membership.getRacCount(), membership.getRacMembershipSize(), config.getDC());
-            return factory.create(config.getAppName(), my_slot + hash, config.getInstanceName(), config.getHostname(), config.getHostIP(), config.getRac(), null, payload);
-        }
-
-        public void forEachExecution()
-        {
-            populateRacMap();
+            try
+            {
+                return factory.create(config.getAppName(), my_slot + hash, config.getInstanceName(), config.getHostname(), config.getHostIP(), config.getRac(), null, payload);
+            }
+            catch (SlotTakenException e)
+            {
+                conflicts.inc();
+                throw e;
+            }
         }
     }
 
     public List<String> getSeeds() throws UnknownHostException
     {
-        populateRacMap();
+        RingTopology ring = refreshTopology();
+        List<PriamInstance> myRac = ring.getRac(myInstance.getRac());
         List<String> seeds = new LinkedList<String>();
         // Handle single zone deployment
         if (config.getRacs().size() == 1)
         {
             // Return empty list if all nodes are not up
-            if (membership.getRacMembershipSize() != locMap.get(myInstance.getRac()).size())
+            if (membership.getRacMembershipSize() != myRac.size())
                 return seeds;
             // If seed node, return the next node in the list
-            if (locMap.get(myInstance.getRac()).size() > 1 && locMap.get(myInstance.getRac()).get(0).getHostName().equals(myInstance.getHostName()))
-                seeds.add(locMap.get(myInstance.getRac()).get(1).getHostName());
+            if (myRac.size() > 1 && myRac.get(0).getHostName().equals(myInstance.getHostName()))
+                seeds.add(myRac.get(1).getHostName());
         }
-        for (String loc : locMap.keySet())
-            seeds.add(locMap.get(loc).get(0).getHostName());
+        seeds.addAll(ring.getSeeds());
         seeds.remove(myInstance.getHostName());
         return seeds;
     }
 
     public boolean isSeed()
     {
-        populateRacMap();
-        String ip = locMap.get(myInstance.getRac()).get(0).getHostName();
-        return myInstance.getHostName().equals(ip);
+        return refreshTopology().isSeed(myInstance.getRac(), myInstance.getHostName());
     }
     
     public boolean isReplace(){
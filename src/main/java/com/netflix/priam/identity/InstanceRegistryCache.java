@@ -0,0 +1,161 @@
+package com.netflix.priam.identity;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.Gauge;
+import com.netflix.priam.metrics.Histogram;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+
+/**
+ * Read-through cache of the instances registered for each app. Entries live
+ * for the configured TTL and are dropped as soon as the registry is written
+ * through this node. Concurrent misses for an app share a single load.
+ */
+public class InstanceRegistryCache
+{
+    private static final Counter hits = MetricRegistry.getInstance().counter("instance_cache.hits");
+    private static final Counter misses = MetricRegistry.getInstance().counter("instance_cache.misses");
+    // age of the entries served from the cache
+    private static final Histogram staleness = MetricRegistry.getInstance().histogram("instance_cache.served_age_ms");
+    private static final Timer loads = MetricRegistry.getInstance().timer("instance_cache.load");
+
+    static
+    {
+        MetricRegistry.getInstance().gauge("instance_cache.hit_ratio", new Gauge()
+        {
+            @Override
+            public double getValue()
+            {
+                long total = hits.getCount() + misses.getCount();
+                return total == 0 ? 0 : (double) hits.getCount() / total;
+            }
+        });
+    }
+
+    public interface Loader
+    {
+        /**
+         * Read the instances of the app from the registry
+         */
+        public List<PriamInstance> load(String app);
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ConcurrentMap<String, FutureTask<Entry>> loading = new ConcurrentHashMap<String, FutureTask<Entry>>();
+    private final Loader loader;
+    private final long ttlMs;
+
+    /**
+     * @param ttlMs
+     *            how long a read is served from the cache, 0 disables caching
+     */
+    public InstanceRegistryCache(Loader loader, long ttlMs)
+    {
+        this.loader = loader;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Instances of the app, in the order returned by the loader. The list is
+     * a copy the caller may modify.
+     */
+    public List<PriamInstance> get(String app)
+    {
+        if (ttlMs <= 0)
+            return loader.load(app);
+        Entry entry = entries.get(app);
+        if (entry != null)
+        {
+            long age = System.currentTimeMillis() - entry.loadedAt;
+            if (age < ttlMs)
+            {
+                hits.inc();
+                staleness.update(age);
+                return Lists.newArrayList(entry.instances);
+            }
+        }
+        misses.inc();
+        return Lists.newArrayList(load(app).instances);
+    }
+
+    /**
+     * Drop the cached instances of the app, including a load already in
+     * progress, so the next read sees writes made before this call.
+     */
+    public void invalidate(String app)
+    {
+        loading.remove(app);
+        entries.remove(app);
+    }
+
+    private Entry load(final String app)
+    {
+        FutureTask<Entry> task = new FutureTask<Entry>(new Callable<Entry>()
+        {
+            public Entry call() throws Exception
+            {
+                Timer.Context timer = loads.time();
+                try
+                {
+                    return new Entry(ImmutableList.copyOf(loader.load(app)), System.currentTimeMillis());
+                }
+                finally
+                {
+                    timer.stop();
+                }
+            }
+        });
+        FutureTask<Entry> running = loading.putIfAbsent(app, task);
+        if (running == null)
+        {
+            running = task;
+            task.run();
+        }
+        try
+        {
+            Entry entry = running.get();
+            // only the loader publishes, and withdraws the entry if it was
+            // invalidated while loading
+            if (running == task)
+            {
+                entries.put(app, entry);
+                if (!loading.remove(app, task))
+                    entries.remove(app, entry);
+            }
+            return entry;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            loading.remove(app, running);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static class Entry
+    {
+        private final List<PriamInstance> instances;
+        private final long loadedAt;
+
+        Entry(List<PriamInstance> instances, long loadedAt)
+        {
+            this.instances = instances;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
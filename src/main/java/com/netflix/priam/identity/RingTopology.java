@@ -0,0 +1,190 @@
+package com.netflix.priam.identity;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.netflix.priam.utils.TokenManager;
+
+/**
+ * Immutable view of the registered instances of a cluster, indexed once when
+ * built so lookups need no locking. InstanceIdentity swaps in a new snapshot
+ * whenever the registry changes; readers keep using the one they hold.
+ *
+ * Instances of a rac keep the registry's order, the first instance of each
+ * rac being its seed.
+ */
+public class RingTopology
+{
+    private static final Comparator<PriamInstance> BY_ID = new Comparator<PriamInstance>()
+    {
+        @Override
+        public int compare(PriamInstance o1, PriamInstance o2)
+        {
+            return o1.getId() < o2.getId() ? -1 : (o1.getId() == o2.getId() ? 0 : 1);
+        }
+    };
+
+    private final long version;
+    private final List<PriamInstance> instances;
+    private final ImmutableListMultimap<String, PriamInstance> byRac;
+    private final ImmutableListMultimap<String, PriamInstance> byDC;
+    private final Map<String, Integer> maxIdByRac;
+    private final Set<String> seeds;
+    private final PriamInstance[] sortedById;
+    private final int[] sortedIds;
+    private final BigInteger[] sortedTokens;
+    private final Map<String, BigInteger[]> sortedTokensByDC;
+
+    public RingTopology(long version, List<PriamInstance> instances)
+    {
+        this.version = version;
+        this.instances = ImmutableList.copyOf(instances);
+
+        ImmutableListMultimap.Builder<String, PriamInstance> racs = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, PriamInstance> dcs = ImmutableListMultimap.builder();
+        Map<String, Integer> maxIds = Maps.newHashMap();
+        for (PriamInstance ins : instances)
+        {
+            racs.put(ins.getRac(), ins);
+            if (ins.getDC() != null)
+                dcs.put(ins.getDC(), ins);
+            Integer max = maxIds.get(ins.getRac());
+            if (max == null || ins.getId() > max)
+                maxIds.put(ins.getRac(), ins.getId());
+        }
+        this.byRac = racs.build();
+        this.byDC = dcs.build();
+        this.maxIdByRac = ImmutableMap.copyOf(maxIds);
+
+        ImmutableSet.Builder<String> seedHosts = ImmutableSet.builder();
+        for (String rac : byRac.keySet())
+            seedHosts.add(byRac.get(rac).get(0).getHostName());
+        this.seeds = seedHosts.build();
+
+        this.sortedById = instances.toArray(new PriamInstance[instances.size()]);
+        Arrays.sort(sortedById, BY_ID);
+        this.sortedIds = new int[sortedById.length];
+        for (int i = 0; i < sortedById.length; i++)
+            sortedIds[i] = sortedById[i].getId();
+
+        this.sortedTokens = sortedTokens(instances);
+        Map<String, BigInteger[]> dcTokens = Maps.newHashMap();
+        for (String dc : byDC.keySet())
+            dcTokens.put(dc.toLowerCase(), sortedTokens(byDC.get(dc)));
+        this.sortedTokensByDC = ImmutableMap.copyOf(dcTokens);
+    }
+
+    private static BigInteger[] sortedTokens(List<PriamInstance> instances)
+    {
+        List<BigInteger> tokens = Lists.newArrayListWithCapacity(instances.size());
+        for (PriamInstance ins : instances)
+        {
+            if (ins.getToken() != null)
+                tokens.add(new BigInteger(ins.getToken()));
+        }
+        BigInteger[] sorted = tokens.toArray(new BigInteger[tokens.size()]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Incremented every time the snapshot is replaced
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * All instances in registry order
+     */
+    public List<PriamInstance> getInstances()
+    {
+        return instances;
+    }
+
+    /**
+     * @return instances of the rac in registry order, empty if none
+     */
+    public List<PriamInstance> getRac(String rac)
+    {
+        return byRac.get(rac);
+    }
+
+    /**
+     * Racs in the order they first appear in the registry
+     */
+    public Set<String> getRacs()
+    {
+        return byRac.keySet();
+    }
+
+    /**
+     * @return instances of the DC in registry order, empty if none
+     */
+    public List<PriamInstance> getDC(String dc)
+    {
+        return byDC.get(dc);
+    }
+
+    /**
+     * Host names of the first instance of every rac
+     */
+    public Set<String> getSeeds()
+    {
+        return seeds;
+    }
+
+    public boolean isSeed(String rac, String hostname)
+    {
+        List<PriamInstance> members = byRac.get(rac);
+        return !members.isEmpty() && members.get(0).getHostName().equals(hostname);
+    }
+
+    /**
+     * @return highest slot id used in the rac, or {@code floor} if it is lower
+     *         or the rac is empty
+     */
+    public int getMaxId(String rac, int floor)
+    {
+        Integer max = maxIdByRac.get(rac);
+        return max == null ? floor : Math.max(max, floor);
+    }
+
+    /**
+     * @return the instance in the slot, or {@code null} if it is free
+     */
+    public PriamInstance getInstance(int id)
+    {
+        int index = Arrays.binarySearch(sortedIds, id);
+        return index < 0 ? null : sortedById[index];
+    }
+
+    /**
+     * Closest token to {@code token} among all instances
+     */
+    public BigInteger findClosestToken(BigInteger token)
+    {
+        return TokenManager.findClosestToken(token, sortedTokens);
+    }
+
+    /**
+     * Closest token to {@code token} among the instances of a DC, matched
+     * ignoring case.
+     */
+    public BigInteger findClosestToken(BigInteger token, String dc)
+    {
+        BigInteger[] tokens = sortedTokensByDC.get(dc.toLowerCase());
+        return TokenManager.findClosestToken(token, tokens == null ? new BigInteger[0] : tokens);
+    }
+}
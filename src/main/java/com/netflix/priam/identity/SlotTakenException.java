@@ -0,0 +1,20 @@
+package com.netflix.priam.identity;
+
+/**
+ * The registry refused a conditional write: another node took the slot since
+ * it was read.
+ */
+public class SlotTakenException extends RuntimeException
+{
+    private static final long serialVersionUID = 336L;
+
+    public SlotTakenException(String message)
+    {
+        super(message);
+    }
+
+    public SlotTakenException(String message, Exception e)
+    {
+        super(message, e);
+    }
+}
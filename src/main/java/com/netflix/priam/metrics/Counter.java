@@ -0,0 +1,27 @@
+package com.netflix.priam.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic count of events.
+ */
+public class Counter implements CounterMBean
+{
+    private final AtomicLong count = new AtomicLong();
+
+    public void inc()
+    {
+        count.incrementAndGet();
+    }
+
+    public void inc(long n)
+    {
+        count.addAndGet(n);
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+}
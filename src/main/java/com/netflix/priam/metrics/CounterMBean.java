@@ -0,0 +1,6 @@
+package com.netflix.priam.metrics;
+
+public interface CounterMBean
+{
+    public long getCount();
+}
@@ -0,0 +1,11 @@
+package com.netflix.priam.metrics;
+
+/**
+ * Value computed when it is read, such as a ratio of two counters or the age
+ * of a cache entry.
+ */
+public abstract class Gauge implements GaugeMBean
+{
+    @Override
+    public abstract double getValue();
+}
@@ -0,0 +1,6 @@
+package com.netflix.priam.metrics;
+
+public interface GaugeMBean
+{
+    public double getValue();
+}
@@ -0,0 +1,132 @@
+package com.netflix.priam.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non-negative values in log-linear buckets: each power of two
+ * is split into SUB_BUCKETS equal buckets, so percentiles are accurate to
+ * within 1/SUB_BUCKETS of the value. Recording is a handful of atomic
+ * operations and never locks or allocates.
+ */
+public class Histogram implements HistogramMBean
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public void update(long value)
+    {
+        if (value < 0)
+            value = 0;
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        while (true)
+        {
+            long current = min.get();
+            if (value >= current || min.compareAndSet(current, value))
+                break;
+        }
+        while (true)
+        {
+            long current = max.get();
+            if (value <= current || max.compareAndSet(current, value))
+                break;
+        }
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    @Override
+    public long getMin()
+    {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    @Override
+    public long getMax()
+    {
+        return count.get() == 0 ? 0 : max.get();
+    }
+
+    @Override
+    public double getMean()
+    {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long getSum()
+    {
+        return sum.get();
+    }
+
+    @Override
+    public long get50thPercentile()
+    {
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public long get95thPercentile()
+    {
+        return getPercentile(0.95);
+    }
+
+    @Override
+    public long get99thPercentile()
+    {
+        return getPercentile(0.99);
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile, capped at the
+     * largest value recorded.
+     */
+    public long getPercentile(double quantile)
+    {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += buckets.get(i);
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += buckets.get(i);
+            if (seen >= rank)
+                return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
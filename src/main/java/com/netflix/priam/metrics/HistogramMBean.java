@@ -0,0 +1,18 @@
+package com.netflix.priam.metrics;
+
+public interface HistogramMBean
+{
+    public long getCount();
+
+    public long getMin();
+
+    public long getMax();
+
+    public double getMean();
+
+    public long get50thPercentile();
+
+    public long get95thPercentile();
+
+    public long get99thPercentile();
+}
@@ -0,0 +1,113 @@
+package com.netflix.priam.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate of events per second, as a lifetime mean and as exponentially weighted
+ * one, five and fifteen minute averages. The averages are advanced lazily by
+ * whichever caller first notices a tick interval has passed, so no thread is
+ * needed to keep them current.
+ */
+public class Meter implements MeterMBean
+{
+    private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong uncounted = new AtomicLong();
+    private final AtomicLong lastTick;
+    private final long startTime;
+    private final MovingAverage m1 = new MovingAverage(1);
+    private final MovingAverage m5 = new MovingAverage(5);
+    private final MovingAverage m15 = new MovingAverage(15);
+
+    public Meter()
+    {
+        this.startTime = System.nanoTime();
+        this.lastTick = new AtomicLong(startTime);
+    }
+
+    public void mark()
+    {
+        mark(1);
+    }
+
+    public void mark(long n)
+    {
+        tickIfNecessary();
+        count.addAndGet(n);
+        uncounted.addAndGet(n);
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    @Override
+    public double getMeanRate()
+    {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0 : count.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public double getOneMinuteRate()
+    {
+        tickIfNecessary();
+        return m1.getRate();
+    }
+
+    @Override
+    public double getFiveMinuteRate()
+    {
+        tickIfNecessary();
+        return m5.getRate();
+    }
+
+    @Override
+    public double getFifteenMinuteRate()
+    {
+        tickIfNecessary();
+        return m15.getRate();
+    }
+
+    private void tickIfNecessary()
+    {
+        long last = lastTick.get();
+        long now = System.nanoTime();
+        long ticks = (now - last) / TICK_INTERVAL;
+        if (ticks <= 0 || !lastTick.compareAndSet(last, last + ticks * TICK_INTERVAL))
+            return;
+        for (long i = 0; i < ticks; i++)
+        {
+            long events = uncounted.getAndSet(0);
+            m1.tick(events);
+            m5.tick(events);
+            m15.tick(events);
+        }
+    }
+
+    private static class MovingAverage
+    {
+        private final double alpha;
+        private volatile double rate = -1;
+
+        MovingAverage(int minutes)
+        {
+            this.alpha = 1 - Math.exp(-(double) TICK_INTERVAL / TimeUnit.MINUTES.toNanos(minutes));
+        }
+
+        void tick(long events)
+        {
+            double instantRate = events * (double) TimeUnit.SECONDS.toNanos(1) / TICK_INTERVAL;
+            rate = rate < 0 ? instantRate : rate + alpha * (instantRate - rate);
+        }
+
+        double getRate()
+        {
+            return Math.max(0, rate);
+        }
+    }
+}
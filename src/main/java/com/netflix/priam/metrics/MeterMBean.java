@@ -0,0 +1,14 @@
+package com.netflix.priam.metrics;
+
+public interface MeterMBean
+{
+    public long getCount();
+
+    public double getMeanRate();
+
+    public double getOneMinuteRate();
+
+    public double getFiveMinuteRate();
+
+    public double getFifteenMinuteRate();
+}
@@ -0,0 +1,107 @@
+package com.netflix.priam.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Named metrics of this node. Each metric is created on first use and
+ * exported as an MBean under com.priam.metrics; the whole set is also served
+ * by MetricsResource. Call sites should look their metrics up once and keep
+ * them in a field, the lookup is not meant for the hot path.
+ */
+public class MetricRegistry
+{
+    private static final Logger logger = LoggerFactory.getLogger(MetricRegistry.class);
+    public static final String DOMAIN = "com.priam.metrics";
+    private static final MetricRegistry instance = new MetricRegistry(ManagementFactory.getPlatformMBeanServer());
+
+    private final ConcurrentSkipListMap<String, Object> metrics = new ConcurrentSkipListMap<String, Object>();
+    private final MBeanServer mbs;
+
+    public MetricRegistry(MBeanServer mbs)
+    {
+        this.mbs = mbs;
+    }
+
+    public static MetricRegistry getInstance()
+    {
+        return instance;
+    }
+
+    public Counter counter(String name)
+    {
+        Counter metric = get(name, Counter.class);
+        return metric != null ? metric : add(name, new Counter(), Counter.class, CounterMBean.class);
+    }
+
+    public Histogram histogram(String name)
+    {
+        Histogram metric = get(name, Histogram.class);
+        return metric != null ? metric : add(name, new Histogram(), Histogram.class, HistogramMBean.class);
+    }
+
+    public Meter meter(String name)
+    {
+        Meter metric = get(name, Meter.class);
+        return metric != null ? metric : add(name, new Meter(), Meter.class, MeterMBean.class);
+    }
+
+    public Timer timer(String name)
+    {
+        Timer metric = get(name, Timer.class);
+        return metric != null ? metric : add(name, new Timer(), Timer.class, TimerMBean.class);
+    }
+
+    /**
+     * Register a gauge, or return the one already registered under the name.
+     */
+    public Gauge gauge(String name, Gauge gauge)
+    {
+        Gauge metric = get(name, Gauge.class);
+        return metric != null ? metric : add(name, gauge, Gauge.class, GaugeMBean.class);
+    }
+
+    /**
+     * All metrics by name.
+     */
+    public SortedMap<String, Object> getMetrics()
+    {
+        return Collections.unmodifiableSortedMap(metrics);
+    }
+
+    private <T> T get(String name, Class<T> type)
+    {
+        Object metric = metrics.get(name);
+        if (metric == null)
+            return null;
+        if (!type.isInstance(metric))
+            throw new IllegalArgumentException(name + " is already registered as a " + metric.getClass().getSimpleName());
+        return type.cast(metric);
+    }
+
+    private <T, M> T add(String name, T metric, Class<T> type, Class<M> mbeanInterface)
+    {
+        Object existing = metrics.putIfAbsent(name, metric);
+        if (existing != null)
+            return get(name, type);
+        try
+        {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type.getSimpleName() + ",name=" + name);
+            mbs.registerMBean(new StandardMBean(mbeanInterface.cast(metric), mbeanInterface), objectName);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Unable to export metric " + name, e);
+        }
+        return metric;
+    }
+}
@@ -0,0 +1,115 @@
+package com.netflix.priam.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution and throughput of an operation. Durations are kept in
+ * microseconds.
+ */
+public class Timer implements TimerMBean
+{
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Histogram durations = new Histogram();
+    private final Meter meter = new Meter();
+
+    public void update(long duration, TimeUnit unit)
+    {
+        durations.update(unit.toMicros(duration));
+        meter.mark();
+    }
+
+    /**
+     * Start timing an operation; call stop() on the result when it completes.
+     */
+    public Context time()
+    {
+        return new Context(this);
+    }
+
+    public Histogram getDurations()
+    {
+        return durations;
+    }
+
+    public Meter getMeter()
+    {
+        return meter;
+    }
+
+    @Override
+    public long getCount()
+    {
+        return durations.getCount();
+    }
+
+    @Override
+    public double getMinMillis()
+    {
+        return durations.getMin() / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis()
+    {
+        return durations.getMax() / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanMillis()
+    {
+        return durations.getMean() / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public double get50thPercentileMillis()
+    {
+        return durations.get50thPercentile() / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public double get95thPercentileMillis()
+    {
+        return durations.get95thPercentile() / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public double get99thPercentileMillis()
+    {
+        return durations.get99thPercentile() / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public double getOneMinuteRate()
+    {
+        return meter.getOneMinuteRate();
+    }
+
+    @Override
+    public double getFiveMinuteRate()
+    {
+        return meter.getFiveMinuteRate();
+    }
+
+    public static class Context
+    {
+        private final Timer timer;
+        private final long start;
+
+        private Context(Timer timer)
+        {
+            this.timer = timer;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * @return elapsed time in nanoseconds
+         */
+        public long stop()
+        {
+            long elapsed = System.nanoTime() - start;
+            timer.update(elapsed, TimeUnit.NANOSECONDS);
+            return elapsed;
+        }
+    }
+}
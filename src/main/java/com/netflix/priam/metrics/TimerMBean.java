@@ -0,0 +1,25 @@
+package com.netflix.priam.metrics;
+
+/**
+ * Durations are reported in milliseconds and rates in events per second.
+ */
+public interface TimerMBean
+{
+    public long getCount();
+
+    public double getMinMillis();
+
+    public double getMaxMillis();
+
+    public double getMeanMillis();
+
+    public double get50thPercentileMillis();
+
+    public double get95thPercentileMillis();
+
+    public double get99thPercentileMillis();
+
+    public double getOneMinuteRate();
+
+    public double getFiveMinuteRate();
+}
@@ -30,10 +30,9 @@ import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.PriamServer;
 import com.netflix.priam.identity.IPriamInstanceFactory;
-import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.scheduler.OperationManager;
 import com.netflix.priam.scheduler.PriamScheduler;
 import com.netflix.priam.utils.SystemUtils;
-import com.netflix.priam.utils.TokenManager;
 import com.netflix.priam.utils.TuneCassandra;
 
 @Path("/v1/backup")
@@ -57,12 +56,13 @@ public class BackupServlet
     private TuneCassandra tuneCassandra;
     private SnapshotBackup snapshotBackup;
     private IPriamInstanceFactory factory;
+    private OperationManager operations;
     @Inject
     private PriamScheduler scheduler;
 
     @Inject
     public BackupServlet(PriamServer priamServer, IConfiguration config, IBackupFileSystem fs, Restore restoreObj, Provider<AbstractBackupPath> pathProvider, TuneCassandra tunecassandra,
-            SnapshotBackup snapshotBackup, IPriamInstanceFactory factory)
+            SnapshotBackup snapshotBackup, IPriamInstanceFactory factory, OperationManager operations)
     {
         this.priamServer = priamServer;
         this.config = config;
@@ -72,14 +72,14 @@ public class BackupServlet
         this.tuneCassandra = tunecassandra;
         this.snapshotBackup = snapshotBackup;
         this.factory = factory;
+        this.operations = operations;
     }
 
     @GET
     @Path("/do_snapshot")
     public Response backup() throws Exception
     {
-        snapshotBackup.execute();
-        return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
+        return OperationsResource.submit(operations, snapshotBackup.operation());
     }
 
     @GET
@@ -215,14 +215,7 @@ public class BackupServlet
      */
     private String closestToken(String token, String region)
     {
-        List<PriamInstance> plist = factory.getAllIds(config.getAppName());
-        List<BigInteger> tokenList = Lists.newArrayList();
-        for (PriamInstance ins : plist)
-        {
-            if (ins.getDC().equalsIgnoreCase(region))
-                tokenList.add(new BigInteger(ins.getToken()));
-        }
-        return TokenManager.findClosestToken(new BigInteger(token), tokenList).toString();
+        return priamServer.getId().refreshTopology().findClosestToken(new BigInteger(token), region).toString();
     }
 
     /*
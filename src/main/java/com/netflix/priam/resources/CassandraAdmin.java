@@ -3,6 +3,7 @@ package com.netflix.priam.resources;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.text.DecimalFormat;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -35,7 +36,11 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.netflix.priam.IConfiguration;
+import com.netflix.priam.scheduler.OperationManager;
+import com.netflix.priam.utils.JMXConnectionManager;
 import com.netflix.priam.utils.JMXNodeTool;
+import com.netflix.priam.utils.Maintenance;
+import com.netflix.priam.utils.RingState;
 import com.netflix.priam.utils.SystemUtils;
 
 /**
@@ -48,14 +53,23 @@ public class CassandraAdmin
     private static final String REST_HEADER_KEYSPACES = "keyspaces";
     private static final String REST_HEADER_CFS = "cfnames";
     private static final String REST_HEADER_TOKEN = "token";
+    private static final String REST_HEADER_REFRESH = "refresh";
     private static final String REST_SUCCESS = "[\"ok\"]";
     private static final Logger logger = LoggerFactory.getLogger(CassandraAdmin.class);
     private IConfiguration config;
+    private final JMXConnectionManager jmx;
+    private final OperationManager operations;
+    private final RingState ring;
+    private final Maintenance maintenance;
 
     @Inject
-    public CassandraAdmin(IConfiguration config)
+    public CassandraAdmin(IConfiguration config, JMXConnectionManager jmx, OperationManager operations, RingState ring, Maintenance maintenance)
     {
         this.config = config;
+        this.jmx = jmx;
+        this.operations = operations;
+        this.ring = ring;
+        this.maintenance = maintenance;
     }
 
     @GET
@@ -82,7 +96,7 @@ public class CassandraAdmin
         if (StringUtils.isBlank(keyspaces))
             return Response.status(400).entity("Missing keyspace in request").build();
 
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         nodetool.refresh(Lists.newArrayList(keyspaces.split(",")));
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
@@ -91,65 +105,58 @@ public class CassandraAdmin
     @Path("/info")
     public Response cassInfo() throws IOException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         logger.info("node tool info being called");
         return Response.ok(nodetool.info(), MediaType.APPLICATION_JSON).build();
     }
 
     @GET
     @Path("/ring")
-    public Response cassRing() throws IOException, InterruptedException, JSONException
+    public Response cassRing(@QueryParam(REST_HEADER_REFRESH) boolean refresh) throws IOException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
-        logger.info("node tool ring being called");
-        return Response.ok(nodetool.ring(), MediaType.APPLICATION_JSON).build();
+        logger.debug("node tool ring being called");
+        // served from memory, Age and Last-Modified tell how recent it is
+        RingState.View view = refresh ? ring.refresh() : ring.get();
+        return Response.ok(view.getJson(), MediaType.APPLICATION_JSON).lastModified(new Date(view.getRefreshed())).header("Age", view.getAge() / 1000).build();
     }
 
     @GET
     @Path("/flush")
-    public Response cassFlush() throws IOException, InterruptedException, ExecutionException
+    public Response cassFlush() throws JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
         logger.info("node tool flush being called");
-        nodetool.flush();
-        return Response.ok().build();
+        return OperationsResource.submit(operations, maintenance.operation(Maintenance.FLUSH));
     }
 
     @GET
     @Path("/compact")
-    public Response cassCompact() throws IOException, ExecutionException, InterruptedException
+    public Response cassCompact() throws JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
         logger.info("node tool compact being called");
-        nodetool.compact();
-        return Response.ok().build();
+        return OperationsResource.submit(operations, maintenance.operation(Maintenance.COMPACT));
     }
 
     @GET
     @Path("/cleanup")
-    public Response cassCleanup() throws IOException, ExecutionException, InterruptedException
+    public Response cassCleanup() throws JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
         logger.info("node tool cleanup being called");
-        nodetool.cleanup();
-        return Response.ok().build();
+        return OperationsResource.submit(operations, maintenance.operation(Maintenance.CLEANUP));
     }
 
     @GET
     @Path("/repair")
-    public Response cassRepair() throws IOException, ExecutionException, InterruptedException
+    public Response cassRepair() throws JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
         logger.info("node tool repair being called");
-        nodetool.repair();
-        return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
+        return OperationsResource.submit(operations, maintenance.operation(Maintenance.REPAIR));
     }
 
     @GET
     @Path("/version")
     public Response version() throws IOException, ExecutionException, InterruptedException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         return Response.ok(new JSONArray().put(nodetool.getReleaseVersion()), MediaType.APPLICATION_JSON).build();
     }
 
@@ -157,7 +164,7 @@ public class CassandraAdmin
     @Path("/tpstats")
     public Response tpstats() throws IOException, ExecutionException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         Iterator<Map.Entry<String, JMXEnabledThreadPoolExecutorMBean>> threads = nodetool.getThreadPoolMBeanProxies();
         JSONArray threadPoolArray = new JSONArray();
         while (threads.hasNext())
@@ -190,25 +197,8 @@ public class CassandraAdmin
     @Path("/compactionstats")
     public Response compactionStats() throws IOException, ExecutionException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
-        JSONObject rootObj = new JSONObject();
-        CompactionManagerMBean cm = nodetool.getCompactionManagerProxy();
-        rootObj.put("pending tasks", cm.getPendingTasks());
-        JSONArray compStats = new JSONArray();
-        for (CompactionInfo c : cm.getCompactions())
-        {
-            JSONObject cObj = new JSONObject();
-            cObj.put("compaction type", c.getTaskType());
-            cObj.put("keyspace", c.getKeyspace());
-            cObj.put("column family", c.getColumnFamily());
-            cObj.put("bytes compacted", c.getBytesComplete());
-            cObj.put("bytes total", c.getTotalBytes());
-
-            String percentComplete = c.getTotalBytes() == 0 ? "n/a" : new DecimalFormat("0.00").format((double) c.getBytesComplete() / c.getTotalBytes() * 100) + "%";
-            cObj.put("progress", percentComplete);
-            compStats.put(cObj);
-        }
-        rootObj.put("compaction stats", compStats);
+        JMXNodeTool nodetool = jmx.get();
+        JSONObject rootObj = compactionProgress(nodetool);
         return Response.ok(rootObj, MediaType.APPLICATION_JSON).build();
     }
 
@@ -216,7 +206,7 @@ public class CassandraAdmin
     @Path("/disablegossip")
     public Response disablegossip() throws IOException, ExecutionException, InterruptedException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         nodetool.stopGossiping();
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
@@ -225,7 +215,7 @@ public class CassandraAdmin
     @Path("/enablegossip")
     public Response enablegossip() throws IOException, ExecutionException, InterruptedException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         nodetool.startGossiping();
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
@@ -234,7 +224,7 @@ public class CassandraAdmin
     @Path("/disablethrift")
     public Response disablethrift() throws IOException, ExecutionException, InterruptedException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         nodetool.stopThriftServer();
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
@@ -243,7 +233,7 @@ public class CassandraAdmin
     @Path("/enablethrift")
     public Response enablethrift() throws IOException, ExecutionException, InterruptedException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         nodetool.startThriftServer();
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
@@ -252,7 +242,7 @@ public class CassandraAdmin
     @Path("/statusthrift")
     public Response statusthrift() throws IOException, ExecutionException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         return Response.ok(new JSONObject().put("status", (nodetool.isThriftServerRunning() ? "running" : "not running")), MediaType.APPLICATION_JSON).build();
     }
 
@@ -260,7 +250,7 @@ public class CassandraAdmin
     @Path("/gossipinfo")
     public Response gossipinfo() throws IOException, ExecutionException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         JSONObject rootObj = new JSONObject();
         String[] ginfo = nodetool.getGossipInfo().split("/");
         for (String info : ginfo)
@@ -286,7 +276,7 @@ public class CassandraAdmin
     @Path("/netstats")
     public Response netstats(@QueryParam("host") String hostname) throws IOException, ExecutionException, InterruptedException, JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         JSONObject rootObj = new JSONObject();
         rootObj.put("mode", nodetool.getOperationMode());
         final InetAddress addr = (hostname == null) ? null : InetAddress.getByName(hostname);
@@ -383,7 +373,7 @@ public class CassandraAdmin
     @Path("/move")
     public Response moveToken(@QueryParam(REST_HEADER_TOKEN) String newToken) throws IOException, ExecutionException, InterruptedException, ConfigurationException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         nodetool.move(newToken);
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
@@ -393,7 +383,7 @@ public class CassandraAdmin
     public Response scrub(@QueryParam(REST_HEADER_KEYSPACES) String keyspaces, @QueryParam(REST_HEADER_CFS) String cfnames) throws IOException, ExecutionException, InterruptedException,
             ConfigurationException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         String[] cfs = null;
         if (StringUtils.isNotBlank(cfnames))
             cfs = cfnames.split(",");
@@ -409,7 +399,7 @@ public class CassandraAdmin
     public Response cfhistograms(@QueryParam(REST_HEADER_KEYSPACES) String keyspace, @QueryParam(REST_HEADER_CFS) String cfname) throws IOException, ExecutionException, InterruptedException,
             JSONException
     {
-        JMXNodeTool nodetool = JMXNodeTool.instance(config);
+        JMXNodeTool nodetool = jmx.get();
         if (StringUtils.isBlank(keyspace) || StringUtils.isBlank(cfname))
             return Response.status(400).entity("Missing keyspace/cfname in request").build();
 
@@ -449,4 +439,26 @@ public class CassandraAdmin
         return Response.ok(rootObj, MediaType.APPLICATION_JSON).build();
     }
 
+    private static JSONObject compactionProgress(JMXNodeTool nodetool) throws JSONException
+    {
+        JSONObject rootObj = new JSONObject();
+        CompactionManagerMBean cm = nodetool.getCompactionManagerProxy();
+        rootObj.put("pending tasks", cm.getPendingTasks());
+        JSONArray compStats = new JSONArray();
+        for (CompactionInfo c : cm.getCompactions())
+        {
+            JSONObject cObj = new JSONObject();
+            cObj.put("compaction type", c.getTaskType());
+            cObj.put("keyspace", c.getKeyspace());
+            cObj.put("column family", c.getColumnFamily());
+            cObj.put("bytes compacted", c.getBytesComplete());
+            cObj.put("bytes total", c.getTotalBytes());
+
+            String percentComplete = c.getTotalBytes() == 0 ? "n/a" : new DecimalFormat("0.00").format((double) c.getBytesComplete() / c.getTotalBytes() * 100) + "%";
+            cObj.put("progress", percentComplete);
+            compStats.put(cObj);
+        }
+        rootObj.put("compaction stats", compStats);
+        return rootObj;
+    }
 }
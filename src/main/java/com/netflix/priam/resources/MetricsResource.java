@@ -0,0 +1,108 @@
+package com.netflix.priam.resources;
+
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.Gauge;
+import com.netflix.priam.metrics.Histogram;
+import com.netflix.priam.metrics.Meter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+
+/**
+ * Serves the node's metrics as JSON, keyed by metric name. Timer durations are
+ * in milliseconds and rates in events per second.
+ */
+@Path("/v1/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class MetricsResource
+{
+    private static final String REST_HEADER_PREFIX = "prefix";
+
+    private final MetricRegistry registry;
+
+    public MetricsResource()
+    {
+        this(MetricRegistry.getInstance());
+    }
+
+    MetricsResource(MetricRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    @GET
+    public Response metrics(@QueryParam(REST_HEADER_PREFIX) String prefix) throws JSONException
+    {
+        JSONObject object = new JSONObject();
+        for (Map.Entry<String, Object> entry : registry.getMetrics().entrySet())
+        {
+            if (prefix != null && !entry.getKey().startsWith(prefix))
+                continue;
+            object.put(entry.getKey(), toJson(entry.getValue()));
+        }
+        return Response.ok(object.toString(), MediaType.APPLICATION_JSON).build();
+    }
+
+    private JSONObject toJson(Object metric) throws JSONException
+    {
+        JSONObject object = new JSONObject();
+        if (metric instanceof Counter)
+        {
+            object.put("type", "counter");
+            object.put("count", ((Counter) metric).getCount());
+        }
+        else if (metric instanceof Gauge)
+        {
+            object.put("type", "gauge");
+            object.put("value", ((Gauge) metric).getValue());
+        }
+        else if (metric instanceof Histogram)
+        {
+            Histogram histogram = (Histogram) metric;
+            object.put("type", "histogram");
+            object.put("count", histogram.getCount());
+            object.put("min", histogram.getMin());
+            object.put("max", histogram.getMax());
+            object.put("mean", histogram.getMean());
+            object.put("p50", histogram.get50thPercentile());
+            object.put("p95", histogram.get95thPercentile());
+            object.put("p99", histogram.get99thPercentile());
+        }
+        else if (metric instanceof Meter)
+        {
+            Meter meter = (Meter) metric;
+            object.put("type", "meter");
+            object.put("count", meter.getCount());
+            object.put("mean_rate", meter.getMeanRate());
+            object.put("m1_rate", meter.getOneMinuteRate());
+            object.put("m5_rate", meter.getFiveMinuteRate());
+            object.put("m15_rate", meter.getFifteenMinuteRate());
+        }
+        else if (metric instanceof Timer)
+        {
+            Timer timer = (Timer) metric;
+            object.put("type", "timer");
+            object.put("count", timer.getCount());
+            object.put("min_ms", timer.getMinMillis());
+            object.put("max_ms", timer.getMaxMillis());
+            object.put("mean_ms", timer.getMeanMillis());
+            object.put("p50_ms", timer.get50thPercentileMillis());
+            object.put("p95_ms", timer.get95thPercentileMillis());
+            object.put("p99_ms", timer.get99thPercentileMillis());
+            object.put("m1_rate", timer.getOneMinuteRate());
+            object.put("m5_rate", timer.getFiveMinuteRate());
+        }
+        return object;
+    }
+}
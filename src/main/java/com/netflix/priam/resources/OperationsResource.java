@@ -0,0 +1,78 @@
+package com.netflix.priam.resources;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+
+import com.google.inject.Inject;
+import com.netflix.priam.scheduler.Operation;
+import com.netflix.priam.scheduler.OperationInProgressException;
+import com.netflix.priam.scheduler.OperationManager;
+import com.netflix.priam.scheduler.OperationManager.Job;
+
+/**
+ * Polls the admin operations started through the other resources, with their
+ * progress while they run.
+ */
+@Path("/v1/operations")
+@Produces(MediaType.APPLICATION_JSON)
+public class OperationsResource
+{
+    private static final String REST_HEADER_ID = "id";
+    // seconds a client waits before submitting again while all slots are taken
+    private static final int RETRY_AFTER = 60;
+    private final OperationManager operations;
+
+    @Inject
+    public OperationsResource(OperationManager operations)
+    {
+        this.operations = operations;
+    }
+
+    @GET
+    public Response operations(@QueryParam(REST_HEADER_ID) String id) throws JSONException
+    {
+        if (id != null)
+        {
+            Job job = operations.get(id);
+            if (job == null)
+                return Response.status(404).entity("Unknown operation " + id).build();
+            return Response.ok(job.toJSON(), MediaType.APPLICATION_JSON).build();
+        }
+        JSONArray jobs = new JSONArray();
+        for (Job job : operations.list())
+            jobs.put(job.toJSON());
+        return Response.ok(jobs, MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Start the operation in the background.
+     * 
+     * @return 202 with the job to poll, 409 if the operation is already in
+     *         progress, or 503 with Retry-After if too many operations are
+     */
+    static Response submit(OperationManager operations, Operation operation) throws JSONException
+    {
+        try
+        {
+            Job job = operations.submit(operation);
+            return Response.status(Response.Status.ACCEPTED).entity(job.toJSON()).type(MediaType.APPLICATION_JSON).build();
+        }
+        catch (OperationInProgressException e)
+        {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        }
+        catch (RejectedExecutionException e)
+        {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", RETRY_AFTER).entity(e.getMessage()).build();
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package com.netflix.priam.scheduler;
 
-import java.text.ParseException;
-
-import org.quartz.CronTrigger;
-import org.quartz.Scheduler;
-import org.quartz.Trigger;
+import java.util.Calendar;
+import java.util.Random;
 
 /**
- * Runs jobs at the specified absolute time and frequency
+ * Runs jobs at the specified absolute time and frequency, in the local time
+ * zone.
+ *
+ * The time of each run is worked out from its date, so a daily job runs once
+ * a day at the same local time across daylight saving changes.
+ *
+ * A jitter delays the runs by a random time up to it, picked once so the
+ * runs keep to the period. The nodes of a cluster then do not all start the
+ * same job at the same second.
  */
 public class CronTimer implements TaskTimer
 {
-    private String cronExpression;
+    private static final Random random = new Random();
+    private static final long HOUR = 60L * 60 * 1000;
+    private static final long DAY = 24 * HOUR;
+    private final int period;
+    private final int dayOfWeek;
+    private final int hour;
+    private final int minute;
+    private final int sec;
+    private long offset;
 
     public enum DayOfWeek
     {
@@ -23,7 +36,7 @@ public class CronTimer implements TaskTimer
      */
     public CronTimer(int minute, int sec)
     {
-        cronExpression = sec + " " + minute + " * * * ?";
+        this(Calendar.HOUR_OF_DAY, -1, -1, minute, sec);
     }
 
     /**
@@ -31,7 +44,7 @@ public class CronTimer implements TaskTimer
      */
     public CronTimer(int hour, int minute, int sec)
     {
-        cronExpression = sec + " " + minute + " " + hour + " * * ?";
+        this(Calendar.DAY_OF_MONTH, -1, hour, minute, sec);
     }
 
     /**
@@ -39,19 +52,111 @@ public class CronTimer implements TaskTimer
      */
     public CronTimer(DayOfWeek dayofweek, int hour, int minute, int sec)
     {
-        cronExpression = sec + " " + minute + " " + hour + " * * " + dayofweek;
+        this(Calendar.WEEK_OF_YEAR, Calendar.SUNDAY + dayofweek.ordinal(), hour, minute, sec);
+    }
+
+    private CronTimer(int period, int dayOfWeek, int hour, int minute, int sec)
+    {
+        this.period = period;
+        this.dayOfWeek = dayOfWeek;
+        this.hour = hour;
+        this.minute = minute;
+        this.sec = sec;
     }
 
     /**
-     * Cron Expression.
+     * Delay the runs by up to the given milliseconds
+     *
+     * @throws IllegalArgumentException
+     *             unless the jitter is less than the period, a delayed run
+     *             would otherwise fall in the next period
      */
-    public CronTimer(String expression)
+    public CronTimer withJitter(long jitter)
+    {
+        if (jitter < 0 || jitter >= length())
+            throw new IllegalArgumentException("Jitter of " + jitter + " ms is not within the period of " + length() + " ms");
+        this.offset = (long) (random.nextDouble() * jitter);
+        return this;
+    }
+
+    public long getFirstRun(long now)
     {
-        this.cronExpression = expression;
+        return next(now);
     }
 
-    public Trigger getTrigger() throws ParseException
+    public long getNextRun(long scheduled, long finished)
+    {
+        return next(Math.max(scheduled, finished));
+    }
+
+    /**
+     * @return the nominal length of the period
+     */
+    private long length()
+    {
+        if (period == Calendar.HOUR_OF_DAY)
+            return HOUR;
+        return period == Calendar.DAY_OF_MONTH ? DAY : 7 * DAY;
+    }
+
+    /**
+     * @return the first run after the given time
+     */
+    private long next(long after)
+    {
+        if (period == Calendar.HOUR_OF_DAY)
+            return nextHourly(after);
+        // the run of the last period may be delayed past the given time
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(after - length());
+        // noon is on the same date whatever the daylight saving shifts
+        day.set(Calendar.HOUR_OF_DAY, 12);
+        day.add(Calendar.DAY_OF_MONTH, -1);
+        while (true)
+        {
+            if (dayOfWeek < 0 || day.get(Calendar.DAY_OF_WEEK) == dayOfWeek)
+            {
+                long run = at(day) + offset;
+                if (run > after)
+                    return run;
+            }
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+    /**
+     * Hours are counted in elapsed time, so the hour repeated when daylight
+     * saving ends has its run too.
+     */
+    private long nextHourly(long after)
+    {
+        Calendar time = Calendar.getInstance();
+        time.setTimeInMillis(after - HOUR);
+        time.set(Calendar.MINUTE, 0);
+        time.set(Calendar.SECOND, 0);
+        time.set(Calendar.MILLISECOND, 0);
+        long run = time.getTimeInMillis() + minute * 60 * 1000L + sec * 1000L + offset;
+        while (run <= after)
+            run += HOUR;
+        return run;
+    }
+
+    /**
+     * @return the run time on the date of the given day, worked out afresh
+     *         from the date so daylight saving does not carry over from
+     *         another day. A time skipped by daylight saving runs as late
+     *         after the change, a time repeated runs at its first occurrence.
+     */
+    private long at(Calendar day)
     {
-        return new CronTrigger("CronTrigger", Scheduler.DEFAULT_GROUP, cronExpression);
+        Calendar time = Calendar.getInstance();
+        time.clear();
+        time.set(day.get(Calendar.YEAR), day.get(Calendar.MONTH), day.get(Calendar.DAY_OF_MONTH), hour, minute, sec);
+        long run = time.getTimeInMillis();
+        Calendar earlier = Calendar.getInstance();
+        earlier.setTimeInMillis(run - HOUR);
+        if (earlier.get(Calendar.DAY_OF_MONTH) == time.get(Calendar.DAY_OF_MONTH) && earlier.get(Calendar.HOUR_OF_DAY) == hour && earlier.get(Calendar.MINUTE) == minute)
+            return run - HOUR;
+        return run;
     }
 }
@@ -3,6 +3,8 @@ package com.netflix.priam.scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.priam.metrics.Timer;
+
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -14,13 +16,25 @@ public class CustomizedThreadPoolExecutor extends ThreadPoolExecutor
     private BlockingQueue<Runnable> queue;
     private long giveupTime;
     private AtomicInteger active;
+    private Timer queueWait;
 
     public CustomizedThreadPoolExecutor(int maximumPoolSize, BlockingQueue<Runnable> workQueue, long timeoutAdding)
+    {
+        this(maximumPoolSize, workQueue, timeoutAdding, null);
+    }
+
+    /**
+     * @param queueWait
+     *            records how long each task waits between submit and start,
+     *            may be null
+     */
+    public CustomizedThreadPoolExecutor(int maximumPoolSize, BlockingQueue<Runnable> workQueue, long timeoutAdding, Timer queueWait)
     {
         super(maximumPoolSize, maximumPoolSize, DEFAULT_KEEP_ALIVE, TimeUnit.SECONDS, workQueue);
         this.queue = workQueue;
         this.giveupTime = timeoutAdding;
         this.active = new AtomicInteger(0);
+        this.queueWait = queueWait;
     }
 
     /**
@@ -29,7 +43,24 @@ public class CustomizedThreadPoolExecutor extends ThreadPoolExecutor
      * there is a free thread.
      */
     @Override
-    public <T> Future<T> submit(Callable<T> task)
+    public <T> Future<T> submit(final Callable<T> task)
+    {
+        if (queueWait != null)
+        {
+            final Timer.Context waiting = queueWait.time();
+            return submitWhenFree(new Callable<T>()
+            {
+                public T call() throws Exception
+                {
+                    waiting.stop();
+                    return task.call();
+                }
+            });
+        }
+        return submitWhenFree(task);
+    }
+
+    private <T> Future<T> submitWhenFree(Callable<T> task)
     {
         synchronized (this)
         {
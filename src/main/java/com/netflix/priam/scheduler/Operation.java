@@ -0,0 +1,34 @@
+package com.netflix.priam.scheduler;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Long running admin operation, run in the background by OperationManager.
+ * Only one operation of a type runs at a time.
+ */
+public abstract class Operation
+{
+    private final String type;
+
+    public Operation(String type)
+    {
+        this.type = type;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public abstract void run() throws Exception;
+
+    /**
+     * What the operation has done so far, polled while it runs. Nothing by
+     * default.
+     */
+    public JSONObject progress() throws JSONException
+    {
+        return new JSONObject();
+    }
+}
@@ -0,0 +1,17 @@
+package com.netflix.priam.scheduler;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An operation was turned away because another of its type is queued or
+ * running. Unlike other rejections, trying again soon does not help.
+ */
+public class OperationInProgressException extends RejectedExecutionException
+{
+    private static final long serialVersionUID = 336L;
+
+    public OperationInProgressException(String message)
+    {
+        super(message);
+    }
+}
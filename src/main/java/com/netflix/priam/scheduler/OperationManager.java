@@ -0,0 +1,249 @@
+package com.netflix.priam.scheduler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Singleton;
+
+/**
+ * Runs admin operations in the background so REST calls return a job id
+ * right away instead of holding the request thread for hours. At most one
+ * operation of each type runs at a time, and at most {@link #MAX_RUNNING}
+ * overall. Finished jobs are kept for polling until {@link #MAX_FINISHED}
+ * newer ones finished.
+ */
+@Singleton
+public class OperationManager
+{
+    private static final Logger logger = LoggerFactory.getLogger(OperationManager.class);
+    public static final int MAX_RUNNING = 4;
+    private static final int MAX_QUEUED = 16;
+    private static final int MAX_FINISHED = 100;
+
+    public enum State
+    {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    public class Job implements Runnable
+    {
+        private final String id;
+        private final Operation operation;
+        private final long submitted = System.currentTimeMillis();
+        private volatile State state = State.QUEUED;
+        private volatile long started;
+        private volatile long finished;
+        private volatile String error;
+
+        Job(String id, Operation operation)
+        {
+            this.id = id;
+            this.operation = operation;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public State getState()
+        {
+            return state;
+        }
+
+        public void run()
+        {
+            try
+            {
+                call();
+            }
+            catch (Throwable e)
+            {
+                // recorded and logged by call()
+            }
+        }
+
+        private void call() throws Exception
+        {
+            started = System.currentTimeMillis();
+            state = State.RUNNING;
+            logger.info("Starting " + id);
+            State result = State.FAILED;
+            try
+            {
+                operation.run();
+                result = State.SUCCEEDED;
+                logger.info("Finished " + id);
+            }
+            catch (Exception e)
+            {
+                failed(e);
+                throw e;
+            }
+            catch (Error e)
+            {
+                failed(e);
+                throw e;
+            }
+            finally
+            {
+                finished = System.currentTimeMillis();
+                // free the type before anyone polling sees the job done
+                done(this);
+                state = result;
+            }
+        }
+
+        private void failed(Throwable e)
+        {
+            error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            logger.error("Failed " + id, e);
+        }
+
+        public JSONObject toJSON() throws JSONException
+        {
+            JSONObject object = new JSONObject();
+            object.put("id", id);
+            object.put("type", operation.getType());
+            object.put("state", state.name());
+            object.put("submitted", submitted);
+            if (started > 0)
+                object.put("started", started);
+            if (finished > 0)
+                object.put("finished", finished);
+            if (error != null)
+                object.put("error", error);
+            if (state == State.RUNNING)
+            {
+                try
+                {
+                    object.put("progress", operation.progress());
+                }
+                catch (Exception e)
+                {
+                    object.put("progress", "unavailable: " + e.getMessage());
+                }
+            }
+            return object;
+        }
+    }
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_RUNNING, MAX_RUNNING, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED), new NamedThreadFactory(
+            "AdminOperation"));
+    private final AtomicLong sequence = new AtomicLong();
+    // queued or running job of each type
+    private final ConcurrentMap<String, Job> active = new ConcurrentHashMap<String, Job>();
+    private final Map<String, Job> jobs = new LinkedHashMap<String, Job>();
+
+    /**
+     * @return the job running the operation
+     * @throws OperationInProgressException
+     *             if an operation of the same type is in progress
+     * @throws RejectedExecutionException
+     *             if too many operations are
+     */
+    public Job submit(Operation operation)
+    {
+        Job job = claim(operation);
+        try
+        {
+            executor.execute(job);
+        }
+        catch (RejectedExecutionException e)
+        {
+            active.remove(operation.getType(), job);
+            throw new RejectedExecutionException("Too many operations in progress, " + operation.getType() + " rejected");
+        }
+        synchronized (jobs)
+        {
+            jobs.put(job.getId(), job);
+        }
+        return job;
+    }
+
+    /**
+     * Run the operation on the calling thread, listed and holding its type
+     * like a submitted one. For scheduled tasks which must not overlap with
+     * the same operation started through the REST API.
+     *
+     * @throws OperationInProgressException
+     *             if an operation of the same type is in progress
+     */
+    public void run(Operation operation) throws Exception
+    {
+        Job job = claim(operation);
+        synchronized (jobs)
+        {
+            jobs.put(job.getId(), job);
+        }
+        job.call();
+    }
+
+    private Job claim(Operation operation)
+    {
+        Job job = new Job(operation.getType() + "-" + sequence.incrementAndGet(), operation);
+        Job current = active.putIfAbsent(operation.getType(), job);
+        if (current != null)
+            throw new OperationInProgressException(operation.getType() + " is already in progress as " + current.getId());
+        return job;
+    }
+
+    /**
+     * @return the job, or {@code null} if it is unknown or was forgotten
+     */
+    public Job get(String id)
+    {
+        synchronized (jobs)
+        {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * All known jobs, oldest first
+     */
+    public List<Job> list()
+    {
+        synchronized (jobs)
+        {
+            return Lists.newArrayList(jobs.values());
+        }
+    }
+
+    private void done(Job job)
+    {
+        active.remove(job.operation.getType(), job);
+        synchronized (jobs)
+        {
+            int finished = 0;
+            for (Job j : jobs.values())
+                if (j.finished > 0)
+                    finished++;
+            Iterator<Job> it = jobs.values().iterator();
+            while (finished > MAX_FINISHED && it.hasNext())
+            {
+                if (it.next().finished > 0)
+                {
+                    it.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+}
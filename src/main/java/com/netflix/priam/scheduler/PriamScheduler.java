@@ -1,85 +1,202 @@
 package com.netflix.priam.scheduler;
 
-import java.text.ParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import org.quartz.JobDetail;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
-import org.quartz.SchedulerFactory;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
+import com.google.inject.Injector;
 import com.google.inject.Singleton;
+import com.netflix.priam.metrics.MetricRegistry;
 
 /**
- * Scheduling class to schedule Priam tasks. Uses Quartz scheduler
+ * Scheduling class to schedule Priam tasks.
+ *
+ * Each task runs on a thread of its own unless it is added to a named
+ * executor, which the tasks added to it take turns on. A long snapshot then
+ * does not hold back the incremental backups. A task is scheduled again once
+ * a run is over, so runs of one task never overlap. How late each run starts
+ * against its schedule is kept in the task.NAME.lateness histogram, how long
+ * it takes in the task.NAME.duration timer.
  */
 @Singleton
 public class PriamScheduler
 {
-    private final Scheduler scheduler;
-    private final GuiceJobFactory jobFactory;
+    private static final Logger logger = LoggerFactory.getLogger(PriamScheduler.class);
+    private final Injector injector;
+    private final ConcurrentMap<String, ScheduledExecutorService> executors = new ConcurrentHashMap<String, ScheduledExecutorService>();
+    private final ConcurrentMap<String, ScheduledTask> tasks = new ConcurrentHashMap<String, ScheduledTask>();
+    private boolean started;
 
     @Inject
-    public PriamScheduler(SchedulerFactory factory, GuiceJobFactory jobFactory)
+    public PriamScheduler(Injector injector)
     {
-        try
+        this.injector = injector;
+    }
+
+    /**
+     * Add a task to the scheduler, on a thread of its own
+     */
+    public void addTask(String name, Class<? extends Task> taskclass, TaskTimer timer)
+    {
+        addTask(name, taskclass, timer, name);
+    }
+
+    /**
+     * Add a task to the scheduler, on the named executor. A task added under
+     * the name of one already scheduled replaces it.
+     */
+    public synchronized void addTask(String name, Class<? extends Task> taskclass, TaskTimer timer, String executor)
+    {
+        assert timer != null : "Cannot add scheduler task " + name + " as no timer is set";
+        deleteTask(name);
+        ScheduledTask task = new ScheduledTask(name, taskclass, timer, executor);
+        tasks.put(name, task);
+        if (started)
+            task.schedule(timer.getFirstRun(System.currentTimeMillis()));
+        logger.info("Scheduled " + timer);
+    }
+
+    private ScheduledExecutorService executor(String name)
+    {
+        ScheduledExecutorService executor = executors.get(name);
+        if (executor == null)
         {
-            this.scheduler = factory.getScheduler();
-            this.scheduler.setJobFactory(jobFactory);
-            this.jobFactory = jobFactory;
+            executors.putIfAbsent(name, Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("PriamScheduler-" + name)));
+            executor = executors.get(name);
         }
-        catch (SchedulerException e)
+        return executor;
+    }
+
+    /**
+     * Drop a task which will not run again
+     */
+    private synchronized void finished(ScheduledTask task)
+    {
+        if (tasks.remove(task.name, task))
+            release(task.executorName);
+    }
+
+    /**
+     * Shut an executor down once no task uses it, the run under way on it is
+     * left to finish
+     */
+    private void release(String executorName)
+    {
+        for (ScheduledTask other : tasks.values())
         {
-            throw new RuntimeException(e);
+            if (other.executorName.equals(executorName))
+                return;
         }
+        ScheduledExecutorService executor = executors.remove(executorName);
+        if (executor != null)
+            executor.shutdown();
     }
 
     /**
-     * Add a task to the scheduler
+     * Run the task on the calling thread, unless it is already running
      */
-    public void addTask(String name, Class<? extends Task> taskclass, TaskTimer timer) throws SchedulerException, ParseException
+    public void runTaskNow(Class<? extends Task> taskclass)
     {
-        assert timer != null : "Cannot add scheduler task " + name + " as no timer is set";
-        JobDetail job = new JobDetail(name, Scheduler.DEFAULT_GROUP, taskclass);
-        scheduler.scheduleJob(job, timer.getTrigger());
+        injector.getInstance(taskclass).run();
     }
 
-    public void runTaskNow(Class<? extends Task> taskclass) throws Exception
+    public synchronized void deleteTask(String name)
     {
-        jobFactory.guice.getInstance(taskclass).execute(null);
+        ScheduledTask task = tasks.remove(name);
+        if (task != null)
+        {
+            task.cancel();
+            release(task.executorName);
+        }
     }
 
-    public void deleteTask(String name) throws SchedulerException, ParseException
+    /**
+     * Stop scheduling, the runs under way are left to finish
+     */
+    public synchronized void shutdown()
     {
-        scheduler.deleteJob(name, Scheduler.DEFAULT_GROUP);
+        started = false;
+        for (ScheduledTask task : tasks.values())
+            task.cancel();
+        tasks.clear();
+        for (ScheduledExecutorService executor : executors.values())
+            executor.shutdown();
+        executors.clear();
     }
 
-    public final Scheduler getScheduler()
+    public synchronized void start()
     {
-        return scheduler;
+        started = true;
+        long now = System.currentTimeMillis();
+        for (ScheduledTask task : tasks.values())
+            task.schedule(task.timer.getFirstRun(now));
     }
 
-    public void shutdown()
+    private class ScheduledTask implements Runnable
     {
-        try
+        private final String name;
+        private final Class<? extends Task> taskclass;
+        private final TaskTimer timer;
+        private final String executorName;
+        private final ScheduledExecutorService executor;
+        private long due;
+        private Future<?> next;
+        private boolean cancelled;
+
+        ScheduledTask(String name, Class<? extends Task> taskclass, TaskTimer timer, String executorName)
         {
-            scheduler.shutdown();
+            this.name = name;
+            this.taskclass = taskclass;
+            this.timer = timer;
+            this.executorName = executorName;
+            this.executor = executor(executorName);
         }
-        catch (SchedulerException e)
+
+        synchronized void schedule(long time)
         {
-            throw new RuntimeException(e);
+            if (cancelled)
+                return;
+            due = time;
+            next = executor.schedule(this, Math.max(0, time - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
         }
-    }
 
-    public void start()
-    {
-        try
+        synchronized void cancel()
         {
-            scheduler.start();
+            cancelled = true;
+            if (next != null)
+                next.cancel(false);
         }
-        catch (SchedulerException ex)
+
+        public void run()
         {
-            throw new RuntimeException(ex);
+            long scheduled;
+            synchronized (this)
+            {
+                scheduled = due;
+            }
+            try
+            {
+                Task task = injector.getInstance(taskclass);
+                MetricRegistry.getInstance().histogram("task." + task.getName() + ".lateness").update(Math.max(0, System.currentTimeMillis() - scheduled));
+                task.run();
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Unable to run " + name, e);
+            }
+            long time = timer.getNextRun(scheduled, System.currentTimeMillis());
+            if (time >= 0)
+                schedule(time);
+            else
+                finished(this);
         }
     }
 }
@@ -1,31 +1,34 @@
 package com.netflix.priam.scheduler;
 
-import java.text.ParseException;
 import java.util.Date;
 
-import org.quartz.Scheduler;
-import org.quartz.SimpleTrigger;
-import org.quartz.Trigger;
-
 /**
  * SimpleTimer allows jobs to run starting from specified time occurring at
  * regular frequency's. Frequency of the execution timestamp since epoch.
+ *
+ * At a fixed rate, runs which fell due while the previous one was still going
+ * are skipped rather than queued, the next one keeps to the rate. At a fixed
+ * delay ({@link #fixedDelay(String, long)}) the interval counts from the end
+ * of the previous run.
  */
 public class SimpleTimer implements TaskTimer
 {
-    private SimpleTrigger trigger;
+    private final String name;
+    private final long start;
+    private final long interval;
+    private final boolean fixedDelay;
 
     public SimpleTimer(String name, long interval)
     {
-        this.trigger = new SimpleTrigger(name, SimpleTrigger.REPEAT_INDEFINITELY, interval);
+        this(name, -1, interval, false);
     }
 
     /**
      * Run once at given time...
      */
-    public SimpleTimer(String name, String group, long startTime)
+    public SimpleTimer(String name, Date startTime)
     {
-        this.trigger = new SimpleTrigger(name, group, new Date(startTime));
+        this(name, startTime.getTime(), 0, false);
     }
 
     /**
@@ -33,12 +36,47 @@ public class SimpleTimer implements TaskTimer
      */
     public SimpleTimer(String name)
     {
-        this.trigger = new SimpleTrigger(name, Scheduler.DEFAULT_GROUP);
+        this(name, -1, 0, false);
+    }
+
+    private SimpleTimer(String name, long start, long interval, boolean fixedDelay)
+    {
+        this.name = name;
+        this.start = start;
+        this.interval = interval;
+        this.fixedDelay = fixedDelay;
+    }
+
+    /**
+     * Run immediately, then the given delay after each run ends.
+     */
+    public static SimpleTimer fixedDelay(String name, long delay)
+    {
+        return new SimpleTimer(name, -1, delay, true);
+    }
+
+    public long getFirstRun(long now)
+    {
+        return start < 0 ? now : start;
+    }
+
+    public long getNextRun(long scheduled, long finished)
+    {
+        if (interval <= 0)
+            return -1;
+        if (fixedDelay)
+            return finished + interval;
+        long next = scheduled + interval;
+        if (next < finished)
+            next += ((finished - next) / interval + 1) * interval;
+        return next;
     }
 
-    public Trigger getTrigger() throws ParseException
+    @Override
+    public String toString()
     {
-        trigger.setMisfireInstruction(SimpleTrigger.MISFIRE_INSTRUCTION_FIRE_NOW);
-        return trigger;
+        if (interval <= 0)
+            return name + " once";
+        return name + (fixedDelay ? " with a delay of " : " every ") + interval + " ms";
     }
 }
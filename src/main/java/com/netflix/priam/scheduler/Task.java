@@ -2,24 +2,25 @@ package com.netflix.priam.scheduler;
 
 import com.google.common.base.Throwables;
 import com.netflix.priam.IConfiguration;
-import org.quartz.Job;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Task class that should be implemented by all cron tasks. Jobconf will contain
- * any instance specific data
+ * Task class that should be implemented by all cron tasks. A task runs once at
+ * a time: a run which finds the previous one still going is skipped, whether
+ * it comes from the schedule or from {@link PriamScheduler#runTaskNow(Class)}.
  * 
- * NOTE: Constructor must not throw any exception. This will cause Quartz to set the job to failure
+ * NOTE: Constructor must not throw any exception. This will cause the scheduler to fail the task
  */
-public abstract class Task implements Job, TaskMBean
+public abstract class Task implements Runnable, TaskMBean
 {
     public STATE status = STATE.DONE;
 
@@ -32,6 +33,7 @@ public abstract class Task implements Job, TaskMBean
     private static final Logger logger = LoggerFactory.getLogger(Task.class);
     private final AtomicInteger errors = new AtomicInteger();
     private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean();
 
     protected Task(IConfiguration config)
     {
@@ -67,16 +69,20 @@ public abstract class Task implements Job, TaskMBean
     /**
      * Main method to execute a task
      */
-    public void execute(JobExecutionContext context) throws JobExecutionException
+    public void run()
     {
         executions.incrementAndGet();
+        if (!running.compareAndSet(false, true))
+        {
+            logger.info(getName() + " is still running, skipping this run");
+            return;
+        }
+        Timer.Context duration = MetricRegistry.getInstance().timer("task." + getName() + ".duration").time();
         try
         {
-            if (status == STATE.RUNNING)
-                return;
             status = STATE.RUNNING;
             execute();
-
+            status = STATE.DONE;
         }
         catch (Exception e)
         {
@@ -90,8 +96,11 @@ public abstract class Task implements Job, TaskMBean
             logger.error("Couldnt execute the task because of " + e.getMessage(), e);
             errors.incrementAndGet();
         }
-        if (status != STATE.ERROR)
-            status = STATE.DONE;
+        finally
+        {
+            duration.stop();
+            running.set(false);
+        }
     }
 
     public STATE state()
@@ -1,13 +1,19 @@
 package com.netflix.priam.scheduler;
 
-import java.text.ParseException;
-
-import org.quartz.Trigger;
-
 /**
- * Interface to represent time/interval 
+ * Interface to represent time/interval. Times are in milliseconds since the
+ * epoch.
  */
 public interface TaskTimer
 {
-    public Trigger getTrigger() throws ParseException;
+    /**
+     * @return when the first run is due, for a task scheduled at now
+     */
+    public long getFirstRun(long now);
+
+    /**
+     * @return when the run after the one due at scheduled, which finished at
+     *         finished, is due. -1 if the task does not run again
+     */
+    public long getNextRun(long scheduled, long finished);
 }
@@ -0,0 +1,80 @@
+package com.netflix.priam.utils;
+
+import java.util.Random;
+
+/**
+ * Delay sequence between retries of one call. Delays are randomized so that
+ * threads and nodes failing at the same time do not retry in lock step.
+ */
+public abstract class Backoff
+{
+    private static final Random random = new Random();
+
+    /**
+     * @return the time to sleep before the next attempt
+     */
+    public abstract long nextDelay();
+
+    /**
+     * @return true once the sequence has grown past its cap and the caller
+     *         should give up
+     */
+    public boolean isExhausted()
+    {
+        return false;
+    }
+
+    /**
+     * Uniformly spread between half and one and a half times the given wait.
+     */
+    public static Backoff jittered(final long wait)
+    {
+        return new Backoff()
+        {
+            @Override
+            public long nextDelay()
+            {
+                return wait / 2 + nextLong(wait + 1);
+            }
+        };
+    }
+
+    /**
+     * Exponential backoff with decorrelated jitter: each delay is picked
+     * between base and three times the previous delay, capped at max. The
+     * sequence is exhausted when the undithered exponential delay (base
+     * doubling on every attempt) exceeds max.
+     */
+    public static Backoff decorrelated(final long base, final long max)
+    {
+        return new Backoff()
+        {
+            private long last = base;
+            private long nominal = base;
+
+            @Override
+            public long nextDelay()
+            {
+                nominal = Math.min(nominal * 2, Long.MAX_VALUE / 4);
+                last = Math.min(max, base + nextLong(Math.max(1, last * 3 - base)));
+                return last;
+            }
+
+            @Override
+            public boolean isExhausted()
+            {
+                return nominal > max;
+            }
+        };
+    }
+
+    private static long nextLong(long bound)
+    {
+        if (bound <= 0)
+            return 0;
+        synchronized (random)
+        {
+            return (long) (random.nextDouble() * bound);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.netflix.priam.utils;
+
+/**
+ * Bound on the bytes held by requests in flight. A producer acquires the size
+ * of its buffer before handing it to a request and blocks while the budget is
+ * spent, so memory stays bounded whatever the number of requests or threads.
+ * A buffer larger than the whole budget is let through once nothing else is
+ * in flight, rather than never.
+ */
+public class ByteBudget
+{
+    private final long capacity;
+    private long inFlight;
+
+    public ByteBudget(long capacity)
+    {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Wait until the bytes fit in the budget and take them.
+     */
+    public synchronized void acquire(long bytes) throws InterruptedException
+    {
+        while (inFlight > 0 && inFlight + bytes > capacity)
+            wait();
+        inFlight += bytes;
+    }
+
+    /**
+     * Take the bytes if they fit in the budget now. A caller already holding
+     * part of the budget uses this rather than wait for others to give back
+     * theirs, which may be waiting on it in turn.
+     *
+     * @return false if the bytes were not taken
+     */
+    public synchronized boolean tryAcquire(long bytes)
+    {
+        if (inFlight > 0 && inFlight + bytes > capacity)
+            return false;
+        inFlight += bytes;
+        return true;
+    }
+
+    /**
+     * Return bytes taken by {@link #acquire(long)}, once their request is done.
+     */
+    public synchronized void release(long bytes)
+    {
+        inFlight = Math.max(0, inFlight - bytes);
+        notifyAll();
+    }
+
+    public synchronized long getInFlight()
+    {
+        return inFlight;
+    }
+
+    public long getCapacity()
+    {
+        return capacity;
+    }
+}
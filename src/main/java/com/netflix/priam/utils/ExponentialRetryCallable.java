@@ -1,59 +1,32 @@
 package com.netflix.priam.utils;
 
-import java.util.concurrent.CancellationException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+/**
+ * Retries with exponentially growing, decorrelated jittered delays until the
+ * delay would exceed the maximum sleep.
+ */
 public abstract class ExponentialRetryCallable<T> extends RetryableCallable<T>
 {    
     public final static long MAX_SLEEP = 240000;
     public final static long MIN_SLEEP = 200;
 
-    private static final Logger logger = LoggerFactory.getLogger(RetryableCallable.class);
     private long max;
     private long min;
 
     public ExponentialRetryCallable()
     {
-        this.max = MAX_SLEEP;
-        this.min = MIN_SLEEP;
+        this(MIN_SLEEP, MAX_SLEEP);
     }
 
     public ExponentialRetryCallable(long minSleep, long maxSleep)
     {
+        super(Integer.MAX_VALUE, minSleep);
         this.max = maxSleep;
         this.min = minSleep;
     }
 
-    public T call() throws Exception
+    @Override
+    protected Backoff newBackoff()
     {
-        long delay = min;// ms
-        while (true)
-        {
-            try
-            {
-                return retriableCall();
-            }
-            catch (CancellationException e)
-            {
-                throw e;
-            }
-            catch (Exception e)
-            {                
-                delay *= 2;
-                if (delay > max)
-                {
-                    throw e;
-                }
-                logger.error(e.getMessage());
-                Thread.sleep(delay);
-            }
-            finally
-            {
-                forEachExecution();
-            }
-        }
+        return Backoff.decorrelated(min, max);
     }
-
 }
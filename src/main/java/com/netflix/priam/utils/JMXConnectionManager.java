@@ -0,0 +1,223 @@
+package com.netflix.priam.utils;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.Gauge;
+import com.netflix.priam.metrics.MetricRegistry;
+
+/**
+ * Hands out the JMX connection to the local Cassandra. The connection is
+ * shared: RMI multiplexes concurrent calls, so callers do not wait on each
+ * other. A background check replaces it when Cassandra stops answering,
+ * callers are not charged for the check.
+ *
+ * Connecting is bounded by {@link #CONNECT_TIMEOUT}. After a failure, callers
+ * fail fast until the back-off expires or the background check reconnects,
+ * instead of each of them waiting on a Cassandra which is down.
+ */
+@Singleton
+public class JMXConnectionManager
+{
+    private static final Logger logger = LoggerFactory.getLogger(JMXConnectionManager.class);
+    public static final long CONNECT_TIMEOUT = 5 * 1000;
+    private static final long CHECK_INTERVAL = 10 * 1000;
+    private static final long MIN_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 30 * 1000;
+
+    private static final Counter connects = MetricRegistry.getInstance().counter("jmx.connects");
+    private static final Counter failures = MetricRegistry.getInstance().counter("jmx.connect_failures");
+    private static final Counter rejected = MetricRegistry.getInstance().counter("jmx.rejected");
+
+    private final IConfiguration config;
+    private final ExecutorService connector = Executors.newCachedThreadPool(new NamedThreadFactory("JMXConnect"));
+    private volatile JMXNodeTool tool;
+    // circuit breaker, callers are turned away until openUntil
+    private volatile long openUntil;
+    private long backoff = MIN_BACKOFF;
+
+    @Inject
+    public JMXConnectionManager(IConfiguration config)
+    {
+        this(config, true);
+    }
+
+    JMXConnectionManager(IConfiguration config, boolean check)
+    {
+        this.config = config;
+        MetricRegistry.getInstance().gauge("jmx.circuit_open", new Gauge()
+        {
+            @Override
+            public double getValue()
+            {
+                return isOpen() ? 1 : 0;
+            }
+        });
+        if (check)
+        {
+            ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("JMXHealthCheck"));
+            checker.scheduleWithFixedDelay(new Runnable()
+            {
+                public void run()
+                {
+                    check();
+                }
+            }, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the shared connection, do not close it
+     * @throws IOException
+     *             if Cassandra cannot be reached, immediately while the
+     *             circuit is open
+     */
+    public JMXNodeTool get() throws IOException
+    {
+        JMXNodeTool current = tool;
+        if (current != null)
+            return current;
+        if (isOpen())
+            throw unavailable();
+        return connect(false);
+    }
+
+    private IOException unavailable()
+    {
+        rejected.inc();
+        return new IOException("Cassandra JMX is unavailable, next attempt in " + (openUntil - System.currentTimeMillis()) + " ms");
+    }
+
+    /**
+     * Drop the connection after a caller found it broken, the next caller
+     * reconnects.
+     */
+    public void invalidate(JMXNodeTool broken)
+    {
+        synchronized (this)
+        {
+            if (tool != broken)
+                return;
+            tool = null;
+        }
+        SystemUtils.closeQuietly(broken);
+    }
+
+    public boolean isOpen()
+    {
+        return tool == null && System.currentTimeMillis() < openUntil;
+    }
+
+    /**
+     * @param force
+     *            connect even while the circuit is open, for the background
+     *            check
+     */
+    private synchronized JMXNodeTool connect(boolean force) throws IOException
+    {
+        // someone else connected while we waited
+        if (tool != null)
+            return tool;
+        // or failed to, don't queue up another attempt behind it
+        if (!force && isOpen())
+            throw unavailable();
+        Future<JMXNodeTool> attempt = connector.submit(new Callable<JMXNodeTool>()
+        {
+            public JMXNodeTool call() throws Exception
+            {
+                JMXNodeTool connected = newNodeTool();
+                // gave up on us, don't leak the connection
+                if (Thread.currentThread().isInterrupted())
+                {
+                    SystemUtils.closeQuietly(connected);
+                    return null;
+                }
+                return connected;
+            }
+        });
+        try
+        {
+            tool = attempt.get(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS);
+            connects.inc();
+            backoff = MIN_BACKOFF;
+            openUntil = 0;
+            return tool;
+        }
+        catch (InterruptedException e)
+        {
+            attempt.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted connecting to Cassandra JMX");
+        }
+        catch (TimeoutException e)
+        {
+            attempt.cancel(true);
+            throw trip("timed out after " + CONNECT_TIMEOUT + " ms", null);
+        }
+        catch (ExecutionException e)
+        {
+            throw trip(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private IOException trip(String reason, Throwable cause)
+    {
+        failures.inc();
+        openUntil = System.currentTimeMillis() + backoff;
+        logger.warn("Unable to connect to Cassandra JMX, " + reason + ", failing calls for " + backoff + " ms");
+        backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        IOException e = new IOException("Unable to connect to Cassandra JMX: " + reason);
+        e.initCause(cause);
+        return e;
+    }
+
+    /**
+     * Drop the connection if Cassandra stopped answering, reconnect if it is
+     * back.
+     */
+    void check()
+    {
+        JMXNodeTool current = tool;
+        if (current == null)
+        {
+            try
+            {
+                connect(true);
+            }
+            catch (IOException e)
+            {
+                // still down, the circuit stays open
+            }
+            return;
+        }
+        try
+        {
+            current.isInitialized();
+        }
+        catch (Throwable e)
+        {
+            logger.warn("Cassandra JMX stopped answering: " + e.getMessage());
+            invalidate(current);
+        }
+    }
+
+    protected JMXNodeTool newNodeTool() throws IOException, InterruptedException
+    {
+        return new JMXNodeTool("localhost", config.getJmxPort());
+    }
+}
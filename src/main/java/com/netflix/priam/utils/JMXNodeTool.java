@@ -8,12 +8,16 @@ import java.net.UnknownHostException;
 import java.text.DecimalFormat;
 import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 
 import javax.management.JMX;
@@ -24,6 +28,7 @@ import javax.management.ObjectName;
 import org.apache.cassandra.cache.InstrumentingCacheMBean;
 import org.apache.cassandra.db.ColumnFamilyStoreMBean;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.locator.EndpointSnitchInfoMBean;
 import org.apache.cassandra.tools.NodeProbe;
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
@@ -33,110 +38,72 @@ import org.codehaus.jettison.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
 
 /**
  * Class to get data out of Cassandra JMX
  */
-@Singleton
 public class JMXNodeTool extends NodeProbe
 {
     private static final Logger logger = LoggerFactory.getLogger(JMXNodeTool.class);
     private static String keyCacheObjFmt = "org.apache.cassandra.db:type=Caches,keyspace=%s,cache=%sKeyCache";
     private static String rowCacheObjFmt = "org.apache.cassandra.db:type=Caches,keyspace=%s,cache=%sRowCache";
 
-    private static volatile JMXNodeTool tool = null;
-    private MBeanServerConnection mbeanServerConn = null;
+    private final MBeanServerConnection mbeanServerConn;
+    // proxies are only bound to the connection, build them once
+    private final ConcurrentMap<String, Object> proxies = new ConcurrentHashMap<String, Object>();
 
     /**
      * Hostname and Port to talk to will be same server for now optionally we
      * might want the ip to poll.
      * 
-     * NOTE: This class shouldn't be a singleton and this shouldn't be cached.
+     * Connections are shared through JMXConnectionManager rather than built
+     * by callers.
      * 
      * This will work only if cassandra runs.
      */
     public JMXNodeTool(String host, int port) throws IOException, InterruptedException
     {
         super(host, port);
+        this.mbeanServerConn = mbeanServerConnection(this);
     }
 
-    @Inject
-    public JMXNodeTool(IConfiguration config) throws IOException, InterruptedException
-    {
-        super("localhost", config.getJmxPort());
-    }
-
-    /**
-     * try to create if it is null.
-     */
-    public static JMXNodeTool instance(IConfiguration config)
-    {
-        if (!testConnection())
-            tool = connect(config);
-        return tool;
-    }
-
-    public static <T> T getRemoteBean(Class<T> clazz, String mbeanName, IConfiguration config, boolean mxbean)
+    private static MBeanServerConnection mbeanServerConnection(NodeProbe probe) throws IOException
     {
         try
         {
-            if (mxbean)
-                return ManagementFactory.newPlatformMXBeanProxy(JMXNodeTool.instance(config).mbeanServerConn, mbeanName, clazz);
-            else
-                return JMX.newMBeanProxy(JMXNodeTool.instance(config).mbeanServerConn, new ObjectName(mbeanName), clazz);
+            Field field = NodeProbe.class.getDeclaredField("mbeanServerConn");
+            field.setAccessible(true);
+            return (MBeanServerConnection) field.get(probe);
         }
         catch (Exception e)
         {
-            logger.error(e.getMessage(), e);
+            throw new IOException("Unable to get the MBean server connection of NodeProbe: " + e.getMessage());
         }
-        return null;
     }
 
     /**
-     * This method will test if you can connect and query something before handing over the connection,
-     * This is required for our retry logic.
-     * @return
+     * Proxy of the named MBean, cached for the life of the connection.
      */
-    private static boolean testConnection()
+    public <T> T getRemoteBean(Class<T> clazz, String mbeanName, boolean mxbean)
     {
-        // connecting first time hence return false.
-        if (tool == null)
-            return false;
-        
+        Object proxy = proxies.get(mbeanName);
+        if (proxy != null)
+            return clazz.cast(proxy);
         try
         {
-            tool.isInitialized();
+            if (mxbean)
+                proxy = ManagementFactory.newPlatformMXBeanProxy(mbeanServerConn, mbeanName, clazz);
+            else
+                proxy = JMX.newMBeanProxy(mbeanServerConn, new ObjectName(mbeanName), clazz);
         }
-        catch (Throwable ex)
+        catch (Exception e)
         {
-            SystemUtils.closeQuietly(tool);
-            return false;
+            logger.error(e.getMessage(), e);
+            return null;
         }
-        return true;
-    }
-
-    public static synchronized JMXNodeTool connect(final IConfiguration config)
-    {
-        return SystemUtils.retryForEver(new RetryableCallable<JMXNodeTool>()
-        {
-            @Override
-            public JMXNodeTool retriableCall() throws Exception
-            {
-                JMXNodeTool nodetool = new JMXNodeTool("localhost", config.getJmxPort());
-                Field fields[] = NodeProbe.class.getDeclaredFields();
-                for (int i = 0; i < fields.length; i++)
-                {
-                    if (!fields[i].getName().equals("mbeanServerConn"))
-                        continue;
-                    fields[i].setAccessible(true);
-                    nodetool.mbeanServerConn = (MBeanServerConnection) fields[i].get(nodetool);
-                }
-                return nodetool;
-            }
-        });
+        Object previous = proxies.putIfAbsent(mbeanName, proxy);
+        return clazz.cast(previous != null ? previous : proxy);
     }
 
     /**
@@ -179,44 +146,46 @@ public class JMXNodeTool extends NodeProbe
         return object;
     }
 
-    @SuppressWarnings("unchecked")
     public JSONArray ring() throws JSONException
     {
-        logger.info("JMX ring being called");
+        return ring(new HashMap<String, String[]>());
+    }
+
+    /**
+     * @param locations
+     *            data center and rack by endpoint, endpoints missing are
+     *            looked up and added. Endpoints rarely move, callers building
+     *            the ring repeatedly should keep it.
+     */
+    @SuppressWarnings("unchecked")
+    public JSONArray ring(Map<String, String[]> locations) throws JSONException
+    {
+        logger.debug("JMX ring being called");
         JSONArray ring = new JSONArray();
         Map<Token, String> tokenToEndpoint = getTokenToEndpointMap();
         List<Token> sortedTokens = new ArrayList<Token>(tokenToEndpoint.keySet());
         Collections.sort(sortedTokens);
 
-        Collection<String> liveNodes = getLiveNodes();
-        Collection<String> deadNodes = getUnreachableNodes();
-        Collection<String> joiningNodes = getJoiningNodes();
-        Collection<String> leavingNodes = getLeavingNodes();
-        Collection<String> movingNodes = getMovingNodes();
+        Set<String> liveNodes = new HashSet<String>(getLiveNodes());
+        Set<String> deadNodes = new HashSet<String>(getUnreachableNodes());
+        Set<String> joiningNodes = new HashSet<String>(getJoiningNodes());
+        Set<String> leavingNodes = new HashSet<String>(getLeavingNodes());
+        Set<String> movingNodes = new HashSet<String>(getMovingNodes());
         Map<String, String> loadMap = getLoadMap();
         // Calculate per-token ownership of the ring
         Map<Token, Float> ownerships = getOwnership();
+        EndpointSnitchInfoMBean snitch = null;
 
         for (Token token : sortedTokens)
         {
             String primaryEndpoint = tokenToEndpoint.get(token);
-            String dataCenter;
-            try
-            {
-                dataCenter = getEndpointSnitchInfoProxy().getDatacenter(primaryEndpoint);
-            }
-            catch (UnknownHostException e)
-            {
-                dataCenter = "Unknown";
-            }
-            String rack;
-            try
-            {
-                rack = getEndpointSnitchInfoProxy().getRack(primaryEndpoint);
-            }
-            catch (UnknownHostException e)
+            String[] location = locations.get(primaryEndpoint);
+            if (location == null)
             {
-                rack = "Unknown";
+                if (snitch == null)
+                    snitch = getEndpointSnitchInfoProxy();
+                location = location(snitch, primaryEndpoint);
+                locations.put(primaryEndpoint, location);
             }
             String status = liveNodes.contains(primaryEndpoint) ? "Up" : deadNodes.contains(primaryEndpoint) ? "Down" : "?";
 
@@ -231,12 +200,39 @@ public class JMXNodeTool extends NodeProbe
 
             String load = loadMap.containsKey(primaryEndpoint) ? loadMap.get(primaryEndpoint) : "?";
             String owns = new DecimalFormat("##0.00%").format(ownerships.get(token));
-            ring.put(createJson(primaryEndpoint, dataCenter, rack, status, state, load, owns, token));
+            ring.put(createJson(primaryEndpoint, location[0], location[1], status, state, load, owns, token));
         }
-        logger.info(ring.toString());
+        if (logger.isDebugEnabled())
+            logger.debug(ring.toString());
         return ring;
     }
 
+    /**
+     * @return the data center and rack of the endpoint
+     */
+    private static String[] location(EndpointSnitchInfoMBean snitch, String endpoint)
+    {
+        String dataCenter;
+        try
+        {
+            dataCenter = snitch.getDatacenter(endpoint);
+        }
+        catch (UnknownHostException e)
+        {
+            dataCenter = "Unknown";
+        }
+        String rack;
+        try
+        {
+            rack = snitch.getRack(endpoint);
+        }
+        catch (UnknownHostException e)
+        {
+            rack = "Unknown";
+        }
+        return new String[] { dataCenter, rack };
+    }
+
     private JSONObject createJson(String primaryEndpoint, String dataCenter, String rack, String status, String state, String load, String owns, Token token) throws JSONException
     {
         JSONObject object = new JSONObject();
@@ -289,16 +285,6 @@ public class JMXNodeTool extends NodeProbe
         }
     }
 
-    @Override
-    public void close() throws IOException
-    {
-        synchronized (JMXNodeTool.class)
-        {
-            tool = null;
-            super.close();
-        }
-    }
-
     public Iterator<Map.Entry<String, InstrumentingCacheMBean>> getKeyCacheMBeanProxies(IConfiguration config)
     {
         try
@@ -356,15 +342,7 @@ public class JMXNodeTool extends NodeProbe
             String tableName = objectName.getKeyProperty("keyspace");
             String cfName = objectName.getKeyProperty("columnfamily");
             String keyCachePath = String.format(cachePath, tableName, cfName);
-            InstrumentingCacheMBean cacheProxy = null;
-            try
-            {
-                cacheProxy = JMX.newMBeanProxy(mbeanServerConn, new ObjectName(keyCachePath), InstrumentingCacheMBean.class);
-            }
-            catch (Exception e)
-            {
-                logger.error("Cannot get cache MBean", e);
-            }
+            InstrumentingCacheMBean cacheProxy = getRemoteBean(InstrumentingCacheMBean.class, keyCachePath, false);
             return new AbstractMap.SimpleImmutableEntry<String, InstrumentingCacheMBean>(tableName + "_" + cfName, cacheProxy);
         }
 
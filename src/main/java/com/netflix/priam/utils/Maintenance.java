@@ -0,0 +1,353 @@
+package com.netflix.priam.utils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.db.ColumnFamilyStoreMBean;
+import org.apache.cassandra.service.StorageProxyMBean;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+import com.netflix.priam.scheduler.Operation;
+
+/**
+ * Flush, compact, cleanup or repair the node one column family at a time,
+ * instead of a keyspace at a time in a single call.
+ *
+ * Column families are started largest first, a few at a time (see
+ * {@link IConfiguration#getMaintenanceConcurrency()}), so the long ones do
+ * not end up running alone at the end. Before starting the next one, a run
+ * waits while Cassandra is behind on compactions or reads are slow. Every
+ * column family cleaned up or repaired is recorded under
+ * {@link IConfiguration#getMaintenanceStateLocation()}; a run of the same
+ * type started within {@link #RESUME_WINDOW} skips them, so a restart does
+ * not repeat hours of repair. A column family which fails does not stop the
+ * others, the run fails at the end and is resumed from there. Flushes and
+ * compactions are always done in full: one done a while ago says nothing
+ * about the data written since.
+ */
+@Singleton
+public class Maintenance
+{
+    private static final Logger logger = LoggerFactory.getLogger(Maintenance.class);
+    public static final String FLUSH = "flush";
+    public static final String COMPACT = "compact";
+    public static final String CLEANUP = "cleanup";
+    public static final String REPAIR = "repair";
+    public static final long PAUSE_INTERVAL = 10 * 1000;
+    public static final long RESUME_WINDOW = 3L * 24 * 60 * 60 * 1000;
+    private static final String STARTED = "# started ";
+
+    private static final Timer unitTimer = MetricRegistry.getInstance().timer("maintenance.column_family");
+    private static final Counter pauses = MetricRegistry.getInstance().counter("maintenance.pauses");
+
+    protected final IConfiguration config;
+    private final JMXConnectionManager jmx;
+    private final Sleeper sleeper;
+
+    /**
+     * A column family and its size when the run started.
+     */
+    public static class Unit
+    {
+        private final String keyspace;
+        private final String columnFamily;
+        private final long size;
+
+        public Unit(String keyspace, String columnFamily, long size)
+        {
+            this.keyspace = keyspace;
+            this.columnFamily = columnFamily;
+            this.size = size;
+        }
+
+        public String getKeyspace()
+        {
+            return keyspace;
+        }
+
+        public String getColumnFamily()
+        {
+            return columnFamily;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        @Override
+        public String toString()
+        {
+            return keyspace + "/" + columnFamily;
+        }
+    }
+
+    @Inject
+    public Maintenance(IConfiguration config, JMXConnectionManager jmx, Sleeper sleeper)
+    {
+        this.config = config;
+        this.jmx = jmx;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * @param type
+     *            one of {@link #FLUSH}, {@link #COMPACT}, {@link #CLEANUP} or
+     *            {@link #REPAIR}
+     */
+    public Operation operation(String type)
+    {
+        if (!type.equals(FLUSH) && !type.equals(COMPACT) && !type.equals(CLEANUP) && !type.equals(REPAIR))
+            throw new IllegalArgumentException("Unknown maintenance " + type);
+        return new Run(type);
+    }
+
+    private class Run extends Operation
+    {
+        private final AtomicInteger done = new AtomicInteger();
+        private final Set<String> running = Collections.synchronizedSet(new HashSet<String>());
+        private final List<String> failed = Collections.synchronizedList(Lists.<String> newArrayList());
+        private volatile int total;
+        private volatile String paused;
+
+        Run(String type)
+        {
+            super(type);
+        }
+
+        @Override
+        public void run() throws Exception
+        {
+            File progress = new File(config.getMaintenanceStateLocation(), getType() + ".progress");
+            boolean resumable = isResumable(getType());
+            Set<String> completed = resumable ? readProgress(progress) : new HashSet<String>();
+            List<Unit> units = listUnits();
+            Collections.sort(units, new Comparator<Unit>()
+            {
+                public int compare(Unit u1, Unit u2)
+                {
+                    return u1.getSize() < u2.getSize() ? 1 : u1.getSize() > u2.getSize() ? -1 : 0;
+                }
+            });
+            List<Unit> todo = Lists.newArrayList();
+            for (Unit unit : units)
+            {
+                if (!completed.contains(unit.toString()))
+                    todo.add(unit);
+            }
+            total = units.size();
+            done.set(units.size() - todo.size());
+            if (done.get() > 0)
+                logger.info("Resuming " + getType() + ", " + done.get() + " of " + total + " column families were done");
+
+            final Writer log = resumable ? openProgress(progress, completed.isEmpty()) : null;
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, config.getMaintenanceConcurrency()), new NamedThreadFactory("Maintenance-" + getType()));
+            try
+            {
+                // the queue keeps the order, largest first
+                for (final Unit unit : todo)
+                {
+                    pool.execute(new Runnable()
+                    {
+                        public void run()
+                        {
+                            runUnit(unit, log);
+                        }
+                    });
+                }
+                pool.shutdown();
+                while (!pool.awaitTermination(1, TimeUnit.MINUTES))
+                    logger.info(getType() + ": " + done.get() + " of " + total + " column families done, running " + running);
+            }
+            finally
+            {
+                pool.shutdownNow();
+                IOUtils.closeQuietly(log);
+            }
+            if (!failed.isEmpty())
+                throw new IOException(getType() + " failed for " + failed + ", run it again to retry them");
+            progress.delete();
+        }
+
+        private void runUnit(Unit unit, Writer log)
+        {
+            try
+            {
+                awaitCapacity();
+                running.add(unit.toString());
+                Timer.Context context = unitTimer.time();
+                try
+                {
+                    perform(getType(), unit);
+                }
+                finally
+                {
+                    context.stop();
+                    running.remove(unit.toString());
+                }
+                if (log != null)
+                {
+                    synchronized (log)
+                    {
+                        log.write(unit.toString() + "\n");
+                        log.flush();
+                    }
+                }
+                done.incrementAndGet();
+            }
+            catch (Exception e)
+            {
+                logger.error(getType() + " of " + unit + " failed", e);
+                failed.add(unit.toString());
+            }
+        }
+
+        private void awaitCapacity() throws Exception
+        {
+            String reason;
+            while ((reason = overloaded()) != null)
+            {
+                if (paused == null)
+                    logger.info("Pausing " + getType() + ": " + reason);
+                paused = reason;
+                pauses.inc();
+                sleeper.sleep(PAUSE_INTERVAL);
+            }
+            paused = null;
+        }
+
+        @Override
+        public JSONObject progress() throws JSONException
+        {
+            JSONObject progress = new JSONObject();
+            progress.put("column_families", total);
+            progress.put("done", done.get());
+            progress.put("failed", new JSONArray(Lists.newArrayList(failed)));
+            synchronized (running)
+            {
+                progress.put("running", new JSONArray(running));
+            }
+            if (paused != null)
+                progress.put("paused", paused);
+            return progress;
+        }
+    }
+
+    /**
+     * @return true if a run of the type picks up where a failed one stopped
+     */
+    public static boolean isResumable(String type)
+    {
+        return type.equals(CLEANUP) || type.equals(REPAIR);
+    }
+
+    /**
+     * @return the column families done by a recent run of the same type
+     */
+    private static Set<String> readProgress(File progress) throws IOException
+    {
+        Set<String> completed = new HashSet<String>();
+        if (!progress.isFile())
+            return completed;
+        List<String> lines = Files.readLines(progress, Charsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith(STARTED))
+            return completed;
+        long started = Long.parseLong(lines.get(0).substring(STARTED.length()).trim());
+        if (System.currentTimeMillis() - started > RESUME_WINDOW)
+        {
+            logger.info("Ignoring progress of a run started at " + started + ", starting over");
+            return completed;
+        }
+        // a torn last line matches no column family
+        completed.addAll(lines.subList(1, lines.size()));
+        return completed;
+    }
+
+    private static Writer openProgress(File progress, boolean restart) throws IOException
+    {
+        progress.getAbsoluteFile().getParentFile().mkdirs();
+        Writer writer = new FileWriter(progress, !restart);
+        if (restart)
+        {
+            writer.write(STARTED + System.currentTimeMillis() + "\n");
+            writer.flush();
+        }
+        return writer;
+    }
+
+    /**
+     * @return the column families of the node
+     */
+    public List<Unit> listUnits() throws IOException
+    {
+        List<Unit> units = Lists.newArrayList();
+        Iterator<Map.Entry<String, ColumnFamilyStoreMBean>> it = jmx.get().getColumnFamilyStoreMBeanProxies();
+        while (it.hasNext())
+        {
+            Map.Entry<String, ColumnFamilyStoreMBean> entry = it.next();
+            units.add(new Unit(entry.getKey(), entry.getValue().getColumnFamilyName(), entry.getValue().getLiveDiskSpaceUsed()));
+        }
+        return units;
+    }
+
+    protected void perform(String type, Unit unit) throws Exception
+    {
+        JMXNodeTool tool = jmx.get();
+        if (type.equals(FLUSH))
+            tool.forceTableFlush(unit.getKeyspace(), unit.getColumnFamily());
+        else if (type.equals(COMPACT))
+            tool.forceTableCompaction(unit.getKeyspace(), unit.getColumnFamily());
+        else if (type.equals(CLEANUP))
+            tool.forceTableCleanup(unit.getKeyspace(), unit.getColumnFamily());
+        else
+            tool.forceTableRepair(unit.getKeyspace(), unit.getColumnFamily());
+    }
+
+    /**
+     * @return why maintenance should wait, null if it can go on
+     */
+    protected String overloaded() throws IOException
+    {
+        JMXNodeTool tool = jmx.get();
+        int pending = tool.getCompactionManagerProxy().getPendingTasks();
+        if (pending > config.getMaintenanceMaxPendingCompactions())
+            return pending + " pending compactions";
+        if (config.getMaintenanceMaxReadLatency() > 0)
+        {
+            StorageProxyMBean proxy = tool.getRemoteBean(StorageProxyMBean.class, "org.apache.cassandra.db:type=StorageProxy", false);
+            double latency = proxy.getRecentReadLatencyMicros() / 1000;
+            // NaN without reads, which never exceeds
+            if (latency > config.getMaintenanceMaxReadLatency())
+                return "read latency " + latency + " ms";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.netflix.priam.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting the share of retries in the calls made by this node.
+ * Each retry withdraws a token and each successful call deposits a fraction
+ * of one, so that a burst of failures is retried but a sustained outage does
+ * not multiply the load on the remote service.
+ */
+public class RetryBudget
+{
+    /**
+     * Budget shared by the backup and restore transfers of this node
+     */
+    public static final RetryBudget NODE = new RetryBudget(100, 0.1);
+
+    private static final long SCALE = 1000;
+    private final long capacity;
+    private final long deposit;
+    private final AtomicLong tokens;
+
+    /**
+     * @param maxTokens
+     *            retries allowed in a burst
+     * @param retryRatio
+     *            retries allowed per successful call once the burst is spent
+     */
+    public RetryBudget(int maxTokens, double retryRatio)
+    {
+        this.capacity = maxTokens * SCALE;
+        this.deposit = (long) (retryRatio * SCALE);
+        this.tokens = new AtomicLong(capacity);
+    }
+
+    /**
+     * @return true if a retry may be attempted
+     */
+    public boolean tryAcquire()
+    {
+        while (true)
+        {
+            long current = tokens.get();
+            if (current < SCALE)
+                return false;
+            if (tokens.compareAndSet(current, current - SCALE))
+                return true;
+        }
+    }
+
+    public void onSuccess()
+    {
+        while (true)
+        {
+            long current = tokens.get();
+            if (current >= capacity || tokens.compareAndSet(current, Math.min(capacity, current + deposit)))
+                return;
+        }
+    }
+
+    public double getAvailable()
+    {
+        return tokens.get() / (double) SCALE;
+    }
+}
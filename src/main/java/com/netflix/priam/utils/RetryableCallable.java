@@ -3,16 +3,43 @@ package com.netflix.priam.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.Gauge;
+import com.netflix.priam.metrics.MetricRegistry;
+
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 
+/**
+ * Retries retriableCall() on failure. Fatal AWS errors (see RetryableErrors)
+ * are not retried, delays between attempts are jittered and callers may pass
+ * a RetryBudget to cap the retries a node issues during an outage.
+ */
 public abstract class RetryableCallable<T> implements Callable<T>
 {
     private static final Logger logger = LoggerFactory.getLogger(RetryableCallable.class);
     public static final int DEFAULT_NUMBER_OF_RETRIES = 15;
     public static final long DEFAULT_WAIT_TIME = 100;
+    private static final Counter retried = MetricRegistry.getInstance().counter("retry.retries");
+    private static final Counter exhausted = MetricRegistry.getInstance().counter("retry.exhausted");
+    private static final Counter fatal = MetricRegistry.getInstance().counter("retry.fatal_errors");
+    private static final Counter budgetRejected = MetricRegistry.getInstance().counter("retry.budget_rejections");
+
+    static
+    {
+        MetricRegistry.getInstance().gauge("retry.budget_available", new Gauge()
+        {
+            @Override
+            public double getValue()
+            {
+                return RetryBudget.NODE.getAvailable();
+            }
+        });
+    }
+
     private int retrys;
     private long waitTime;
+    private RetryBudget budget;
 
     public RetryableCallable()
     {
@@ -24,6 +51,12 @@ public abstract class RetryableCallable<T> implements Callable<T>
         set(retrys, waitTime);
     }
 
+    public RetryableCallable(int retrys, long waitTime, RetryBudget budget)
+    {
+        set(retrys, waitTime);
+        this.budget = budget;
+    }
+
     public void set(int retrys, long waitTime)
     {
         this.retrys = retrys;
@@ -32,14 +65,27 @@ public abstract class RetryableCallable<T> implements Callable<T>
 
     public abstract T retriableCall() throws Exception;
 
+    /**
+     * Delays between the attempts of one call, jittered around the wait time
+     * by default.
+     */
+    protected Backoff newBackoff()
+    {
+        return Backoff.jittered(waitTime);
+    }
+
     public T call() throws Exception
     {
         int retry = 0;
+        Backoff backoff = newBackoff();
         while (true)
         {
             try
             {
-                return retriableCall();
+                T result = retriableCall();
+                if (budget != null)
+                    budget.onSuccess();
+                return result;
             }
             catch (CancellationException e)
             {
@@ -48,12 +94,27 @@ public abstract class RetryableCallable<T> implements Callable<T>
             catch (Exception e)
             {
                 retry++;
-                if (retry == retrys)
+                if (!RetryableErrors.isRetryable(e))
+                {
+                    fatal.inc();
+                    logger.error(String.format("Not retrying after attempt #%d, fatal error: %s", retry, e.getMessage()));
+                    throw e;
+                }
+                long delay = backoff.nextDelay();
+                if (retry == retrys || backoff.isExhausted())
+                {
+                    exhausted.inc();
+                    throw e;
+                }
+                if (budget != null && !budget.tryAcquire())
                 {
+                    budgetRejected.inc();
+                    logger.error(String.format("Retry budget exhausted, giving up after attempt #%d: %s", retry, e.getMessage()));
                     throw e;
                 }
-                logger.error(String.format("Retry #%d for: %s",retry, e.getMessage()));
-                Thread.sleep(waitTime);
+                retried.inc();
+                logger.error(String.format("Retry #%d in %d ms for: %s", retry, delay, e.getMessage()));
+                Thread.sleep(delay);
             }
             finally
             {
@@ -66,4 +127,4 @@ public abstract class RetryableCallable<T> implements Callable<T>
     {
         // do nothing by default.
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.netflix.priam.utils;
+
+import java.util.Set;
+
+import com.amazonaws.AmazonServiceException;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tells transient failures, worth retrying, from fatal ones such as
+ * authorization errors or missing buckets which will fail the same way on
+ * every attempt.
+ */
+public class RetryableErrors
+{
+    /**
+     * Client side (4xx) AWS error codes which are transient
+     */
+    private static final Set<String> RETRYABLE_CODES = ImmutableSet.of("RequestTimeout", "RequestTimeoutException", "Throttling", "ThrottlingException",
+            "SlowDown", "RequestLimitExceeded", "ServiceUnavailable", "BadDigest", "IncompleteBody", "ExpiredToken", "RequestExpired",
+            "ProvisionedThroughputExceededException");
+
+    /**
+     * Walks the cause chain looking for an AWS service error. Anything which
+     * is not one (I/O errors, timeouts..) is considered transient.
+     */
+    public static boolean isRetryable(Throwable e)
+    {
+        for (Throwable t = e; t != null; t = t.getCause())
+        {
+            if (t instanceof AmazonServiceException)
+                return isRetryable((AmazonServiceException) t);
+            if (t.getCause() == t)
+                break;
+        }
+        return true;
+    }
+
+    public static boolean isRetryable(AmazonServiceException e)
+    {
+        if (RETRYABLE_CODES.contains(e.getErrorCode()))
+            return true;
+        int status = e.getStatusCode();
+        // 408 request timeout, 409 conflicting concurrent writes, 429 too many requests
+        if (status == 408 || status == 409 || status == 429)
+            return true;
+        return status < 400 || status >= 500;
+    }
+}
@@ -0,0 +1,171 @@
+package com.netflix.priam.utils;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.codehaus.jettison.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+
+/**
+ * The ring as nodetool shows it, refreshed from JMX in the background so
+ * callers polling it are served from memory. Building the ring takes a JMX
+ * call per collection plus one per endpoint for its data center and rack;
+ * the locations are kept between refreshes and only new endpoints are
+ * looked up.
+ *
+ * Refreshing starts with the first caller. A failed refresh keeps the last
+ * ring, callers can tell from its age.
+ */
+@Singleton
+public class RingState
+{
+    private static final Logger logger = LoggerFactory.getLogger(RingState.class);
+    public static final long REFRESH_INTERVAL = 15 * 1000;
+
+    private static final Timer refreshes = MetricRegistry.getInstance().timer("ring.refresh");
+    private static final Counter failures = MetricRegistry.getInstance().counter("ring.refresh_failures");
+
+    private final JMXConnectionManager jmx;
+    private final boolean schedule;
+    private final ConcurrentMap<String, String[]> locations = new ConcurrentHashMap<String, String[]>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile View view;
+
+    /**
+     * The ring rendered as JSON and the time it was read.
+     */
+    public static class View
+    {
+        private final String json;
+        private final long refreshed;
+
+        View(String json, long refreshed)
+        {
+            this.json = json;
+            this.refreshed = refreshed;
+        }
+
+        public String getJson()
+        {
+            return json;
+        }
+
+        public long getRefreshed()
+        {
+            return refreshed;
+        }
+
+        public long getAge()
+        {
+            return System.currentTimeMillis() - refreshed;
+        }
+    }
+
+    @Inject
+    public RingState(JMXConnectionManager jmx)
+    {
+        this(jmx, true);
+    }
+
+    RingState(JMXConnectionManager jmx, boolean schedule)
+    {
+        this.jmx = jmx;
+        this.schedule = schedule;
+    }
+
+    /**
+     * @return the latest ring, read now if there is none yet
+     * @throws IOException
+     *             if there is no ring and Cassandra cannot be reached
+     */
+    public View get() throws IOException
+    {
+        start();
+        View current = view;
+        if (current != null)
+            return current;
+        synchronized (this)
+        {
+            if (view == null)
+                refresh();
+            return view;
+        }
+    }
+
+    /**
+     * Read the ring from Cassandra now.
+     */
+    public synchronized View refresh() throws IOException
+    {
+        Timer.Context context = refreshes.time();
+        try
+        {
+            JSONArray ring = fetch();
+            view = new View(ring.toString(), System.currentTimeMillis());
+            return view;
+        }
+        catch (IOException e)
+        {
+            failures.inc();
+            throw e;
+        }
+        catch (Exception e)
+        {
+            failures.inc();
+            IOException failure = new IOException("Unable to read the ring: " + e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        }
+        finally
+        {
+            context.stop();
+        }
+    }
+
+    protected JSONArray fetch() throws Exception
+    {
+        JSONArray ring = jmx.get().ring(locations);
+        // forget the endpoints which left, their addresses may be reused elsewhere
+        Set<String> endpoints = new HashSet<String>();
+        for (int i = 0; i < ring.length(); i++)
+            endpoints.add(ring.getJSONObject(i).getString("endpoint"));
+        locations.keySet().retainAll(endpoints);
+        return ring;
+    }
+
+    private void start()
+    {
+        if (!schedule || !started.compareAndSet(false, true))
+            return;
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("RingRefresh"));
+        refresher.scheduleWithFixedDelay(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    refresh();
+                }
+                catch (IOException e)
+                {
+                    logger.warn(e.getMessage() + ", keeping the ring read " + (view == null ? "never" : view.getAge() + " ms ago"));
+                }
+            }
+        }, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+}
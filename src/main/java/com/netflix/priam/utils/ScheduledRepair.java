@@ -0,0 +1,347 @@
+package com.netflix.priam.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.identity.IPriamInstanceFactory;
+import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.identity.SlotTakenException;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+import com.netflix.priam.scheduler.Operation;
+import com.netflix.priam.scheduler.OperationManager;
+import com.netflix.priam.scheduler.SimpleTimer;
+import com.netflix.priam.scheduler.Task;
+import com.netflix.priam.scheduler.TaskTimer;
+
+/**
+ * Repairs the node's primary range a column family at a time, spread over
+ * the repair window (see {@link IConfiguration#getRepairWindow()}) so every
+ * column family is repaired within it. Each run repairs the column families
+ * whose turn has come, least recently repaired first, and records when each
+ * was repaired under {@link IConfiguration#getMaintenanceStateLocation()}.
+ *
+ * Only one node per rac repairs at a time. The node takes the rac's slot in
+ * the "<app>-repair" registry for the duration of the run and renews it in
+ * the background however long a column family takes; a slot left by a node
+ * which died is taken over after {@link #LEASE}, and one left under our own
+ * name by a run which did not finish is taken back at once. The renewal
+ * only succeeds while the slot is still ours; a node which finds it taken
+ * over, say after a pause longer than the lease, stops before the next
+ * column family. On the node, the run holds the {@link Maintenance#REPAIR}
+ * operation before it takes the slot, so it does not overlap with a repair
+ * started through the API.
+ */
+@Singleton
+public class ScheduledRepair extends Task
+{
+    public static final String JOBNAME = "ScheduledRepair";
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledRepair.class);
+    public static final long LEASE = 6 * 60 * 60 * 1000;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static final Timer repairs = MetricRegistry.getInstance().timer("repair.column_family");
+    private static final Counter busy = MetricRegistry.getInstance().counter("repair.rac_busy");
+
+    private final Maintenance maintenance;
+    private final JMXConnectionManager jmx;
+    private final IPriamInstanceFactory factory;
+    private final OperationManager operations;
+    private final ScheduledExecutorService renewals = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("RepairLease"));
+
+    @Inject
+    public ScheduledRepair(IConfiguration config, Maintenance maintenance, JMXConnectionManager jmx, IPriamInstanceFactory factory, OperationManager operations)
+    {
+        super(config);
+        this.maintenance = maintenance;
+        this.jmx = jmx;
+        this.factory = factory;
+        this.operations = operations;
+    }
+
+    @Override
+    public void execute() throws Exception
+    {
+        execute(System.currentTimeMillis());
+    }
+
+    void execute(long now) throws Exception
+    {
+        final List<Maintenance.Unit> units = maintenance.listUnits();
+        if (units.isEmpty())
+            return;
+        final long window = config.getRepairWindow() * DAY;
+        final long interval = window / units.size();
+        final Properties repaired = read();
+        long latest = 0;
+        for (Maintenance.Unit unit : units)
+        {
+            // a column family we have not seen yet starts its window now
+            if (repaired.getProperty(unit.toString()) == null)
+                repaired.setProperty(unit.toString(), Long.toString(now));
+            latest = Math.max(latest, lastRepaired(repaired, unit));
+        }
+        Collections.sort(units, new Comparator<Maintenance.Unit>()
+        {
+            public int compare(Maintenance.Unit u1, Maintenance.Unit u2)
+            {
+                return Long.valueOf(lastRepaired(repaired, u1)).compareTo(lastRepaired(repaired, u2));
+            }
+        });
+        if (!due(units.get(0), repaired, latest, interval, window, now))
+        {
+            write(repaired);
+            return;
+        }
+
+        final long first = latest;
+        final long started = now;
+        try
+        {
+            // the node's repair is claimed before the rac's slot, so a slot
+            // held under our name is never held by a run under way
+            operations.run(new Operation(Maintenance.REPAIR)
+            {
+                @Override
+                public void run() throws Exception
+                {
+                    PriamInstance lock = lock(started);
+                    if (lock == null)
+                        return;
+                    Lease lease = new Lease(lock);
+                    try
+                    {
+                        repairDue(units, repaired, first, interval, window, started, lease);
+                    }
+                    finally
+                    {
+                        lease.release();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            busy.inc();
+            logger.info("A repair started through the API is running, waiting for our turn: " + e.getMessage());
+        }
+        finally
+        {
+            write(repaired);
+        }
+    }
+
+    private void repairDue(List<Maintenance.Unit> units, Properties repaired, long latest, long interval, long window, long now, Lease lease) throws IOException
+    {
+        for (Maintenance.Unit unit : units)
+        {
+            if (!due(unit, repaired, latest, interval, window, now))
+                break;
+            if (lease.isLost())
+                throw new IOException("Another node took over the repair slot of " + config.getRac() + ", stopping before " + unit);
+            logger.info("Repairing the primary range of " + unit + ", last repaired at " + lastRepaired(repaired, unit));
+            long started = System.currentTimeMillis();
+            Timer.Context context = repairs.time();
+            try
+            {
+                repair(unit);
+            }
+            finally
+            {
+                context.stop();
+            }
+            now += System.currentTimeMillis() - started;
+            latest = now;
+            repaired.setProperty(unit.toString(), Long.toString(now));
+            write(repaired);
+        }
+    }
+
+    /**
+     * Its turn has come when the last repair of any column family is an
+     * interval ago, or it was repaired a window ago.
+     */
+    private static boolean due(Maintenance.Unit unit, Properties repaired, long latest, long interval, long window, long now)
+    {
+        return now - latest >= interval || now - lastRepaired(repaired, unit) >= window;
+    }
+
+    private static long lastRepaired(Properties repaired, Maintenance.Unit unit)
+    {
+        return Long.parseLong(repaired.getProperty(unit.toString()));
+    }
+
+    protected void repair(Maintenance.Unit unit) throws IOException
+    {
+        jmx.get().forceTableRepairPrimaryRange(unit.getKeyspace(), unit.getColumnFamily());
+    }
+
+    /**
+     * @return how often the rac's slot is renewed while repairing
+     */
+    protected long renewInterval()
+    {
+        return LEASE / 6;
+    }
+
+    /**
+     * Keeps the rac's slot from looking abandoned while the node repairs.
+     */
+    private class Lease implements Runnable
+    {
+        private final PriamInstance lock;
+        private final Future<?> renewal;
+        private boolean released;
+        private volatile boolean lost;
+
+        Lease(PriamInstance lock)
+        {
+            this.lock = lock;
+            this.renewal = renewals.scheduleWithFixedDelay(this, renewInterval(), renewInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        public synchronized void run()
+        {
+            if (released || lost)
+                return;
+            try
+            {
+                factory.renew(lock);
+            }
+            catch (SlotTakenException e)
+            {
+                lost = true;
+                logger.error("Another node took over the repair slot of " + config.getRac() + ", stopping after the column family under way");
+            }
+            catch (RuntimeException e)
+            {
+                logger.warn("Unable to renew the repair slot of " + config.getRac(), e);
+            }
+        }
+
+        /**
+         * @return true once a renewal found the slot taken over
+         */
+        boolean isLost()
+        {
+            return lost;
+        }
+
+        /**
+         * Give the slot up, after any renewal under way
+         */
+        synchronized void release()
+        {
+            released = true;
+            renewal.cancel(false);
+            factory.delete(lock);
+        }
+    }
+
+    /**
+     * @return the rac's repair slot, null if another node holds it
+     */
+    private PriamInstance lock(long now)
+    {
+        String app = config.getAppName() + "-repair";
+        int slot = config.getRac().hashCode() & Integer.MAX_VALUE;
+        PriamInstance holder = factory.getInstance(app, slot);
+        if (holder != null && holder.getInstanceId().equals(config.getInstanceName()))
+        {
+            logger.warn("The repair slot of " + config.getRac() + " was left by an earlier run of this node, taking it back");
+            factory.delete(holder);
+        }
+        else if (holder != null && now - holder.getUpdatetime() > LEASE)
+        {
+            logger.warn(holder.getInstanceId() + " held the repair slot of " + config.getRac() + " since " + holder.getUpdatetime() + ", taking it over");
+            factory.delete(holder);
+        }
+        try
+        {
+            return factory.create(app, slot, config.getInstanceName(), config.getHostname(), config.getHostIP(), config.getRac(), null, "");
+        }
+        catch (SlotTakenException e)
+        {
+            busy.inc();
+            logger.info("Another node of " + config.getRac() + " is repairing, waiting for our turn");
+            return null;
+        }
+    }
+
+    private File timestamps()
+    {
+        return new File(config.getMaintenanceStateLocation(), "repair.timestamps");
+    }
+
+    private Properties read() throws IOException
+    {
+        Properties repaired = new Properties();
+        File file = timestamps();
+        if (!file.isFile())
+            return repaired;
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            repaired.load(in);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        return repaired;
+    }
+
+    private void write(Properties repaired) throws IOException
+    {
+        File file = timestamps();
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try
+        {
+            repaired.store(out, null);
+            out.getFD().sync();
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+        if (!tmp.renameTo(file))
+        {
+            tmp.delete();
+            throw new IOException("Unable to move " + tmp + " to " + file);
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return JOBNAME;
+    }
+
+    public static TaskTimer getTimer()
+    {
+        return new SimpleTimer(JOBNAME, 15L * 60 * 1000);
+    }
+}
@@ -95,10 +95,21 @@ public class SystemUtils
     }
 
     public static String getDataFromUrl(String url)
+    {
+        return getDataFromUrl(url, 0);
+    }
+
+    /**
+     * @param timeout
+     *            connect and read timeout in milliseconds, 0 waits forever
+     */
+    public static String getDataFromUrl(String url, int timeout)
     {
         try
         {
             HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setConnectTimeout(timeout);
+            conn.setReadTimeout(timeout);
             conn.setRequestMethod("GET");
             if (conn.getResponseCode() != 200)
             {
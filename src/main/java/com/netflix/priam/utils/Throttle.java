@@ -18,9 +18,14 @@
 
 package com.netflix.priam.utils;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
+
 /**
  * Encapsulates the timing/state required to throttle a caller to a target throughput in
  * bytes per millisecond, when periodically passed an absolute count of bytes.
@@ -30,6 +35,7 @@ import org.slf4j.LoggerFactory;
 public class Throttle
 {
     private static Logger logger = LoggerFactory.getLogger(Throttle.class);
+    private static final Timer sleeps = MetricRegistry.getInstance().timer("throttle.sleep");
 
     private final String name;
     private final ThroughputFunction fun;
@@ -82,6 +88,7 @@ public class Throttle
             try
             {
                 Thread.sleep(timeToDelay);
+                sleeps.update(timeToDelay, TimeUnit.MILLISECONDS);
             }
             catch (InterruptedException e)
             {
@@ -1,11 +1,11 @@
 package com.netflix.priam.utils;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Ordering;
 
 public class TokenManager
 {    
@@ -60,18 +60,28 @@ public class TokenManager
     
     public static BigInteger findClosestToken(BigInteger tokenToSearch, List<BigInteger> tokenList)
     {
-        Preconditions.checkArgument(!tokenList.isEmpty(), "token list must not be empty");
-        List<BigInteger> sortedTokens = Ordering.natural().sortedCopy(tokenList);
-        int index = Ordering.natural().binarySearch(sortedTokens, tokenToSearch);
+        BigInteger[] sortedTokens = tokenList.toArray(new BigInteger[tokenList.size()]);
+        Arrays.sort(sortedTokens);
+        return findClosestToken(tokenToSearch, sortedTokens);
+    }
+
+    /**
+     * Same as findClosestToken(BigInteger, List) for tokens which are
+     * already sorted, in O(log n).
+     */
+    public static BigInteger findClosestToken(BigInteger tokenToSearch, BigInteger[] sortedTokens)
+    {
+        Preconditions.checkArgument(sortedTokens.length > 0, "token list must not be empty");
+        int index = Arrays.binarySearch(sortedTokens, tokenToSearch);
         if (index < 0)
         {
             int i = Math.abs(index) - 1;
-            if ((i >= sortedTokens.size()) || (i > 0 && sortedTokens.get(i).subtract(tokenToSearch)
-                    .compareTo(tokenToSearch.subtract(sortedTokens.get(i - 1))) > 0))
+            if ((i >= sortedTokens.length) || (i > 0 && sortedTokens[i].subtract(tokenToSearch)
+                    .compareTo(tokenToSearch.subtract(sortedTokens[i - 1])) > 0))
                 --i;
-            return sortedTokens.get(i);
+            return sortedTokens[i];
         }
-        return sortedTokens.get(index);
+        return sortedTokens[index];
     }
 
     /**
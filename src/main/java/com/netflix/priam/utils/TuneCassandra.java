@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +20,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.backup.Restore;
+import com.netflix.priam.cassandra.NFSeedProvider;
 import com.netflix.priam.scheduler.SimpleTimer;
 import com.netflix.priam.scheduler.Task;
 import com.netflix.priam.scheduler.TaskTimer;
@@ -56,7 +58,7 @@ public class TuneCassandra extends Task
         map.put("auto_bootstrap", !Restore.isRestoreEnabled(config));
         map.put("saved_caches_directory", config.getCacheLocation());
         map.put("commitlog_directory", config.getCommitLogLocation());
-        map.put("data_file_directories", Lists.newArrayList(config.getDataFileLocation()));
+        map.put("data_file_directories", Lists.newArrayList(config.getDataFileLocations()));
         boolean enableIncremental = (config.getBackupHour() >= 0 && config.isIncrBackup()) && (CollectionUtils.isEmpty(config.getBackupRacs()) || config.getBackupRacs().contains(config.getRac()));
         map.put("incremental_backups", enableIncremental);
         map.put("endpoint_snitch", config.getSnitch());
@@ -82,8 +84,19 @@ public class TuneCassandra extends Task
         if (null != map.get("seed_provider"))
         {
             List<?> seedp = (List) map.get("seed_provider");
-            Map<String, String> m = (Map<String, String>) seedp.get(0);
+            Map<String, Object> m = (Map<String, Object>) seedp.get(0);
             m.put("class_name", seedProvider);
+            if (NFSeedProvider.class.getName().equals(seedProvider))
+            {
+                List<Map<String, String>> params = (List<Map<String, String>>) m.get("parameters");
+                if (CollectionUtils.isEmpty(params))
+                {
+                    params = Lists.newArrayList();
+                    params.add(new HashMap<String, String>());
+                    m.put("parameters", params);
+                }
+                params.get(0).put(NFSeedProvider.SEEDS_FILE, config.getSeedFileLocation());
+            }
         }
         logger.info(yaml.dump(map));
         yaml.dump(map, new FileWriter(yamlFile));
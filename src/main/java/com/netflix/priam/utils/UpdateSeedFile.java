@@ -0,0 +1,73 @@
+package com.netflix.priam.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.identity.InstanceIdentity;
+import com.netflix.priam.scheduler.SimpleTimer;
+import com.netflix.priam.scheduler.Task;
+import com.netflix.priam.scheduler.TaskTimer;
+
+/**
+ * Writes the current seeds to the file NFSeedProvider reads, so Cassandra
+ * does not depend on Priam's REST API answering to get its seeds. The file is
+ * replaced by a rename, readers never see it half written.
+ */
+@Singleton
+public class UpdateSeedFile extends Task
+{
+    public static final String JOBNAME = "UpdateSeedFile";
+    private static final Logger logger = LoggerFactory.getLogger(UpdateSeedFile.class);
+    private final InstanceIdentity id;
+
+    @Inject
+    public UpdateSeedFile(IConfiguration config, InstanceIdentity id)
+    {
+        super(config);
+        this.id = id;
+    }
+
+    @Override
+    public void execute() throws Exception
+    {
+        write(new File(config.getSeedFileLocation()), StringUtils.join(id.getSeeds(), ','));
+    }
+
+    static void write(File seedFile, String seeds) throws IOException
+    {
+        if (seedFile.isFile() && seeds.equals(Files.toString(seedFile, Charsets.UTF_8)))
+        {
+            // keep the file recent so the seed provider knows we are alive
+            seedFile.setLastModified(System.currentTimeMillis());
+            return;
+        }
+        File tmp = new File(seedFile.getAbsoluteFile().getParentFile(), "." + seedFile.getName() + ".tmp");
+        Files.write(seeds, tmp, Charsets.UTF_8);
+        if (!tmp.renameTo(seedFile))
+        {
+            tmp.delete();
+            throw new IOException("Unable to move " + tmp + " to " + seedFile);
+        }
+        logger.info("Wrote seeds " + seeds + " to " + seedFile);
+    }
+
+    @Override
+    public String getName()
+    {
+        return JOBNAME;
+    }
+
+    public static TaskTimer getTimer()
+    {
+        return SimpleTimer.fixedDelay(JOBNAME, 30L * 1000);
+    }
+}
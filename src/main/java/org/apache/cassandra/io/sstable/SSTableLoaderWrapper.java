@@ -26,12 +26,17 @@ import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.priam.IConfiguration;
+import com.netflix.priam.metrics.Meter;
+import com.netflix.priam.metrics.MetricRegistry;
+import com.netflix.priam.metrics.Timer;
 import com.netflix.priam.utils.TuneCassandra;
 
 @Singleton
 public class SSTableLoaderWrapper
 {
     private static final Logger logger = LoggerFactory.getLogger(SSTableLoaderWrapper.class);
+    private static final Timer streams = MetricRegistry.getInstance().timer("restore.sstable_stream");
+    private static final Meter streamedBytes = MetricRegistry.getInstance().meter("restore.sstable_stream_bytes");
     private static Set<Component> allComponents = Sets.newHashSet(Component.COMPRESSION_INFO, Component.DATA, Component.FILTER, Component.PRIMARY_INDEX, Component.STATS, Component.DIGEST);
 
     @Inject
@@ -81,9 +86,18 @@ public class SSTableLoaderWrapper
             PendingFile pending = new PendingFile(sstable, desc, SSTable.COMPONENT_DATA, sections, OperationType.BULK_LOAD, sstable.estimatedKeys());
             StreamHeader header = new StreamHeader(directory.getName(), System.nanoTime(), pending, Collections.singleton(pending));
             logger.info("Streaming to {}", InetAddress.getLocalHost());
-            new FileStreamTask(header, InetAddress.getLocalHost()).run();
+            Timer.Context timer = streams.time();
+            try
+            {
+                new FileStreamTask(header, InetAddress.getLocalHost()).run();
+            }
+            finally
+            {
+                timer.stop();
+                sstable.releaseReference();
+            }
+            streamedBytes.mark(sstable.onDiskLength());
             logger.info("Done Streaming: " + pending.toString());
-            sstable.releaseReference();
             pendingFiles.add(pending);
         }
         return pendingFiles;
@@ -68,6 +68,12 @@ public class FakeConfiguration implements IConfiguration
         return "cass/data";
     }
 
+    @Override
+    public List<String> getDataFileLocations()
+    {
+        return Lists.newArrayList(getDataFileLocation());
+    }
+
     @Override
     public String getCacheLocation()
     {
@@ -358,4 +364,106 @@ public class FakeConfiguration implements IConfiguration
         return false;
     }
 
+    @Override
+    public int getInstanceCacheTTL()
+    {
+        return 0;
+    }
+
+    @Override
+    public String getSeedFileLocation()
+    {
+        return "target/priam_seeds";
+    }
+
+    @Override
+    public String getInstanceFactoryName()
+    {
+        return "com.netflix.priam.FakePriamInstanceFactory";
+    }
+
+    @Override
+    public String getInstanceRegistryLocation()
+    {
+        return "target/instance_registry";
+    }
+
+    @Override
+    public int getMaintenanceConcurrency()
+    {
+        return 2;
+    }
+
+    @Override
+    public int getMaintenanceMaxPendingCompactions()
+    {
+        return 32;
+    }
+
+    @Override
+    public int getMaintenanceMaxReadLatency()
+    {
+        return 0;
+    }
+
+    @Override
+    public String getMaintenanceStateLocation()
+    {
+        return "target/maintenance";
+    }
+
+    @Override
+    public int getRepairWindow()
+    {
+        return 7;
+    }
+
+    @Override
+    public int getSnapshotRebaseInterval()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getBackupReadThroughput()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean isBackupSkipPageCache()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean isBackupReadMapped()
+    {
+        return false;
+    }
+
+    @Override
+    public int getS3BufferBudget()
+    {
+        return 64;
+    }
+
+    @Override
+    public int getRestoreRangeConcurrency()
+    {
+        return 1;
+    }
+
+    @Override
+    public int getRestoreRemoteRangeConcurrency()
+    {
+        return 4;
+    }
+
+    @Override
+    public int getBackupJitter()
+    {
+        return 0;
+    }
+
 }
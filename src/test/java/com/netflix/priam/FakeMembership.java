@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.List;
 
 import com.netflix.priam.identity.IMembership;
+import com.netflix.priam.identity.IMembershipListener;
 
 public class FakeMembership implements IMembership
 {
@@ -65,4 +66,10 @@ public class FakeMembership implements IMembership
         // TODO Auto-generated method stub
         
     }
+
+    @Override
+    public void addListener(IMembershipListener listener)
+    {
+        // membership never changes on its own
+    }
 }
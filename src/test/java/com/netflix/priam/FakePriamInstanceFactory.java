@@ -11,6 +11,7 @@ import com.google.inject.Inject;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.identity.IPriamInstanceFactory;
 import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.identity.SlotTakenException;
 
 public class FakePriamInstanceFactory implements IPriamInstanceFactory
 {
@@ -62,6 +63,22 @@ public class FakePriamInstanceFactory implements IPriamInstanceFactory
         instances.put(inst.getId(), inst);
     }
 
+    @Override
+    public void renew(PriamInstance inst)
+    {
+        PriamInstance existing = instances.get(inst.getId());
+        if (existing == null || !existing.getInstanceId().equals(inst.getInstanceId()))
+            throw new SlotTakenException("Slot " + inst.getId() + " is taken");
+        update(inst);
+    }
+
+    @Override
+    public void updateAll(List<PriamInstance> instances)
+    {
+        for (PriamInstance inst : instances)
+            update(inst);
+    }
+
     @Override
     public void sort(List<PriamInstance> return_)
     {
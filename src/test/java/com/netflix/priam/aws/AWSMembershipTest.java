@@ -0,0 +1,69 @@
+package com.netflix.priam.aws;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.identity.IMembershipListener;
+
+import static org.junit.Assert.assertEquals;
+
+public class AWSMembershipTest
+{
+    private static class StubMembership extends AWSMembership
+    {
+        List<String> instances = Lists.newArrayList("i-1", "i-2");
+        int describes;
+
+        StubMembership()
+        {
+            super(new FakeConfiguration("us-east-1", "fake-app", "az1", "i-1"), null);
+        }
+
+        @Override
+        protected RacState describeRac()
+        {
+            describes++;
+            return new RacState(Lists.newArrayList(instances), 3);
+        }
+    }
+
+    @Test
+    public void readsFromLastDescription()
+    {
+        StubMembership membership = new StubMembership();
+        assertEquals(Lists.newArrayList("i-1", "i-2"), membership.getRacMembership());
+        assertEquals(3, membership.getRacMembershipSize());
+        membership.getRacMembership();
+        assertEquals(1, membership.describes);
+    }
+
+    @Test
+    public void publishesChanges()
+    {
+        StubMembership membership = new StubMembership();
+        final List<Set<String>> changes = Lists.newArrayList();
+        membership.addListener(new IMembershipListener()
+        {
+            public void membershipChanged(Set<String> joined, Set<String> left)
+            {
+                changes.add(joined);
+                changes.add(left);
+            }
+        });
+        membership.getRacMembership();
+        // first description and unchanged polls are not changes
+        membership.refresh();
+        assertEquals(0, changes.size());
+
+        membership.instances = Lists.newArrayList("i-2", "i-3");
+        membership.refresh();
+        assertEquals(ImmutableSet.of("i-3"), changes.get(0));
+        assertEquals(ImmutableSet.of("i-1"), changes.get(1));
+        assertEquals(Lists.newArrayList("i-2", "i-3"), membership.getRacMembership());
+    }
+}
@@ -0,0 +1,79 @@
+package com.netflix.priam.aws;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.FakeMembership;
+import com.netflix.priam.FakePriamInstanceFactory;
+
+import static org.junit.Assert.assertEquals;
+
+public class UpdateSecuritySettingsTest
+{
+    private static class AclMembership extends FakeMembership
+    {
+        Set<String> acls = Sets.newHashSet();
+        int lists, adds, removes;
+
+        AclMembership()
+        {
+            super(Lists.<String> newArrayList());
+        }
+
+        @Override
+        public void addACL(Collection<String> listIPs, int from, int to)
+        {
+            adds++;
+            acls.addAll(listIPs);
+        }
+
+        @Override
+        public void removeACL(Collection<String> listIPs, int from, int to)
+        {
+            removes++;
+            acls.removeAll(listIPs);
+        }
+
+        @Override
+        public List<String> listACL()
+        {
+            lists++;
+            return Lists.newArrayList(acls);
+        }
+    }
+
+    @Test
+    public void reconcilesOnlyChanges()
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        FakePriamInstanceFactory factory = new FakePriamInstanceFactory(config);
+        AclMembership membership = new AclMembership();
+        membership.acls.add("10.0.0.9/32");
+        factory.create("fake-app", 1, "i-1", "host1", "10.0.0.1", "az1", null, "1");
+        factory.create("fake-app", 2, "i-2", "host2", "10.0.0.2", "az1", null, "2");
+        UpdateSecuritySettings task = new UpdateSecuritySettings(config, membership, factory);
+
+        task.execute();
+        assertEquals(ImmutableSet.of("10.0.0.1/32", "10.0.0.2/32"), membership.acls);
+        assertEquals(1, membership.adds);
+        assertEquals(1, membership.removes);
+
+        // nothing changed, AWS is left alone
+        task.execute();
+        assertEquals(1, membership.lists);
+
+        factory.create("fake-app", 3, "i-3", "host3", "10.0.0.3", "az1", null, "3");
+        task.execute();
+        assertEquals(2, membership.lists);
+        assertEquals(2, membership.adds);
+        assertEquals(1, membership.removes);
+        assertEquals(3, membership.acls.size());
+    }
+}
@@ -0,0 +1,904 @@
+package com.netflix.priam.backup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.junit.Ignore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.netflix.priam.utils.SystemUtils;
+
+/**
+ * In-process HTTP server speaking the subset of the S3 REST API used by
+ * S3FileSystem: multipart uploads, plain PUT/GET/DELETE including ranged GETs,
+ * listing with markers and common prefixes, and bucket lifecycle
+ * configuration. Latency, bandwidth and errors can be injected so that upload
+ * and restore behavior can be exercised offline.
+ *
+ * Only path style addressing is handled, use bucket names which are not DNS
+ * compatible (e.g. with upper case characters) so that the SDK does not switch
+ * to virtual hosts. The HTTP handling is done on plain sockets since the SDK
+ * expects response headers in their canonical case (ETag, Content-Range..).
+ */
+@Ignore
+public class FakeS3Server
+{
+    private static final Logger logger = LoggerFactory.getLogger(FakeS3Server.class);
+    private static final int IO_SLICE = 64 * 1024;
+    private static final Pattern PART_PATTERN = Pattern.compile("<PartNumber>(\\d+)</PartNumber>\\s*<ETag>\"?([^<\"]*)\"?</ETag>");
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<String, NavigableMap<String, StoredObject>>();
+    private final Map<String, byte[]> lifecycles = new ConcurrentHashMap<String, byte[]>();
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<String, MultipartUpload>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<String, AtomicInteger>();
+    private final Map<String, InjectedError> injectedErrors = new ConcurrentHashMap<String, InjectedError>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Random random = new Random();
+
+    private volatile long latencyMillis;
+    private volatile long bytesPerSecond;
+    private volatile double errorRate;
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    public static class StoredObject
+    {
+        public final byte[] data;
+        public final String etag;
+        public final Date lastModified;
+
+        StoredObject(byte[] data, String etag)
+        {
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = new Date();
+        }
+    }
+
+    private static class MultipartUpload
+    {
+        final String bucket;
+        final String key;
+        final NavigableMap<Integer, StoredObject> parts = new ConcurrentSkipListMap<Integer, StoredObject>();
+
+        MultipartUpload(String bucket, String key)
+        {
+            this.bucket = bucket;
+            this.key = key;
+        }
+    }
+
+    private static class InjectedError
+    {
+        final AtomicInteger remaining;
+        final int status;
+        final String code;
+
+        InjectedError(int count, int status, String code)
+        {
+            this.remaining = new AtomicInteger(count);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    private static class Request
+    {
+        String method;
+        String rawPath;
+        String rawQuery;
+        final Map<String, String> headers = Maps.newHashMap();
+        byte[] body;
+
+        String header(String name)
+        {
+            return headers.get(name.toLowerCase());
+        }
+    }
+
+    private static class Response
+    {
+        int status = 200;
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        byte[] body;
+    }
+
+    private static class S3Error extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        final String code;
+
+        S3Error(int status, String code, String message)
+        {
+            super(message);
+            this.status = status;
+            this.code = code;
+        }
+    }
+
+    public void start() throws IOException
+    {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        executor = Executors.newCachedThreadPool();
+        executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (!serverSocket.isClosed())
+                {
+                    try
+                    {
+                        final Socket socket = serverSocket.accept();
+                        executor.submit(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                handleConnection(socket);
+                            }
+                        });
+                    }
+                    catch (IOException e)
+                    {
+                        if (!serverSocket.isClosed())
+                            logger.error("Fake S3 failed to accept", e);
+                    }
+                }
+            }
+        });
+        logger.info("Fake S3 listening on " + getEndpoint());
+    }
+
+    public void stop()
+    {
+        try
+        {
+            if (serverSocket != null)
+                serverSocket.close();
+        }
+        catch (IOException e)
+        {
+            // ignore
+        }
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    public String getEndpoint()
+    {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * S3 client pointed at this server.
+     */
+    public AmazonS3 newClient()
+    {
+        AmazonS3Client client = new AmazonS3Client(new BasicAWSCredentials("fake-access-key", "fake-secret-key"));
+        client.setEndpoint(getEndpoint());
+        return client;
+    }
+
+    /**
+     * Fixed delay added before every response.
+     */
+    public void setLatency(long millis)
+    {
+        this.latencyMillis = millis;
+    }
+
+    /**
+     * Per request bandwidth for request and response bodies, 0 for unlimited.
+     */
+    public void setBandwidth(long bytesPerSecond)
+    {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Fraction of requests randomly failed with 503 SlowDown.
+     */
+    public void setErrorRate(double errorRate)
+    {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Fail the next count requests of the given operation (e.g. UploadPart,
+     * GetObject, ListObjects, CompleteMultipartUpload).
+     */
+    public void injectErrors(String operation, int count, int status, String code)
+    {
+        injectedErrors.put(operation, new InjectedError(count, status, code));
+    }
+
+    public void reset()
+    {
+        buckets.clear();
+        lifecycles.clear();
+        uploads.clear();
+        requestCounts.clear();
+        injectedErrors.clear();
+        maxInFlight.set(0);
+        latencyMillis = 0;
+        bytesPerSecond = 0;
+        errorRate = 0;
+    }
+
+    public int getRequestCount(String operation)
+    {
+        AtomicInteger count = requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getMaxInFlight()
+    {
+        return maxInFlight.get();
+    }
+
+    public int getPendingUploads()
+    {
+        return uploads.size();
+    }
+
+    public StoredObject getObject(String bucket, String key)
+    {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+        return objects == null ? null : objects.get(key);
+    }
+
+    public void putObject(String bucket, String key, byte[] data)
+    {
+        bucket(bucket).put(key, new StoredObject(data, SystemUtils.toHex(SystemUtils.md5(data))));
+    }
+
+    public SortedSet<String> listKeys(String bucket)
+    {
+        return new TreeSet<String>(bucket(bucket).keySet());
+    }
+
+    private NavigableMap<String, StoredObject> bucket(String name)
+    {
+        synchronized (buckets)
+        {
+            NavigableMap<String, StoredObject> objects = buckets.get(name);
+            if (objects == null)
+            {
+                objects = new ConcurrentSkipListMap<String, StoredObject>();
+                buckets.put(name, objects);
+            }
+            return objects;
+        }
+    }
+
+    private void handleConnection(Socket socket)
+    {
+        try
+        {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true)
+            {
+                Request request = readRequest(in, out);
+                if (request == null)
+                    break;
+                Response response = serve(request);
+                writeResponse(out, request, response);
+                if ("close".equalsIgnoreCase(request.header("Connection")))
+                    break;
+            }
+        }
+        catch (SocketException e)
+        {
+            // client went away
+        }
+        catch (IOException e)
+        {
+            logger.warn("Fake S3 connection failed: " + e.getMessage());
+        }
+        finally
+        {
+            IOUtils.closeQuietly(socket);
+        }
+    }
+
+    private Response serve(Request request)
+    {
+        int current = inFlight.incrementAndGet();
+        while (true)
+        {
+            int max = maxInFlight.get();
+            if (current <= max || maxInFlight.compareAndSet(max, current))
+                break;
+        }
+        try
+        {
+            Map<String, String> params = parseQuery(request.rawQuery);
+            String path = request.rawPath.startsWith("/") ? request.rawPath.substring(1) : request.rawPath;
+            int slash = path.indexOf('/');
+            String bucket = decode(slash < 0 ? path : path.substring(0, slash));
+            String key = slash < 0 || slash == path.length() - 1 ? null : decode(path.substring(slash + 1));
+            String operation = operation(request.method, key, params);
+            count(operation);
+            if (latencyMillis > 0)
+                sleep(latencyMillis);
+            try
+            {
+                failIfInjected(operation);
+                return dispatch(request, operation, bucket, key, params);
+            }
+            catch (S3Error e)
+            {
+                return error(e);
+            }
+        }
+        catch (Exception e)
+        {
+            logger.error("Fake S3 failed to serve request", e);
+            return error(new S3Error(500, "InternalError", String.valueOf(e.getMessage())));
+        }
+        finally
+        {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private String operation(String method, String key, Map<String, String> params)
+    {
+        if (key == null)
+        {
+            if (params.containsKey("lifecycle"))
+                return method + "BucketLifecycle";
+            if ("GET".equals(method))
+                return "ListObjects";
+            return method + "Bucket";
+        }
+        if ("POST".equals(method) && params.containsKey("uploads"))
+            return "InitiateMultipartUpload";
+        if ("PUT".equals(method) && params.containsKey("uploadId"))
+            return "UploadPart";
+        if ("POST".equals(method) && params.containsKey("uploadId"))
+            return "CompleteMultipartUpload";
+        if ("DELETE".equals(method) && params.containsKey("uploadId"))
+            return "AbortMultipartUpload";
+        if ("GET".equals(method))
+            return "GetObject";
+        if ("HEAD".equals(method))
+            return "GetObjectMetadata";
+        if ("PUT".equals(method))
+            return "PutObject";
+        return method + "Object";
+    }
+
+    private Response dispatch(Request request, String operation, String bucket, String key, Map<String, String> params) throws IOException, S3Error
+    {
+        if ("ListObjects".equals(operation))
+            return listObjects(bucket, params);
+        if ("GETBucketLifecycle".equals(operation))
+        {
+            byte[] lifecycle = lifecycles.get(bucket);
+            if (lifecycle == null)
+                throw new S3Error(404, "NoSuchLifecycleConfiguration", "The lifecycle configuration does not exist");
+            return response(200, lifecycle, "application/xml");
+        }
+        if ("PUTBucketLifecycle".equals(operation))
+        {
+            lifecycles.put(bucket, request.body);
+            return response(200, null, null);
+        }
+        if ("DELETEBucketLifecycle".equals(operation))
+        {
+            lifecycles.remove(bucket);
+            return response(204, null, null);
+        }
+        if ("PUTBucket".equals(operation))
+        {
+            bucket(bucket);
+            return response(200, null, null);
+        }
+        if ("InitiateMultipartUpload".equals(operation))
+            return initiate(bucket, key);
+        if ("UploadPart".equals(operation))
+            return uploadPart(request, params);
+        if ("CompleteMultipartUpload".equals(operation))
+            return complete(request, params);
+        if ("AbortMultipartUpload".equals(operation))
+        {
+            if (uploads.remove(params.get("uploadId")) == null)
+                throw new S3Error(404, "NoSuchUpload", "The specified upload does not exist");
+            return response(204, null, null);
+        }
+        if ("GetObject".equals(operation) || "GetObjectMetadata".equals(operation))
+            return getObject(request, bucket, key);
+        if ("PutObject".equals(operation))
+        {
+            verifyDigest(request);
+            putObject(bucket, key, request.body);
+            Response response = response(200, null, null);
+            response.headers.put("ETag", quote(getObject(bucket, key).etag));
+            return response;
+        }
+        if ("DELETEObject".equals(operation))
+        {
+            bucket(bucket).remove(key);
+            return response(204, null, null);
+        }
+        throw new S3Error(405, "MethodNotAllowed", "Unsupported operation " + operation);
+    }
+
+    private Response initiate(String bucket, String key) throws IOException
+    {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new MultipartUpload(bucket, key));
+        StringBuilder xml = new StringBuilder("<InitiateMultipartUploadResult>");
+        xml.append("<Bucket>").append(escape(bucket)).append("</Bucket>");
+        xml.append("<Key>").append(escape(key)).append("</Key>");
+        xml.append("<UploadId>").append(uploadId).append("</UploadId>");
+        xml.append("</InitiateMultipartUploadResult>");
+        return xml(200, xml);
+    }
+
+    private Response uploadPart(Request request, Map<String, String> params) throws IOException, S3Error
+    {
+        MultipartUpload upload = uploads.get(params.get("uploadId"));
+        if (upload == null)
+            throw new S3Error(404, "NoSuchUpload", "The specified upload does not exist");
+        verifyDigest(request);
+        String etag = SystemUtils.toHex(SystemUtils.md5(request.body));
+        upload.parts.put(Integer.parseInt(params.get("partNumber")), new StoredObject(request.body, etag));
+        Response response = response(200, null, null);
+        response.headers.put("ETag", quote(etag));
+        return response;
+    }
+
+    private Response complete(Request request, Map<String, String> params) throws IOException, S3Error
+    {
+        MultipartUpload upload = uploads.get(params.get("uploadId"));
+        if (upload == null)
+            throw new S3Error(404, "NoSuchUpload", "The specified upload does not exist");
+        Matcher m = PART_PATTERN.matcher(new String(request.body, "UTF-8"));
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        int last = 0;
+        int count = 0;
+        while (m.find())
+        {
+            int partNumber = Integer.parseInt(m.group(1));
+            if (partNumber <= last)
+                throw new S3Error(400, "InvalidPartOrder", "The list of parts was not in ascending order");
+            StoredObject part = upload.parts.get(partNumber);
+            if (part == null || !part.etag.equals(m.group(2)))
+                throw new S3Error(400, "InvalidPart", "One or more of the specified parts could not be found");
+            data.write(part.data);
+            digests.write(SystemUtils.md5(part.data));
+            last = partNumber;
+            count++;
+        }
+        if (count == 0)
+            throw new S3Error(400, "MalformedXML", "No parts specified");
+        uploads.remove(params.get("uploadId"));
+        String etag = SystemUtils.toHex(SystemUtils.md5(digests.toByteArray())) + "-" + count;
+        bucket(upload.bucket).put(upload.key, new StoredObject(data.toByteArray(), etag));
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUploadResult>");
+        xml.append("<Location>").append(escape(getEndpoint() + "/" + upload.bucket + "/" + upload.key)).append("</Location>");
+        xml.append("<Bucket>").append(escape(upload.bucket)).append("</Bucket>");
+        xml.append("<Key>").append(escape(upload.key)).append("</Key>");
+        xml.append("<ETag>").append(quote(etag)).append("</ETag>");
+        xml.append("</CompleteMultipartUploadResult>");
+        return xml(200, xml);
+    }
+
+    private Response getObject(Request request, String bucket, String key) throws S3Error
+    {
+        StoredObject obj = getObject(bucket, key);
+        if (obj == null)
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist");
+        int start = 0;
+        int end = obj.data.length - 1;
+        Response response = new Response();
+        String range = request.header("Range");
+        if (range != null)
+        {
+            Matcher m = RANGE_PATTERN.matcher(range);
+            if (!m.matches())
+                throw new S3Error(400, "InvalidArgument", "Bad range " + range);
+            if (m.group(1).length() == 0)
+                start = Math.max(0, obj.data.length - Integer.parseInt(m.group(2)));
+            else
+            {
+                start = Integer.parseInt(m.group(1));
+                if (m.group(2).length() > 0)
+                    end = Math.min(end, Integer.parseInt(m.group(2)));
+            }
+            if (start > end)
+                throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable");
+            response.headers.put("Content-Range", "bytes " + start + "-" + end + "/" + obj.data.length);
+            response.status = 206;
+        }
+        response.headers.put("ETag", quote(obj.etag));
+        response.headers.put("Last-Modified", rfc822(obj.lastModified));
+        response.headers.put("Content-Type", "application/octet-stream");
+        response.headers.put("Accept-Ranges", "bytes");
+        byte[] content = obj.data;
+        if (start != 0 || end != obj.data.length - 1)
+        {
+            content = new byte[end - start + 1];
+            System.arraycopy(obj.data, start, content, 0, content.length);
+        }
+        response.body = content;
+        return response;
+    }
+
+    private Response listObjects(String bucket, Map<String, String> params) throws IOException
+    {
+        String prefix = params.containsKey("prefix") ? params.get("prefix") : "";
+        String marker = params.get("marker");
+        String delimiter = params.get("delimiter");
+        int maxKeys = params.containsKey("max-keys") ? Integer.parseInt(params.get("max-keys")) : 1000;
+
+        NavigableMap<String, StoredObject> objects = bucket(bucket);
+        NavigableMap<String, StoredObject> candidates = marker == null ? objects.tailMap(prefix, true) : objects.tailMap(marker, false);
+        List<Map.Entry<String, StoredObject>> contents = Lists.newArrayList();
+        SortedSet<String> commonPrefixes = new TreeSet<String>();
+        String nextMarker = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet())
+        {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix))
+            {
+                if (key.compareTo(prefix) > 0)
+                    break;
+                continue;
+            }
+            String commonPrefix = null;
+            if (delimiter != null)
+            {
+                int idx = key.indexOf(delimiter, prefix.length());
+                if (idx >= 0)
+                    commonPrefix = key.substring(0, idx + delimiter.length());
+            }
+            if (commonPrefix != null && commonPrefixes.contains(commonPrefix))
+                continue;
+            if (contents.size() + commonPrefixes.size() >= maxKeys)
+            {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null)
+            {
+                commonPrefixes.add(commonPrefix);
+                nextMarker = commonPrefix;
+            }
+            else
+            {
+                contents.add(entry);
+                nextMarker = key;
+            }
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        xml.append("<Name>").append(escape(bucket)).append("</Name>");
+        xml.append("<Prefix>").append(escape(prefix)).append("</Prefix>");
+        xml.append("<Marker>").append(marker == null ? "" : escape(marker)).append("</Marker>");
+        if (truncated && nextMarker != null)
+            xml.append("<NextMarker>").append(escape(nextMarker)).append("</NextMarker>");
+        xml.append("<MaxKeys>").append(maxKeys).append("</MaxKeys>");
+        if (delimiter != null)
+            xml.append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>");
+        xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        for (Map.Entry<String, StoredObject> entry : contents)
+        {
+            xml.append("<Contents>");
+            xml.append("<Key>").append(escape(entry.getKey())).append("</Key>");
+            xml.append("<LastModified>").append(iso8601(entry.getValue().lastModified)).append("</LastModified>");
+            xml.append("<ETag>").append(quote(entry.getValue().etag)).append("</ETag>");
+            xml.append("<Size>").append(entry.getValue().data.length).append("</Size>");
+            xml.append("<Owner><ID>fake</ID><DisplayName>fake</DisplayName></Owner>");
+            xml.append("<StorageClass>STANDARD</StorageClass>");
+            xml.append("</Contents>");
+        }
+        for (String commonPrefix : commonPrefixes)
+            xml.append("<CommonPrefixes><Prefix>").append(escape(commonPrefix)).append("</Prefix></CommonPrefixes>");
+        xml.append("</ListBucketResult>");
+        return xml(200, xml);
+    }
+
+    private void failIfInjected(String operation) throws S3Error
+    {
+        InjectedError error = injectedErrors.get(operation);
+        if (error != null && error.remaining.getAndDecrement() > 0)
+            throw new S3Error(error.status, error.code, "Injected failure for " + operation);
+        if (errorRate > 0)
+        {
+            double draw;
+            synchronized (random)
+            {
+                draw = random.nextDouble();
+            }
+            if (draw < errorRate)
+                throw new S3Error(503, "SlowDown", "Please reduce your request rate.");
+        }
+    }
+
+    private void verifyDigest(Request request) throws S3Error
+    {
+        String expected = request.header("Content-MD5");
+        if (expected != null && !expected.equals(SystemUtils.toBase64(SystemUtils.md5(request.body))))
+            throw new S3Error(400, "BadDigest", "The Content-MD5 you specified did not match what we received");
+    }
+
+    private void count(String operation)
+    {
+        AtomicInteger count = requestCounts.get(operation);
+        if (count == null)
+        {
+            synchronized (requestCounts)
+            {
+                count = requestCounts.get(operation);
+                if (count == null)
+                {
+                    count = new AtomicInteger();
+                    requestCounts.put(operation, count);
+                }
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    private Response xml(int status, CharSequence xml) throws IOException
+    {
+        String doc = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml;
+        return response(status, doc.getBytes("UTF-8"), "application/xml");
+    }
+
+    private Response error(S3Error error)
+    {
+        StringBuilder xml = new StringBuilder("<Error>");
+        xml.append("<Code>").append(error.code).append("</Code>");
+        xml.append("<Message>").append(escape(error.getMessage())).append("</Message>");
+        xml.append("<RequestId>").append(UUID.randomUUID()).append("</RequestId>");
+        xml.append("</Error>");
+        try
+        {
+            return xml(error.status, xml);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Response response(int status, byte[] body, String contentType)
+    {
+        Response response = new Response();
+        response.status = status;
+        response.body = body;
+        if (contentType != null)
+            response.headers.put("Content-Type", contentType);
+        return response;
+    }
+
+    /**
+     * Reads the next request off a keep-alive connection, null once the
+     * client closed it.
+     */
+    private Request readRequest(InputStream in, OutputStream out) throws IOException
+    {
+        String requestLine = readLine(in);
+        while (requestLine != null && requestLine.length() == 0)
+            requestLine = readLine(in);
+        if (requestLine == null)
+            return null;
+        String[] parts = requestLine.split(" ");
+        Request request = new Request();
+        request.method = parts[0];
+        String uri = parts[1];
+        int q = uri.indexOf('?');
+        request.rawPath = q < 0 ? uri : uri.substring(0, q);
+        request.rawQuery = q < 0 ? null : uri.substring(q + 1);
+        String line;
+        while ((line = readLine(in)) != null && line.length() > 0)
+        {
+            int colon = line.indexOf(':');
+            if (colon > 0)
+                request.headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        if ("100-continue".equalsIgnoreCase(request.header("Expect")))
+        {
+            out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes("US-ASCII"));
+            out.flush();
+        }
+        String length = request.header("Content-Length");
+        int remaining = length == null ? 0 : Integer.parseInt(length);
+        byte[] body = new byte[remaining];
+        int off = 0;
+        while (off < body.length)
+        {
+            int read = in.read(body, off, Math.min(IO_SLICE, body.length - off));
+            if (read < 0)
+                throw new IOException("Unexpected end of request body");
+            off += read;
+            pace(read);
+        }
+        request.body = body;
+        return request;
+    }
+
+    private void writeResponse(OutputStream out, Request request, Response response) throws IOException
+    {
+        byte[] body = response.body == null ? new byte[0] : response.body;
+        StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.status).append(" ").append(reason(response.status)).append("\r\n");
+        response.headers.put("x-amz-request-id", UUID.randomUUID().toString());
+        response.headers.put("Date", rfc822(new Date()));
+        response.headers.put("Content-Length", String.valueOf(body.length));
+        for (Map.Entry<String, String> header : response.headers.entrySet())
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        head.append("\r\n");
+        out.write(head.toString().getBytes("US-ASCII"));
+        if (!"HEAD".equals(request.method))
+        {
+            for (int off = 0; off < body.length; off += IO_SLICE)
+            {
+                int len = Math.min(IO_SLICE, body.length - off);
+                out.write(body, off, len);
+                pace(len);
+            }
+        }
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1)
+        {
+            if (c == '\n')
+                return line.toString();
+            if (c != '\r')
+                line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static String reason(int status)
+    {
+        switch (status)
+        {
+        case 200:
+            return "OK";
+        case 204:
+            return "No Content";
+        case 206:
+            return "Partial Content";
+        case 400:
+            return "Bad Request";
+        case 403:
+            return "Forbidden";
+        case 404:
+            return "Not Found";
+        case 416:
+            return "Requested Range Not Satisfiable";
+        case 503:
+            return "Service Unavailable";
+        default:
+            return "Status";
+        }
+    }
+
+    private void pace(int bytes)
+    {
+        long bps = bytesPerSecond;
+        if (bps > 0)
+            sleep(bytes * 1000L / bps);
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query)
+    {
+        Map<String, String> params = Maps.newHashMap();
+        if (query == null)
+            return params;
+        for (String pair : query.split("&"))
+        {
+            if (pair.length() == 0)
+                continue;
+            int eq = pair.indexOf('=');
+            if (eq < 0)
+                params.put(decode(pair), "");
+            else
+                params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+        }
+        return params;
+    }
+
+    private static String decode(String value)
+    {
+        try
+        {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String escape(String value)
+    {
+        return StringEscapeUtils.escapeXml(value);
+    }
+
+    private static String quote(String etag)
+    {
+        return "\"" + etag + "\"";
+    }
+
+    private static String iso8601(Date date)
+    {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(date);
+    }
+
+    private static String rfc822(Date date)
+    {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(date);
+    }
+}
@@ -0,0 +1,61 @@
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.netflix.priam.FakeConfiguration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestBackupFileReader
+{
+    private final File file = new File("target/backup_file_reader.db");
+
+    @After
+    public void cleanup()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void readsAcrossBuffers() throws Exception
+    {
+        // more than one read, and not a multiple of it
+        verify(BackupFileReader.READ_SIZE + 12345, false);
+    }
+
+    @Test
+    public void readsAcrossMappings() throws Exception
+    {
+        verify(BackupFileReader.MAP_SIZE + 12345, true);
+    }
+
+    private void verify(int size, boolean mapped) throws Exception
+    {
+        byte[] data = new byte[size];
+        new Random(46).nextBytes(data);
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        Files.write(data, file);
+
+        BackupFileReader reader = new BackupFileReader(file, new FakeConfiguration("fake-region", "fake-app", "az1", "i-1"), mapped);
+        try
+        {
+            assertEquals(data[0] & 0xff, reader.read());
+            byte[] rest = IOUtils.toByteArray(reader);
+            assertEquals(data.length - 1, rest.length);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data, 1, data.length), rest));
+            assertEquals(-1, reader.read());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
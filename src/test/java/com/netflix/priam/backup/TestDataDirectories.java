@@ -0,0 +1,62 @@
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDataDirectories
+{
+    private final List<String> locations = Lists.newArrayList("target/data1", "target/data2", "target/data3");
+
+    @Test
+    public void keepsSSTableTogether()
+    {
+        for (int i = 0; i < 20; i++)
+        {
+            File data = DataDirectories.restoreLocation(locations, "ks", "Standard1-hc-" + i + "-Data.db");
+            assertTrue(locations.contains(data.getPath()));
+            assertEquals(data, DataDirectories.restoreLocation(locations, "ks", "Standard1-hc-" + i + "-Index.db"));
+            assertEquals(data, DataDirectories.restoreLocation(locations, "ks", "Standard1-hc-" + i + "-Filter.db"));
+        }
+        assertEquals(new File("target/data1"), DataDirectories.restoreLocation(Lists.newArrayList("target/data1"), "ks", "Standard1-hc-1-Data.db"));
+    }
+
+    @Test
+    public void clearsPlacements()
+    {
+        DataDirectories.restoreLocation(locations, "ks", "Standard1-hc-1-Data.db");
+        assertTrue(DataDirectories.placed() > 0);
+        DataDirectories.clearPlacements();
+        assertEquals(0, DataDirectories.placed());
+    }
+
+    @Test
+    public void sstableName()
+    {
+        assertEquals("Standard1-hc-5", DataDirectories.sstable("Standard1-hc-5-Data.db"));
+        assertEquals("Standard1.idx-hc-5", DataDirectories.sstable("Standard1.idx-hc-5-Statistics.db"));
+    }
+
+    @Test
+    public void groupsByDevice()
+    {
+        // the same disk, whether or not the mounts can be read
+        int devices = DataDirectories.byDevice(Lists.newArrayList("target/data1", "target/data1/../data2")).size();
+        assertTrue(devices == 1 || !new File("/proc/mounts").canRead());
+        assertEquals(3, count(DataDirectories.byDevice(locations)));
+    }
+
+    private static int count(Iterable<List<File>> devices)
+    {
+        int dirs = 0;
+        for (List<File> device : devices)
+            dirs += device.size();
+        return dirs;
+    }
+}
@@ -0,0 +1,181 @@
+package com.netflix.priam.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.google.common.collect.Lists;
+import com.netflix.priam.utils.SystemUtils;
+
+public class TestFakeS3Server
+{
+    private static final String BUCKET = "TEST-fake.s3";
+    private static FakeS3Server server;
+    private AmazonS3 client;
+
+    @BeforeClass
+    public static void startServer() throws IOException
+    {
+        server = new FakeS3Server();
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer()
+    {
+        server.stop();
+    }
+
+    @Before
+    public void setup()
+    {
+        client = server.newClient();
+    }
+
+    @After
+    public void reset()
+    {
+        server.reset();
+    }
+
+    @Test
+    public void multipartUpload() throws IOException
+    {
+        String uploadId = client.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, "a/b/file")).getUploadId();
+        List<PartETag> etags = Lists.newArrayList();
+        for (int i = 1; i <= 3; i++)
+        {
+            byte[] data = ("part" + i).getBytes();
+            UploadPartRequest req = new UploadPartRequest().withBucketName(BUCKET).withKey("a/b/file").withUploadId(uploadId).withPartNumber(i)
+                    .withPartSize(data.length).withInputStream(new ByteArrayInputStream(data));
+            req.setMd5Digest(SystemUtils.toBase64(SystemUtils.md5(data)));
+            PartETag etag = client.uploadPart(req).getPartETag();
+            Assert.assertEquals(SystemUtils.toHex(SystemUtils.md5(data)), etag.getETag());
+            etags.add(etag);
+        }
+        Assert.assertEquals(1, server.getPendingUploads());
+        client.completeMultipartUpload(new CompleteMultipartUploadRequest(BUCKET, "a/b/file", uploadId, etags));
+        Assert.assertEquals(0, server.getPendingUploads());
+        Assert.assertEquals("part1part2part3", new String(server.getObject(BUCKET, "a/b/file").data));
+        Assert.assertTrue(server.getObject(BUCKET, "a/b/file").etag.endsWith("-3"));
+    }
+
+    @Test
+    public void completeRejectsMissingParts()
+    {
+        String uploadId = client.initiateMultipartUpload(new InitiateMultipartUploadRequest(BUCKET, "file")).getUploadId();
+        byte[] data = "part1".getBytes();
+        UploadPartRequest req = new UploadPartRequest().withBucketName(BUCKET).withKey("file").withUploadId(uploadId).withPartNumber(1)
+                .withPartSize(data.length).withInputStream(new ByteArrayInputStream(data));
+        List<PartETag> etags = Lists.newArrayList();
+        etags.add(client.uploadPart(req).getPartETag());
+        etags.add(new PartETag(2, SystemUtils.toHex(SystemUtils.md5(data))));
+        try
+        {
+            client.completeMultipartUpload(new CompleteMultipartUploadRequest(BUCKET, "file", uploadId, etags));
+            Assert.fail("Completion with a missing part should fail");
+        }
+        catch (AmazonServiceException e)
+        {
+            Assert.assertEquals("InvalidPart", e.getErrorCode());
+        }
+        Assert.assertNull(server.getObject(BUCKET, "file"));
+    }
+
+    @Test
+    public void listWithMarkersAndPrefixes()
+    {
+        for (int i = 0; i < 25; i++)
+            server.putObject(BUCKET, String.format("base/region/token%02d/file", i), new byte[] { 1 });
+        server.putObject(BUCKET, "other/file", new byte[] { 1 });
+
+        ListObjectsRequest req = new ListObjectsRequest().withBucketName(BUCKET).withPrefix("base/").withMaxKeys(10);
+        ObjectListing listing = client.listObjects(req);
+        int count = listing.getObjectSummaries().size();
+        int batches = 1;
+        while (listing.isTruncated())
+        {
+            listing = client.listNextBatchOfObjects(listing);
+            count += listing.getObjectSummaries().size();
+            batches++;
+        }
+        Assert.assertEquals(25, count);
+        Assert.assertEquals(3, batches);
+
+        req = new ListObjectsRequest().withBucketName(BUCKET).withPrefix("base/region/").withDelimiter("/");
+        listing = client.listObjects(req);
+        Assert.assertEquals(0, listing.getObjectSummaries().size());
+        Assert.assertEquals(25, listing.getCommonPrefixes().size());
+        Assert.assertEquals("base/region/token00/", listing.getCommonPrefixes().get(0));
+    }
+
+    @Test
+    public void rangedGet() throws IOException
+    {
+        server.putObject(BUCKET, "ranged", "0123456789".getBytes());
+        GetObjectRequest req = new GetObjectRequest(BUCKET, "ranged");
+        req.setRange(2, 5);
+        S3Object obj = client.getObject(req);
+        Assert.assertEquals("2345", new String(IOUtils.toByteArray(obj.getObjectContent())));
+        Assert.assertEquals("0123456789", new String(IOUtils.toByteArray(client.getObject(BUCKET, "ranged").getObjectContent())));
+    }
+
+    @Test
+    public void lifecycle()
+    {
+        Assert.assertNull(client.getBucketLifecycleConfiguration(BUCKET));
+        BucketLifecycleConfiguration.Rule rule = new BucketLifecycleConfiguration.Rule().withId("rule").withPrefix("base/").withExpirationInDays(5)
+                .withStatus(BucketLifecycleConfiguration.ENABLED);
+        List<BucketLifecycleConfiguration.Rule> rules = Lists.newArrayList();
+        rules.add(rule);
+        client.setBucketLifecycleConfiguration(BUCKET, new BucketLifecycleConfiguration(rules));
+        BucketLifecycleConfiguration conf = client.getBucketLifecycleConfiguration(BUCKET);
+        Assert.assertEquals(1, conf.getRules().size());
+        Assert.assertEquals("base/", conf.getRules().get(0).getPrefix());
+        Assert.assertEquals(5, conf.getRules().get(0).getExpirationInDays());
+        client.deleteBucketLifecycleConfiguration(BUCKET);
+        Assert.assertNull(client.getBucketLifecycleConfiguration(BUCKET));
+    }
+
+    @Test
+    public void injectedErrors() throws IOException
+    {
+        server.putObject(BUCKET, "flaky", "data".getBytes());
+        // the SDK retries 503s on its own
+        server.injectErrors("GetObject", 2, 503, "SlowDown");
+        Assert.assertEquals("data", new String(IOUtils.toByteArray(client.getObject(BUCKET, "flaky").getObjectContent())));
+        Assert.assertEquals(3, server.getRequestCount("GetObject"));
+
+        server.injectErrors("GetObject", 1, 403, "AccessDenied");
+        try
+        {
+            client.getObject(BUCKET, "flaky");
+            Assert.fail("Injected error should surface");
+        }
+        catch (AmazonServiceException e)
+        {
+            Assert.assertEquals("AccessDenied", e.getErrorCode());
+            Assert.assertEquals(403, e.getStatusCode());
+        }
+    }
+}
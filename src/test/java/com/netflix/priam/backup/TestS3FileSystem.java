@@ -29,11 +29,13 @@ import com.google.common.collect.Lists;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.aws.DataPart;
+import com.netflix.priam.aws.PartETagCollection;
 import com.netflix.priam.aws.S3BackupPath;
 import com.netflix.priam.aws.S3FileSystem;
 import com.netflix.priam.aws.S3PartUploader;
 import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.utils.Backoff;
 import com.netflix.priam.utils.RetryableCallable;
 
 public class TestS3FileSystem
@@ -68,6 +70,7 @@ public class TestS3FileSystem
     {
         File file = new File(FILE_PATH);
         file.delete();
+        Mockit.tearDownMocks();
     }
 
     @Test
@@ -99,7 +102,8 @@ public class TestS3FileSystem
         {
             // ignore
         }
-        Assert.assertEquals(RetryableCallable.DEFAULT_NUMBER_OF_RETRIES, MockS3PartUploader.partAttempts);
+        // the initial attempt plus two resubmits of the failed part
+        Assert.assertEquals(3 * RetryableCallable.DEFAULT_NUMBER_OF_RETRIES, MockS3PartUploader.partAttempts);
         Assert.assertEquals(0, MockS3PartUploader.compattempts);
     }
 
@@ -160,12 +164,14 @@ public class TestS3FileSystem
         public static int partAttempts = 0;
         public static boolean partFailure = false;
         public static boolean completionFailure = false;
-        private static List<PartETag> partETags;
+        private static PartETagCollection partETags;
+        private static DataPart dataPart;
 
         @Mock
-        public void $init(AmazonS3 client, DataPart dp, List<PartETag> partETags)
+        public void $init(AmazonS3 client, DataPart dp, PartETagCollection partETags)
         {
-            this.partETags = partETags;
+            MockS3PartUploader.partETags = partETags;
+            MockS3PartUploader.dataPart = dp;
         }
 
         @Mock
@@ -174,7 +180,7 @@ public class TestS3FileSystem
             ++partAttempts;
             if (partFailure)
                 throw new BackupRestoreException("Test exception");
-            this.partETags.add(new PartETag(0, null));
+            partETags.add(new PartETag(dataPart.getPartNo(), null));
             return null;
         }
 
@@ -191,6 +197,12 @@ public class TestS3FileSystem
         {
         }
 
+        @Mock
+        public Backoff newBackoff()
+        {
+            return Backoff.jittered(0);
+        }
+
         @Override
         @Mock
         public Void retriableCall() throws AmazonClientException, BackupRestoreException
@@ -0,0 +1,333 @@
+package com.netflix.priam.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.MBeanServerFactory;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.ICredential;
+import com.netflix.priam.aws.S3BackupPath;
+import com.netflix.priam.aws.S3FileSystem;
+import com.netflix.priam.compress.SnappyCompression;
+import com.netflix.priam.identity.InstanceIdentity;
+
+/**
+ * Upload/restore round trips, throughput and concurrency of S3FileSystem
+ * against FakeS3Server.
+ */
+public class TestS3Transfer
+{
+    private static final Logger logger = LoggerFactory.getLogger(TestS3Transfer.class);
+    private static final String SNAPSHOT_PATH = "casstestbackup/fake-region/fake-app/%s/201108082320/SNAP/ks1/f%d.db";
+    private static FakeS3Server server;
+    private static Injector injector;
+    private S3FileSystem fs;
+
+    @BeforeClass
+    public static void startServer() throws IOException
+    {
+        injector = Guice.createInjector(new BRTestModule());
+        server = new FakeS3Server();
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer()
+    {
+        server.stop();
+    }
+
+    @Before
+    public void setup()
+    {
+        fs = new S3FileSystem(injector.getProvider(AbstractBackupPath.class), new SnappyCompression(), injector.getInstance(IConfiguration.class),
+                injector.getInstance(ICredential.class), MBeanServerFactory.newMBeanServer())
+        {
+            @Override
+            protected AmazonS3 getS3Client()
+            {
+                return server.newClient();
+            }
+        };
+    }
+
+    @After
+    public void reset()
+    {
+        server.reset();
+    }
+
+    @Test
+    public void roundTrip() throws Exception
+    {
+        byte[] data = randomData(12 * 1024 * 1024);
+        S3BackupPath path = path(1);
+        long start = System.currentTimeMillis();
+        fs.upload(path, new ByteArrayInputStream(data));
+        logThroughput("upload", data.length, start);
+        Assert.assertTrue(server.getRequestCount("UploadPart") >= 3);
+        Assert.assertEquals(0, server.getPendingUploads());
+
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        start = System.currentTimeMillis();
+        fs.download(path, restored);
+        logThroughput("download", data.length, start);
+        Assert.assertTrue(Arrays.equals(data, restored.toByteArray()));
+    }
+
+    @Test
+    public void rangedDownloadFromOtherRegion() throws Exception
+    {
+        byte[] data = randomData(12 * 1024 * 1024);
+        S3BackupPath path = injector.getInstance(S3BackupPath.class);
+        path.parseRemote(String.format(SNAPSHOT_PATH, injector.getInstance(InstanceIdentity.class).getInstance().getToken(), 5).replace("fake-region", "other-region"));
+        fs.upload(path, new ByteArrayInputStream(data));
+
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        long start = System.currentTimeMillis();
+        fs.download(path, restored);
+        logThroughput("ranged download", data.length, start);
+        Assert.assertTrue(Arrays.equals(data, restored.toByteArray()));
+        Assert.assertEquals(1, server.getRequestCount("GetObjectMetadata"));
+        Assert.assertTrue(server.getRequestCount("GetObject") >= 3);
+        Assert.assertEquals(0, fs.getBufferedBytes());
+    }
+
+    @Test
+    public void concurrentRangedDownloads() throws Exception
+    {
+        // an upload budget with room for 4 ranges, and a restore's 8 threads
+        IConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "fakeInstance1")
+        {
+            @Override
+            public int getS3BufferBudget()
+            {
+                return 20;
+            }
+
+            @Override
+            public int getMaxBackupDownloadThreads()
+            {
+                return 8;
+            }
+        };
+        fs = new S3FileSystem(injector.getProvider(AbstractBackupPath.class), new SnappyCompression(), config,
+                injector.getInstance(ICredential.class), MBeanServerFactory.newMBeanServer())
+        {
+            @Override
+            protected AmazonS3 getS3Client()
+            {
+                return server.newClient();
+            }
+        };
+        int files = 8;
+        final List<S3BackupPath> paths = Lists.newArrayList();
+        for (int i = 0; i < files; i++)
+        {
+            S3BackupPath path = injector.getInstance(S3BackupPath.class);
+            path.parseRemote(String.format(SNAPSHOT_PATH, injector.getInstance(InstanceIdentity.class).getInstance().getToken(), 30 + i).replace("fake-region", "other-region"));
+            paths.add(path);
+        }
+        fs.upload(paths.get(0), new ByteArrayInputStream(randomData(12 * 1024 * 1024)));
+        byte[] stored = server.getObject("TEST-netflix.platform.S3", paths.get(0).getRemotePath()).data;
+        for (int i = 1; i < files; i++)
+            server.putObject("TEST-netflix.platform.S3", paths.get(i).getRemotePath(), stored);
+
+        server.setLatency(200);
+        ExecutorService pool = Executors.newFixedThreadPool(files);
+        try
+        {
+            List<Future<Void>> results = Lists.newArrayList();
+            for (final S3BackupPath path : paths)
+            {
+                results.add(pool.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        fs.download(path, new NullOutputStream());
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results)
+                result.get();
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        // more ranges at once than the upload budget has room for
+        Assert.assertTrue("Max in flight " + server.getMaxInFlight(), server.getMaxInFlight() > 8);
+        Assert.assertEquals(0, fs.getBufferedBytes());
+    }
+
+    @Test
+    public void transientPartFailures() throws Exception
+    {
+        byte[] data = randomData(6 * 1024 * 1024);
+        server.injectErrors("UploadPart", 2, 500, "InternalError");
+        fs.upload(path(2), new ByteArrayInputStream(data));
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        fs.download(path(2), restored);
+        Assert.assertTrue(Arrays.equals(data, restored.toByteArray()));
+    }
+
+    @Test
+    public void failedPartsAreResubmitted() throws Exception
+    {
+        // RequestTimeout is not retried by the SDK, so the part uploader runs out of retries once
+        server.injectErrors("UploadPart", 5, 400, "RequestTimeout");
+        byte[] data = randomData(1024);
+        fs.upload(path(4), new ByteArrayInputStream(data));
+        Assert.assertEquals(1, server.getRequestCount("InitiateMultipartUpload"));
+        Assert.assertEquals(6, server.getRequestCount("UploadPart"));
+        ByteArrayOutputStream restored = new ByteArrayOutputStream();
+        fs.download(path(4), restored);
+        Assert.assertTrue(Arrays.equals(data, restored.toByteArray()));
+    }
+
+    @Test
+    public void failedUploadIsAborted() throws Exception
+    {
+        server.injectErrors("CompleteMultipartUpload", 10, 400, "InvalidPart");
+        try
+        {
+            fs.upload(path(3), new ByteArrayInputStream(randomData(1024)));
+            Assert.fail("Upload should have failed");
+        }
+        catch (BackupRestoreException e)
+        {
+            // expected
+        }
+        Assert.assertEquals(0, server.getPendingUploads());
+        Assert.assertNull(server.getObject("TEST-netflix.platform.S3", path(3).getRemotePath()));
+    }
+
+    @Test
+    public void failedReadCancelsParts() throws Exception
+    {
+        server.setLatency(500);
+        // the file breaks after two parts are on their way
+        InputStream in = new SequenceInputStream(new ByteArrayInputStream(randomData(12 * 1024 * 1024)), new InputStream()
+        {
+            @Override
+            public int read() throws IOException
+            {
+                throw new IOException("Disk read failed");
+            }
+        });
+        try
+        {
+            fs.upload(path(6), in);
+            Assert.fail("Upload should have failed");
+        }
+        catch (BackupRestoreException e)
+        {
+            // expected
+        }
+        // no part is still holding its room once the upload is aborted
+        Assert.assertEquals(0, fs.getBufferedBytes());
+        Assert.assertEquals(0, server.getPendingUploads());
+    }
+
+    @Test
+    public void concurrentUploadsWithLatency() throws Exception
+    {
+        server.setLatency(20);
+        int files = 6;
+        ExecutorService pool = Executors.newFixedThreadPool(files);
+        try
+        {
+            List<Future<Void>> results = Lists.newArrayList();
+            for (int i = 0; i < files; i++)
+            {
+                final S3BackupPath path = path(10 + i);
+                final byte[] data = randomData(6 * 1024 * 1024);
+                results.add(pool.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        fs.upload(path, new ByteArrayInputStream(data));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results)
+                result.get();
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        Assert.assertEquals(files, server.listKeys("TEST-netflix.platform.S3").size());
+        Assert.assertTrue(server.getMaxInFlight() > 1);
+        Assert.assertEquals(0, fs.getBufferedBytes());
+        logger.info("Max concurrent requests seen by fake S3: " + server.getMaxInFlight());
+    }
+
+    @Test
+    public void listSnapshotFiles() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+            fs.upload(path(20 + i), new ByteArrayInputStream(randomData(1024)));
+        Iterator<AbstractBackupPath> it = fs.list("TEST-netflix.platform.S3", AbstractBackupPath.DAY_FORMAT.parse("201108080000"),
+                AbstractBackupPath.DAY_FORMAT.parse("201108090000"));
+        int count = 0;
+        while (it.hasNext())
+        {
+            Assert.assertEquals("ks1", it.next().getKeyspace());
+            count++;
+        }
+        Assert.assertEquals(3, count);
+    }
+
+    private S3BackupPath path(int file)
+    {
+        S3BackupPath path = injector.getInstance(S3BackupPath.class);
+        path.parseRemote(String.format(SNAPSHOT_PATH, injector.getInstance(InstanceIdentity.class).getInstance().getToken(), file));
+        return path;
+    }
+
+    private static byte[] randomData(int size)
+    {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static void logThroughput(String op, long bytes, long start)
+    {
+        long millis = Math.max(1, System.currentTimeMillis() - start);
+        logger.info(String.format("%s of %d bytes took %d ms (%.2f MB/s)", op, bytes, millis, (bytes / 1024.0 / 1024.0) / (millis / 1000.0)));
+    }
+}
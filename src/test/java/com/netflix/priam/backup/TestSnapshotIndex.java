@@ -0,0 +1,157 @@
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestSnapshotIndex
+{
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private final File dir = new File("target/snapshot_index");
+    private final File indexFile = new File(dir, "snapshot.index");
+    private File sstable;
+    private File compacted;
+
+    @Before
+    public void setup() throws Exception
+    {
+        dir.mkdirs();
+        sstable = new File(dir, "Standard1-hc-1-Data.db");
+        compacted = new File(dir, "Standard1-hc-2-Data.db");
+        Files.write("data", sstable, Charsets.UTF_8);
+        Files.write("more data", compacted, Charsets.UTF_8);
+    }
+
+    @After
+    public void cleanup()
+    {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void reusesUnchangedFiles() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        SnapshotIndex index = new SnapshotIndex(indexFile, 7 * DAY, now);
+        assertTrue(index.isFull());
+        assertNull(index.uploaded("ks", sstable));
+        index.add("ks", sstable, "backup/1/ks/Standard1-hc-1-Data.db");
+        index.add("ks", compacted, "backup/1/ks/Standard1-hc-2-Data.db");
+        index.save();
+
+        index = new SnapshotIndex(indexFile, 7 * DAY, now + DAY);
+        assertFalse(index.isFull());
+        assertEquals("backup/1/ks/Standard1-hc-1-Data.db", index.uploaded("ks", sstable));
+        assertNull(index.uploaded("other", sstable));
+        // the only file of this snapshot
+        index.add("ks", sstable, index.uploaded("ks", sstable));
+        index.save();
+
+        index = new SnapshotIndex(indexFile, 7 * DAY, now + 2 * DAY);
+        assertNull(index.uploaded("ks", compacted));
+        Files.write("rewritten", sstable, Charsets.UTF_8);
+        assertNull(index.uploaded("ks", sstable));
+    }
+
+    @Test
+    public void rebases() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        SnapshotIndex index = new SnapshotIndex(indexFile, 7 * DAY, now);
+        index.add("ks", sstable, "backup/1/ks/Standard1-hc-1-Data.db");
+        index.save();
+
+        index = new SnapshotIndex(indexFile, 7 * DAY, now + 6 * DAY);
+        assertEquals("backup/1/ks/Standard1-hc-1-Data.db", index.uploaded("ks", sstable));
+        index.add("ks", sstable, "backup/1/ks/Standard1-hc-1-Data.db");
+        index.save();
+
+        // counted from the last full snapshot, not the last one
+        index = new SnapshotIndex(indexFile, 7 * DAY, now + 7 * DAY);
+        assertTrue(index.isFull());
+        assertNull(index.uploaded("ks", sstable));
+    }
+
+    @Test
+    public void capsRebaseAtHalfRetention()
+    {
+        assertEquals(0, SnapshotIndex.rebaseInterval(0, 8));
+        assertEquals(3 * DAY, SnapshotIndex.rebaseInterval(3, 8));
+        assertEquals(4 * DAY, SnapshotIndex.rebaseInterval(7, 8));
+        assertEquals(0, SnapshotIndex.rebaseInterval(7, 1));
+        assertEquals(30 * DAY, SnapshotIndex.rebaseInterval(30, 0));
+    }
+
+    /**
+     * Daily snapshots of a node with one sstable which never changes, against
+     * a bucket expiring objects after the retention. Every snapshot taken
+     * within half the retention finds all its files, also once the full
+     * snapshot which first uploaded the unchanged sstable has expired.
+     */
+    @Test
+    public void restoresAfterBaseExpired() throws Exception
+    {
+        int retention = 8;
+        long interval = SnapshotIndex.rebaseInterval(7, retention);
+        // the restore horizon promised
+        long horizon = retention * DAY / 2;
+        long start = System.currentTimeMillis();
+        // remote path to upload time
+        Map<String, Long> bucket = Maps.newHashMap();
+        Map<Long, List<String>> metas = Maps.newTreeMap();
+        for (int day = 0; day < 3 * retention; day++)
+        {
+            long now = start + day * DAY;
+            // the lifecycle rule expires objects older than the retention
+            for (String remote : Lists.newArrayList(bucket.keySet()))
+            {
+                if (now - bucket.get(remote) >= retention * DAY)
+                    bucket.remove(remote);
+            }
+            File flushed = new File(dir, "Standard1-hc-" + (day + 10) + "-Data.db");
+            Files.write("day " + day, flushed, Charsets.UTF_8);
+
+            SnapshotIndex index = new SnapshotIndex(indexFile, interval, now);
+            List<String> meta = Lists.newArrayList();
+            for (File file : new File[] { sstable, flushed })
+            {
+                String remote = index.uploaded("ks", file);
+                if (remote == null)
+                {
+                    remote = "backup/" + day + "/ks/" + file.getName();
+                    bucket.put(remote, now);
+                }
+                index.add("ks", file, remote);
+                meta.add(remote);
+            }
+            index.save();
+            flushed.delete();
+            metas.put(now, meta);
+
+            // restore every snapshot within the horizon
+            for (Map.Entry<Long, List<String>> snapshot : metas.entrySet())
+            {
+                if (now - snapshot.getKey() > horizon)
+                    continue;
+                for (String remote : snapshot.getValue())
+                    assertTrue(remote + " of the snapshot at " + snapshot.getKey() + " expired", bucket.containsKey(remote));
+            }
+        }
+        assertFalse(bucket.containsKey("backup/0/ks/" + sstable.getName()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.netflix.priam.backup.identity;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.identity.FileInstanceFactory;
+import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.identity.SlotTakenException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FileInstanceFactoryTest
+{
+    private FakeConfiguration config;
+
+    @Before
+    public void setup() throws Exception
+    {
+        config = new FakeConfiguration("fake-region", "fake-app", "az1", "fakeinstance1");
+        FileUtils.deleteDirectory(new File(config.getInstanceRegistryLocation()));
+    }
+
+    @After
+    public void cleanup() throws Exception
+    {
+        FileUtils.deleteDirectory(new File(config.getInstanceRegistryLocation()));
+    }
+
+    @Test
+    public void survivesRestart()
+    {
+        FileInstanceFactory factory = new FileInstanceFactory(config);
+        factory.create("fake-app", 2, "i-2", "host2", "10.0.0.2", "az1", null, "200");
+        factory.create("fake-app", 1, "i-1", "host1", "10.0.0.1", "az1", null, "100");
+
+        List<PriamInstance> instances = new FileInstanceFactory(config).getAllIds("fake-app");
+        assertEquals(2, instances.size());
+        assertEquals(1, instances.get(0).getId());
+        assertEquals("host1", instances.get(0).getHostName());
+        assertEquals("10.0.0.1", instances.get(0).getHostIP());
+        assertEquals("100", instances.get(0).getToken());
+        assertEquals(config.getDC(), instances.get(0).getDC());
+        assertEquals(0, factory.getAllIds("fake-app-dead").size());
+    }
+
+    @Test(expected = SlotTakenException.class)
+    public void takenSlot()
+    {
+        FileInstanceFactory factory = new FileInstanceFactory(config);
+        factory.create("fake-app", 1, "i-1", "host1", "10.0.0.1", "az1", null, "100");
+        factory.create("fake-app", 1, "i-2", "host2", "10.0.0.2", "az1", null, "100");
+    }
+
+    @Test
+    public void deleteOnlyOwnEntry()
+    {
+        FileInstanceFactory factory = new FileInstanceFactory(config);
+        PriamInstance first = factory.create("fake-app", 1, "i-1", "host1", "10.0.0.1", "az1", null, "100");
+        factory.delete(first);
+        factory.create("fake-app", 1, "i-2", "host2", "10.0.0.2", "az1", null, "100");
+        // a stale view of the slot must not free it
+        factory.delete(first);
+        assertEquals("i-2", factory.getInstance("fake-app", 1).getInstanceId());
+        assertNull(factory.getInstance("fake-app", 2));
+    }
+
+    @Test
+    public void oneWinnerPerSlot() throws Exception
+    {
+        final FileInstanceFactory factory = new FileInstanceFactory(config);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> attempts = Lists.newArrayList();
+        for (int i = 0; i < 16; i++)
+        {
+            final String instanceId = "i-" + i;
+            attempts.add(executor.submit(new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    try
+                    {
+                        factory.create("fake-app", 5, instanceId, "host", "10.0.0.5", "az1", null, "500");
+                        return true;
+                    }
+                    catch (SlotTakenException e)
+                    {
+                        return false;
+                    }
+                }
+            }));
+        }
+        int winners = 0;
+        for (Future<Boolean> attempt : attempts)
+            winners += attempt.get() ? 1 : 0;
+        executor.shutdown();
+        assertEquals(1, winners);
+        assertEquals(1, factory.getAllIds("fake-app").size());
+    }
+}
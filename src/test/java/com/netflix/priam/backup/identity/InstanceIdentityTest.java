@@ -1,12 +1,16 @@
 package com.netflix.priam.backup.identity;
 
 import com.netflix.priam.identity.DoubleRing;
+import com.netflix.priam.identity.FileInstanceFactory;
 import com.netflix.priam.identity.PriamInstance;
 import com.netflix.priam.utils.TokenManager;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+
 import static org.junit.Assert.assertEquals;
 
 public class InstanceIdentityTest extends InstanceTestUtils
@@ -57,6 +61,32 @@ public class InstanceIdentityTest extends InstanceTestUtils
         assertEquals(1, identity.getInstance().getId() - hash);
     }
 
+    @Test
+    public void testLostDeadSlot() throws Exception
+    {
+        File registry = new File(config.getInstanceRegistryLocation());
+        FileUtils.deleteDirectory(registry);
+        try
+        {
+            factory = new FileInstanceFactory(config);
+            createInstances();
+            instances.remove("fakeinstance4");
+            instances.remove("fakeinstance5");
+            int hash = TokenManager.regionOffset(config.getDC());
+            // another node is taking over the first dead slot
+            PriamInstance dead = factory.getInstance("fake-app", hash + 1);
+            factory.create("fake-app-dead", dead.getId(), dead.getInstanceId(), dead.getHostName(), dead.getHostIP(), dead.getRac(), null, dead.getToken());
+
+            identity = createInstanceIdentity("az2", "fakeinstancex");
+            assertEquals(4, identity.getInstance().getId() - hash);
+            assertEquals("fakeinstance4", factory.getInstance("fake-app", hash + 1).getInstanceId());
+        }
+        finally
+        {
+            FileUtils.deleteDirectory(registry);
+        }
+    }
+
     @Test
     public void testGetSeeds() throws Exception
     {
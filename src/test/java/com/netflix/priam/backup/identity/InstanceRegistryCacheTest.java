@@ -0,0 +1,137 @@
+package com.netflix.priam.backup.identity;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.priam.identity.InstanceRegistryCache;
+import com.netflix.priam.identity.PriamInstance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class InstanceRegistryCacheTest
+{
+    private static class CountingLoader implements InstanceRegistryCache.Loader
+    {
+        final AtomicInteger loads = new AtomicInteger();
+        volatile CountDownLatch gate;
+        volatile boolean fail;
+
+        @Override
+        public List<PriamInstance> load(String app)
+        {
+            loads.incrementAndGet();
+            try
+            {
+                if (gate != null)
+                    gate.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+            if (fail)
+                throw new RuntimeException("registry unavailable");
+            PriamInstance instance = new PriamInstance();
+            instance.setApp(app);
+            instance.setId(loads.get());
+            return Lists.newArrayList(instance);
+        }
+    }
+
+    @Test
+    public void readsAreCachedUntilInvalidated()
+    {
+        CountingLoader loader = new CountingLoader();
+        InstanceRegistryCache cache = new InstanceRegistryCache(loader, 60000);
+        assertEquals(1, cache.get("app").get(0).getId());
+        assertEquals(1, cache.get("app").get(0).getId());
+        assertEquals(1, loader.loads.get());
+
+        cache.get("app-dead");
+        assertEquals(2, loader.loads.get());
+
+        cache.invalidate("app");
+        assertEquals(3, cache.get("app").get(0).getId());
+        cache.get("app-dead");
+        assertEquals(3, loader.loads.get());
+    }
+
+    @Test
+    public void callersGetTheirOwnList()
+    {
+        InstanceRegistryCache cache = new InstanceRegistryCache(new CountingLoader(), 60000);
+        cache.get("app").clear();
+        assertEquals(1, cache.get("app").size());
+    }
+
+    @Test
+    public void zeroTtlDisablesCaching()
+    {
+        CountingLoader loader = new CountingLoader();
+        InstanceRegistryCache cache = new InstanceRegistryCache(loader, 0);
+        cache.get("app");
+        cache.get("app");
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void failedLoadsAreNotCached()
+    {
+        CountingLoader loader = new CountingLoader();
+        InstanceRegistryCache cache = new InstanceRegistryCache(loader, 60000);
+        loader.fail = true;
+        try
+        {
+            cache.get("app");
+            fail("load failure was swallowed");
+        }
+        catch (RuntimeException e)
+        {
+            assertEquals("registry unavailable", e.getMessage());
+        }
+        loader.fail = false;
+        assertEquals(1, cache.get("app").size());
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception
+    {
+        final CountingLoader loader = new CountingLoader();
+        loader.gate = new CountDownLatch(1);
+        final InstanceRegistryCache cache = new InstanceRegistryCache(loader, 60000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<List<PriamInstance>>> results = Lists.newArrayList();
+            for (int i = 0; i < 8; i++)
+                results.add(executor.submit(new Callable<List<PriamInstance>>()
+                {
+                    public List<PriamInstance> call()
+                    {
+                        return cache.get("app");
+                    }
+                }));
+            // let every caller reach the cache before the load finishes
+            Thread.sleep(200);
+            loader.gate.countDown();
+            for (Future<List<PriamInstance>> result : results)
+                assertEquals(1, result.get().get(0).getId());
+            assertEquals(1, loader.loads.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -6,8 +6,6 @@ import com.netflix.priam.FakePriamInstanceFactory;
 import com.netflix.priam.identity.IMembership;
 import com.netflix.priam.identity.IPriamInstanceFactory;
 import com.netflix.priam.identity.InstanceIdentity;
-import com.netflix.priam.utils.FakeSleeper;
-import com.netflix.priam.utils.Sleeper;
 import org.junit.Before;
 import org.junit.Ignore;
 
@@ -23,7 +21,6 @@ public abstract class InstanceTestUtils
     FakeConfiguration config;
     IPriamInstanceFactory factory;
     InstanceIdentity identity;
-    Sleeper sleeper;
 
     @Before
     public void setup()
@@ -41,7 +38,6 @@ public abstract class InstanceTestUtils
         membership = new FakeMembership(instances);
         config = new FakeConfiguration("fake", "fake-app", "az1", "fakeinstance1");
         factory = new FakePriamInstanceFactory(config);
-        sleeper = new FakeSleeper();
     }
 
     public void createInstances() throws Exception
@@ -63,6 +59,6 @@ public abstract class InstanceTestUtils
     {
         config.zone = zone;
         config.instance_id = instanceId;
-        return new InstanceIdentity(factory, membership, config, sleeper);
+        return new InstanceIdentity(factory, membership, config);
     }
 }
@@ -0,0 +1,81 @@
+package com.netflix.priam.backup.identity;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.identity.RingTopology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingTopologyTest
+{
+    private static PriamInstance instance(int id, String rac, String dc, String host, long token)
+    {
+        PriamInstance ins = new PriamInstance();
+        ins.setId(id);
+        ins.setRac(rac);
+        ins.setDC(dc);
+        ins.setHost(host, "127.0.0." + id);
+        ins.setToken(Long.toString(token));
+        return ins;
+    }
+
+    private static RingTopology ring()
+    {
+        List<PriamInstance> instances = Lists.newArrayList(
+                instance(4, "az1", "us-east-1", "host4", 400),
+                instance(1, "az1", "us-east-1", "host1", 100),
+                instance(2, "az2", "us-east-1", "host2", 200),
+                instance(7, "az3", "eu-west-1", "host7", 700));
+        return new RingTopology(3, instances);
+    }
+
+    @Test
+    public void racsKeepRegistryOrder()
+    {
+        RingTopology ring = ring();
+        assertEquals(3, ring.getVersion());
+        assertEquals(Lists.newArrayList("az1", "az2", "az3"), Lists.newArrayList(ring.getRacs()));
+        assertEquals("host4", ring.getRac("az1").get(0).getHostName());
+        assertTrue(ring.getRac("az9").isEmpty());
+        assertEquals(3, ring.getDC("us-east-1").size());
+    }
+
+    @Test
+    public void seedsAreFirstOfEachRac()
+    {
+        RingTopology ring = ring();
+        assertEquals(ImmutableSet.of("host4", "host2", "host7"), ring.getSeeds());
+        assertTrue(ring.isSeed("az1", "host4"));
+        assertFalse(ring.isSeed("az1", "host1"));
+        assertFalse(ring.isSeed("az9", "host4"));
+    }
+
+    @Test
+    public void slotLookups()
+    {
+        RingTopology ring = ring();
+        assertEquals(4, ring.getMaxId("az1", 0));
+        assertEquals(10, ring.getMaxId("az1", 10));
+        assertEquals(5, ring.getMaxId("az9", 5));
+        assertEquals("host2", ring.getInstance(2).getHostName());
+        assertNull(ring.getInstance(3));
+    }
+
+    @Test
+    public void closestToken()
+    {
+        RingTopology ring = ring();
+        assertEquals(BigInteger.valueOf(700), ring.findClosestToken(BigInteger.valueOf(600)));
+        assertEquals(BigInteger.valueOf(400), ring.findClosestToken(BigInteger.valueOf(600), "US-EAST-1"));
+        assertEquals(BigInteger.valueOf(700), ring.findClosestToken(BigInteger.ZERO, "eu-west-1"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.netflix.priam.cassandra;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class NFSeedProviderTest
+{
+    private File seedsFile;
+    private Map<String, String> args;
+
+    @Before
+    public void setup()
+    {
+        seedsFile = new File("target/test_seeds");
+        seedsFile.getAbsoluteFile().getParentFile().mkdirs();
+        args = Maps.newHashMap();
+        args.put(NFSeedProvider.SEEDS_FILE, seedsFile.getPath());
+        // nothing listens here, so REST calls fail fast
+        args.put(NFSeedProvider.SEEDS_URL, "http://127.0.0.1:1/Priam/REST/v1/cassconfig/get_seeds");
+        args.put(NFSeedProvider.TIMEOUT, "500");
+    }
+
+    @After
+    public void cleanup()
+    {
+        seedsFile.delete();
+    }
+
+    @Test
+    public void readsSeedsFile() throws Exception
+    {
+        Files.write("127.0.0.2,127.0.0.3", seedsFile, Charsets.UTF_8);
+        NFSeedProvider provider = new NFSeedProvider(args, false);
+        assertEquals(2, provider.getSeeds().size());
+        assertEquals(InetAddress.getByName("127.0.0.2"), provider.getSeeds().get(0));
+
+        Files.write("127.0.0.4", seedsFile, Charsets.UTF_8);
+        provider.refresh();
+        assertEquals(InetAddress.getByName("127.0.0.4"), provider.getSeeds().get(0));
+    }
+
+    @Test
+    public void keepsLastGoodSeeds() throws Exception
+    {
+        Files.write("127.0.0.2", seedsFile, Charsets.UTF_8);
+        NFSeedProvider provider = new NFSeedProvider(args, false);
+        seedsFile.delete();
+        provider.refresh();
+        assertEquals(InetAddress.getByName("127.0.0.2"), provider.getSeeds().get(0));
+
+        // empty while the rac fills up
+        Files.write("", seedsFile, Charsets.UTF_8);
+        provider.refresh();
+        assertEquals(InetAddress.getByName("127.0.0.2"), provider.getSeeds().get(0));
+    }
+
+    @Test
+    public void seedsItselfWithoutPriam() throws Exception
+    {
+        NFSeedProvider provider = new NFSeedProvider(args, false);
+        assertEquals(1, provider.getSeeds().size());
+        assertEquals(InetAddress.getByName(null), provider.getSeeds().get(0));
+    }
+}
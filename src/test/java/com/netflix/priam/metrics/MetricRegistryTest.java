@@ -0,0 +1,108 @@
+package com.netflix.priam.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricRegistryTest
+{
+    @Test
+    public void bucketsCoverEveryValue()
+    {
+        long[] values = { 0, 1, 7, 8, 9, 15, 16, 1000, 123456789L, Long.MAX_VALUE };
+        for (long value : values)
+        {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " above its bucket", value <= Histogram.upperBound(bucket));
+            if (bucket > 0)
+                assertTrue(value + " below its bucket", value > Histogram.upperBound(bucket - 1));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketError()
+    {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 10000; i++)
+            histogram.update(i);
+        assertEquals(10000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.001);
+        assertWithin(5000, histogram.get50thPercentile(), 0.125);
+        assertWithin(9900, histogram.get99thPercentile(), 0.125);
+        assertEquals(10000, histogram.getPercentile(1.0));
+    }
+
+    @Test
+    public void emptyHistogram()
+    {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.get99thPercentile());
+    }
+
+    @Test
+    public void timerReportsMillis()
+    {
+        Timer timer = new Timer();
+        timer.update(250, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.getCount());
+        assertEquals(1, timer.getMeter().getCount());
+        assertEquals(250.0, timer.getMaxMillis(), 0.001);
+        assertWithin(250000, timer.getDurations().get50thPercentile(), 0.125);
+    }
+
+    @Test
+    public void metricsAreSharedAndExported() throws Exception
+    {
+        MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+        MetricRegistry registry = new MetricRegistry(mbs);
+        Counter counter = registry.counter("test.count");
+        assertSame(counter, registry.counter("test.count"));
+        counter.inc(3);
+        assertEquals(3L, mbs.getAttribute(new ObjectName("com.priam.metrics:type=Counter,name=test.count"), "Count"));
+
+        registry.gauge("test.gauge", new Gauge()
+        {
+            @Override
+            public double getValue()
+            {
+                return 0.5;
+            }
+        });
+        assertEquals(0.5, mbs.getAttribute(new ObjectName("com.priam.metrics:type=Gauge,name=test.gauge"), "Value"));
+        assertEquals(2, registry.getMetrics().size());
+    }
+
+    @Test
+    public void nameBelongsToOneType()
+    {
+        MetricRegistry registry = new MetricRegistry(MBeanServerFactory.newMBeanServer());
+        registry.timer("test.latency");
+        try
+        {
+            registry.counter("test.latency");
+            fail("a timer was returned as a counter");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private static void assertWithin(long expected, long actual, double error)
+    {
+        assertTrue(actual + " is not within " + error + " of " + expected, Math.abs(actual - expected) <= expected * error);
+    }
+}
@@ -1,5 +1,6 @@
 package com.netflix.priam.resources;
 
+import java.math.BigInteger;
 import java.util.Date;
 import java.util.List;
 
@@ -18,12 +19,16 @@ import com.netflix.priam.backup.SnapshotBackup;
 import com.netflix.priam.identity.IPriamInstanceFactory;
 import com.netflix.priam.identity.InstanceIdentity;
 import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.identity.RingTopology;
+import com.netflix.priam.scheduler.Operation;
+import com.netflix.priam.scheduler.OperationManager;
 import com.netflix.priam.utils.TuneCassandra;
 
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.NonStrict;
 
+import org.codehaus.jettison.json.JSONObject;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,26 +45,41 @@ public class BackupServletTest
     private @Mocked TuneCassandra tuneCassandra;
     private @Mocked SnapshotBackup snapshotBackup;
     private @Mocked IPriamInstanceFactory factory;
+    private OperationManager operations;
     private BackupServlet resource;
 
     @Before
     public void setUp()
     {
+        operations = new OperationManager();
         resource = new BackupServlet(priamServer, config, fs, restoreObj, pathProvider,
-            tuneCassandra, snapshotBackup, factory);
+            tuneCassandra, snapshotBackup, factory, operations);
     }
 
     @Test
     public void backup() throws Exception
     {
+        final List<String> snapshots = Lists.newArrayList();
         new Expectations() {{
-            snapshotBackup.execute();
+            snapshotBackup.operation(); result = new Operation(SnapshotBackup.JOBNAME)
+            {
+                @Override
+                public void run()
+                {
+                    snapshots.add("snapshot");
+                }
+            };
         }};
 
         Response response = resource.backup();
-        assertEquals(200, response.getStatus());
-        assertEquals("[\"ok\"]", response.getEntity());
+        assertEquals(202, response.getStatus());
         assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMetadata().get("Content-Type").get(0));
+        OperationManager.Job job = operations.get(((JSONObject) response.getEntity()).getString("id"));
+        long deadline = System.currentTimeMillis() + 10 * 1000;
+        while ((job.getState() == OperationManager.State.QUEUED || job.getState() == OperationManager.State.RUNNING) && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(OperationManager.State.SUCCEEDED, job.getState());
+        assertEquals(1, snapshots.size());
     }
 
     @Test
@@ -296,12 +316,11 @@ public class BackupServletTest
 
         final String oldRegion = "us-east-1";
         final String oldToken = "1234";
-        final String appName = "myApp";
 
         new Expectations() {
             @NonStrict InstanceIdentity identity;
             PriamInstance instance;
-            @NonStrict PriamInstance instance1, instance2, instance3;
+            RingTopology topology;
             AbstractBackupPath backupPath;
 
             {
@@ -309,24 +328,16 @@ public class BackupServletTest
                 backupPath.getFormat(); result = AbstractBackupPath.DAY_FORMAT; times = 2;
 
                 config.getDC(); result = oldRegion; times = 2;
-                priamServer.getId(); result = identity; times = 5;
+                priamServer.getId(); result = identity; times = 6;
                 identity.getInstance(); result = instance; times = 5;
                 instance.getToken(); result = oldToken;
                 instance.setToken(newToken);
 
                 config.isRestoreClosestToken(); result = true;
                 instance.getToken(); result = oldToken;
-                config.getAppName(); result = appName;
-                factory.getAllIds(appName); result = ImmutableList.of(instance, instance1, instance2, instance3);
-                instance.getDC();  result = oldRegion;
-                instance.getToken(); result = oldToken;
-                instance1.getDC(); result = oldRegion;
-                instance2.getDC(); result = oldRegion;
-                instance3.getDC(); result = oldRegion;
-                instance1.getToken(); result = "1234";
-                instance2.getToken(); result = "5678";
-                instance3.getToken(); result = "9000";
-                instance.setToken((String) any); // TODO: test mocked closest token
+                identity.refreshTopology(); result = topology;
+                topology.findClosestToken(new BigInteger(oldToken), oldRegion); result = new BigInteger("1234");
+                instance.setToken("1234");
 
                 restoreObj.restore(
                     new DateTime(2011, 01, 01, 00, 00).toDate(),
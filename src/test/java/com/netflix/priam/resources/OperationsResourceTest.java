@@ -0,0 +1,52 @@
+package com.netflix.priam.resources;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+import com.netflix.priam.scheduler.Operation;
+import com.netflix.priam.scheduler.OperationManager;
+
+import static org.junit.Assert.assertEquals;
+
+public class OperationsResourceTest
+{
+    private static Operation blocking(String type, final CountDownLatch release)
+    {
+        return new Operation(type)
+        {
+            @Override
+            public void run() throws Exception
+            {
+                release.await();
+            }
+        };
+    }
+
+    @Test
+    public void conflictOrBusy() throws Exception
+    {
+        OperationManager operations = new OperationManager();
+        CountDownLatch release = new CountDownLatch(1);
+        try
+        {
+            assertEquals(202, OperationsResource.submit(operations, blocking("type0", release)).getStatus());
+            // the same type again
+            assertEquals(409, OperationsResource.submit(operations, blocking("type0", release)).getStatus());
+            // fill the running and queued slots with other types
+            int status = 202;
+            for (int i = 1; i < 100 && status == 202; i++)
+                status = OperationsResource.submit(operations, blocking("type" + i, release)).getStatus();
+            assertEquals(503, status);
+            Response response = OperationsResource.submit(operations, blocking("other", release));
+            assertEquals(503, response.getStatus());
+            assertEquals(60, response.getMetadata().getFirst("Retry-After"));
+        }
+        finally
+        {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.netflix.priam.scheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.netflix.priam.scheduler.OperationManager.Job;
+import com.netflix.priam.scheduler.OperationManager.State;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class OperationManagerTest
+{
+    private static class BlockingOperation extends Operation
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingOperation(String type)
+        {
+            super(type);
+        }
+
+        @Override
+        public void run() throws Exception
+        {
+            release.await();
+        }
+    }
+
+    private static final long TIMEOUT = 10 * 1000;
+
+    private static void await(Job job) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while ((job.getState() == State.QUEUED || job.getState() == State.RUNNING) && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertFalse(job.getId() + " did not finish in time", job.getState() == State.QUEUED || job.getState() == State.RUNNING);
+    }
+
+    @Test
+    public void onePerType() throws Exception
+    {
+        OperationManager operations = new OperationManager();
+        BlockingOperation repair = new BlockingOperation("repair");
+        Job job = operations.submit(repair);
+        try
+        {
+            operations.submit(new BlockingOperation("repair"));
+            fail("one repair at a time");
+        }
+        catch (RejectedExecutionException e)
+        {
+            // expected
+        }
+        // other types are not held up
+        BlockingOperation flush = new BlockingOperation("flush");
+        Job flushJob = operations.submit(flush);
+        flush.release.countDown();
+        await(flushJob);
+
+        repair.release.countDown();
+        await(job);
+        assertEquals(State.SUCCEEDED, job.getState());
+        assertEquals(job, operations.get(job.getId()));
+
+        BlockingOperation next = new BlockingOperation("repair");
+        next.release.countDown();
+        await(operations.submit(next));
+        assertEquals(3, operations.list().size());
+    }
+
+    @Test
+    public void failureIsReported() throws Exception
+    {
+        OperationManager operations = new OperationManager();
+        Job job = operations.submit(new Operation("compact")
+        {
+            @Override
+            public void run() throws Exception
+            {
+                throw new Exception("Cassandra JMX is unavailable");
+            }
+        });
+        await(job);
+        assertEquals(State.FAILED, job.getState());
+        assertEquals("Cassandra JMX is unavailable", job.toJSON().getString("error"));
+    }
+}
@@ -4,6 +4,7 @@ import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Singleton;
+import com.netflix.priam.FakeConfiguration;
 import com.netflix.priam.IConfiguration;
 import com.netflix.priam.TestModule;
 import junit.framework.Assert;
@@ -11,6 +12,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import javax.management.MBeanServerFactory;
+import java.util.Calendar;
+import java.util.TimeZone;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -18,6 +21,8 @@ public class TestScheduler
 {
     // yuck, but marginally better than using Thread.sleep
     private static CountDownLatch latch;
+    private static CountDownLatch started;
+    private static CountDownLatch release;
 
     @Test
     public void testSchedule() throws Exception
@@ -46,6 +51,156 @@ public class TestScheduler
         Assert.assertEquals(3, SingleTestTask.count);
     }
 
+    @Test
+    public void dedicatedExecutors() throws Exception
+    {
+        latch = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        Injector inject = Guice.createInjector(new TestModule());
+        PriamScheduler scheduler = inject.getInstance(PriamScheduler.class);
+        scheduler.start();
+        try
+        {
+            scheduler.addTask("slow", SlowTestTask.class, new SimpleTimer("slow"));
+            Assert.assertTrue(started.await(1000, TimeUnit.MILLISECONDS));
+            // runs while the slow task holds its own thread
+            scheduler.addTask("test", TestTask.class, new SimpleTimer("testtask", 10));
+            Assert.assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+        }
+        finally
+        {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void singleFlight() throws Exception
+    {
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        SlowTestTask.runs = 0;
+        SlowTestTask task = new SlowTestTask(new FakeConfiguration("fake-region", "fake-app", "az1", "fakeInstance1"));
+        Thread first = new Thread(task);
+        first.start();
+        Assert.assertTrue(started.await(1000, TimeUnit.MILLISECONDS));
+        // returns at once rather than wait on the release
+        task.run();
+        release.countDown();
+        first.join();
+        Assert.assertEquals(2, task.getExecutionCount());
+        Assert.assertEquals(1, SlowTestTask.runs);
+    }
+
+    @Test
+    public void fixedRateAndDelay()
+    {
+        SimpleTimer rate = new SimpleTimer("rate", 100);
+        Assert.assertEquals(1000, rate.getFirstRun(1000));
+        Assert.assertEquals(1100, rate.getNextRun(1000, 1050));
+        // runs missed while the last one was going are skipped
+        Assert.assertEquals(1300, rate.getNextRun(1000, 1250));
+        SimpleTimer delay = SimpleTimer.fixedDelay("delay", 100);
+        Assert.assertEquals(1350, delay.getNextRun(1000, 1250));
+        Assert.assertEquals(-1, new SimpleTimer("once").getNextRun(1000, 1250));
+    }
+
+    @Test
+    public void cronJitter()
+    {
+        long hour = 60L * 60 * 1000;
+        Calendar noon = Calendar.getInstance();
+        noon.set(2012, Calendar.MARCH, 1, 12, 0, 0);
+        noon.set(Calendar.MILLISECOND, 0);
+        long now = noon.getTimeInMillis();
+        Assert.assertEquals(now + hour + 60 * 1000, new CronTimer(13, 1, 0).getFirstRun(now));
+        CronTimer timer = new CronTimer(13, 1, 0).withJitter(hour);
+        long first = timer.getFirstRun(now);
+        Assert.assertTrue(first >= now + hour + 60 * 1000 && first < now + 2 * hour + 60 * 1000);
+        Assert.assertEquals(first + 24 * hour, timer.getNextRun(first, first + hour));
+        // the delayed run of the day may still be ahead
+        Assert.assertEquals(first, timer.getFirstRun(now + hour + 60 * 1000));
+    }
+
+    @Test
+    public void cronAcrossDaylightSaving()
+    {
+        TimeZone zone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        try
+        {
+            // clocks went forward at 2:00 on Mar 11 2012, 2:30 did not exist
+            Calendar start = Calendar.getInstance();
+            start.clear();
+            start.set(2012, Calendar.MARCH, 10, 12, 0, 0);
+            CronTimer timer = new CronTimer(2, 30, 0);
+            long run = timer.getFirstRun(start.getTimeInMillis());
+            Assert.assertEquals("2012-03-11 03:30", format(run));
+            run = timer.getNextRun(run, run + 60 * 1000);
+            Assert.assertEquals("2012-03-12 02:30", format(run));
+            run = timer.getNextRun(run, run + 60 * 1000);
+            Assert.assertEquals("2012-03-13 02:30", format(run));
+
+            // and back at 2:00 on Nov 4 2012, 1:30 came twice
+            start.set(2012, Calendar.NOVEMBER, 3, 12, 0, 0);
+            timer = new CronTimer(1, 30, 0);
+            run = timer.getFirstRun(start.getTimeInMillis());
+            Assert.assertEquals("2012-11-04 01:30", format(run));
+            long next = timer.getNextRun(run, run + 60 * 1000);
+            Assert.assertEquals("2012-11-05 01:30", format(next));
+            Assert.assertEquals(25 * 60 * 60 * 1000L, next - run);
+
+            // hourly runs keep to elapsed hours
+            timer = new CronTimer(30, 0);
+            run = timer.getFirstRun(run);
+            Assert.assertEquals(60 * 60 * 1000L, timer.getNextRun(run, run) - run);
+        }
+        finally
+        {
+            TimeZone.setDefault(zone);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jitterWithinPeriod()
+    {
+        new CronTimer(13, 1, 0).withJitter(24 * 60 * 60 * 1000L);
+    }
+
+    private static String format(long time)
+    {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return String.format("%tF %<tR", calendar);
+    }
+
+    @Ignore
+    public static class SlowTestTask extends Task
+    {
+        static int runs;
+
+        @Inject
+        public SlowTestTask(IConfiguration config)
+        {
+            super(config, MBeanServerFactory.newMBeanServer());
+        }
+
+        @Override
+        public void execute() throws Exception
+        {
+            runs++;
+            started.countDown();
+            release.await();
+        }
+
+        @Override
+        public String getName()
+        {
+            return "slow";
+        }
+    }
+
     @Ignore
     public static class TestTask extends Task
     {
@@ -0,0 +1,55 @@
+package com.netflix.priam.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ByteBudgetTest
+{
+    @Test
+    public void blocksUntilReleased() throws Exception
+    {
+        final ByteBudget budget = new ByteBudget(100);
+        budget.acquire(60);
+        budget.acquire(40);
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    budget.acquire(50);
+                    acquired.countDown();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        producer.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        budget.release(40);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        budget.release(60);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(50, budget.getInFlight());
+    }
+
+    @Test
+    public void admitsOversizedAlone() throws Exception
+    {
+        ByteBudget budget = new ByteBudget(100);
+        budget.acquire(250);
+        assertEquals(250, budget.getInFlight());
+        budget.release(250);
+        assertEquals(0, budget.getInFlight());
+    }
+}
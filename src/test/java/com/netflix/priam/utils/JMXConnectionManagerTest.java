@@ -0,0 +1,127 @@
+package com.netflix.priam.utils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.netflix.priam.FakeConfiguration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JMXConnectionManagerTest
+{
+    private static class DownManager extends JMXConnectionManager
+    {
+        volatile int attempts;
+        final CountDownLatch refuse;
+
+        DownManager()
+        {
+            this(new CountDownLatch(0));
+        }
+
+        DownManager(CountDownLatch refuse)
+        {
+            super(new FakeConfiguration("fake-region", "fake-app", "az1", "i-1"), false);
+            this.refuse = refuse;
+        }
+
+        @Override
+        protected JMXNodeTool newNodeTool() throws IOException, InterruptedException
+        {
+            attempts++;
+            refuse.await();
+            throw new IOException("Connection refused");
+        }
+    }
+
+    @Test
+    public void failsFastWhileOpen()
+    {
+        DownManager manager = new DownManager();
+        assertFalse(manager.isOpen());
+        for (int i = 0; i < 3; i++)
+        {
+            try
+            {
+                manager.get();
+                fail("Cassandra is down");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+        assertEquals(1, manager.attempts);
+        assertTrue(manager.isOpen());
+    }
+
+    @Test
+    public void checkRetriesInBackground()
+    {
+        DownManager manager = new DownManager();
+        manager.check();
+        manager.check();
+        assertEquals(2, manager.attempts);
+    }
+
+    @Test
+    public void queuedCallersFailFast() throws Exception
+    {
+        CountDownLatch refuse = new CountDownLatch(1);
+        final DownManager manager = new DownManager(refuse);
+        final List<IOException> errors = Lists.newArrayList();
+        List<Thread> callers = Lists.newArrayList();
+        for (int i = 0; i < 3; i++)
+        {
+            Thread caller = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        manager.get();
+                    }
+                    catch (IOException e)
+                    {
+                        synchronized (errors)
+                        {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            callers.add(caller);
+            caller.start();
+        }
+        // one caller is connecting, the others wait for it on the lock
+        long deadline = System.currentTimeMillis() + 5000;
+        while (blocked(callers) < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(2, blocked(callers));
+        refuse.countDown();
+        for (Thread caller : callers)
+            caller.join(TimeUnit.SECONDS.toMillis(5));
+        assertEquals(3, errors.size());
+        assertEquals(1, manager.attempts);
+    }
+
+    private static int blocked(List<Thread> threads)
+    {
+        int blocked = 0;
+        for (Thread thread : threads)
+        {
+            if (thread.getState() == Thread.State.BLOCKED)
+                blocked++;
+        }
+        return blocked;
+    }
+}
@@ -0,0 +1,140 @@
+package com.netflix.priam.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.IConfiguration;
+import com.netflix.priam.scheduler.Operation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MaintenanceTest
+{
+    private static final File progress = new File("target/maintenance/repair.progress");
+
+    private static class FakeMaintenance extends Maintenance
+    {
+        final List<String> performed = Collections.synchronizedList(Lists.<String> newArrayList());
+        final Set<String> broken = Sets.newHashSet();
+        int overloadedChecks;
+
+        FakeMaintenance()
+        {
+            super(new FakeConfiguration("fake-region", "fake-app", "az1", "i-1")
+            {
+                @Override
+                public int getMaintenanceConcurrency()
+                {
+                    // keeps the order observable
+                    return 1;
+                }
+            }, null, new FakeSleeper());
+        }
+
+        @Override
+        public List<Unit> listUnits()
+        {
+            return Lists.newArrayList(new Unit("ks", "small", 10), new Unit("ks", "large", 1000), new Unit("ks", "medium", 100));
+        }
+
+        @Override
+        protected void perform(String type, Unit unit) throws Exception
+        {
+            if (broken.contains(unit.getColumnFamily()))
+                throw new IOException("Repair session failed");
+            performed.add(unit.getColumnFamily());
+        }
+
+        @Override
+        protected String overloaded()
+        {
+            // busy the first time
+            return overloadedChecks++ == 0 ? "33 pending compactions" : null;
+        }
+    }
+
+    @Before
+    @After
+    public void cleanup()
+    {
+        progress.delete();
+    }
+
+    @Test
+    public void largestFirst() throws Exception
+    {
+        FakeMaintenance maintenance = new FakeMaintenance();
+        maintenance.operation(Maintenance.REPAIR).run();
+        assertEquals(Lists.newArrayList("large", "medium", "small"), maintenance.performed);
+        assertEquals(4, maintenance.overloadedChecks);
+        assertFalse(progress.exists());
+    }
+
+    @Test
+    public void resumesAfterFailure() throws Exception
+    {
+        FakeMaintenance maintenance = new FakeMaintenance();
+        maintenance.broken.add("medium");
+        Operation run = maintenance.operation(Maintenance.REPAIR);
+        try
+        {
+            run.run();
+            fail("medium is broken");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertEquals(Lists.newArrayList("large", "small"), maintenance.performed);
+        assertEquals(3, run.progress().getInt("column_families"));
+        assertEquals(2, run.progress().getInt("done"));
+        assertTrue(progress.exists());
+
+        maintenance = new FakeMaintenance();
+        maintenance.operation(Maintenance.REPAIR).run();
+        assertEquals(Lists.newArrayList("medium"), maintenance.performed);
+        assertFalse(progress.exists());
+    }
+
+    @Test
+    public void compactionStartsOver() throws Exception
+    {
+        File compactProgress = new File("target/maintenance/compact.progress");
+        FakeMaintenance maintenance = new FakeMaintenance();
+        maintenance.broken.add("medium");
+        try
+        {
+            maintenance.operation(Maintenance.COMPACT).run();
+            fail("medium is broken");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertFalse(compactProgress.exists());
+
+        maintenance = new FakeMaintenance();
+        maintenance.operation(Maintenance.COMPACT).run();
+        assertEquals(Lists.newArrayList("large", "medium", "small"), maintenance.performed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownType()
+    {
+        IConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        new Maintenance(config, null, new FakeSleeper()).operation("decommission");
+    }
+}
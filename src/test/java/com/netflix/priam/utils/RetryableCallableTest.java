@@ -0,0 +1,136 @@
+package com.netflix.priam.utils;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.metrics.Counter;
+import com.netflix.priam.metrics.MetricRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryableCallableTest
+{
+    private static class FailingCallable extends RetryableCallable<Void>
+    {
+        private final Exception failure;
+        int attempts;
+
+        FailingCallable(Exception failure, int retries, RetryBudget budget)
+        {
+            super(retries, 1, budget);
+            this.failure = failure;
+        }
+
+        @Override
+        public Void retriableCall() throws Exception
+        {
+            attempts++;
+            throw failure;
+        }
+    }
+
+    private static AmazonServiceException serviceException(String code, int status)
+    {
+        AmazonServiceException e = new AmazonServiceException(code);
+        e.setErrorCode(code);
+        e.setStatusCode(status);
+        return e;
+    }
+
+    private static void callQuietly(RetryableCallable<?> callable)
+    {
+        try
+        {
+            callable.call();
+            fail("call should have failed");
+        }
+        catch (Exception e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void classification()
+    {
+        assertTrue(RetryableErrors.isRetryable(new IOException("connection reset")));
+        assertTrue(RetryableErrors.isRetryable(serviceException("SlowDown", 503)));
+        assertTrue(RetryableErrors.isRetryable(serviceException("InternalError", 500)));
+        assertTrue(RetryableErrors.isRetryable(serviceException("RequestTimeout", 400)));
+        assertTrue(RetryableErrors.isRetryable(serviceException("ConditionalCheckFailed", 409)));
+        assertFalse(RetryableErrors.isRetryable(serviceException("AccessDenied", 403)));
+        assertFalse(RetryableErrors.isRetryable(serviceException("NoSuchBucket", 404)));
+        assertFalse(RetryableErrors.isRetryable(new BackupRestoreException("wrapped", serviceException("InvalidAccessKeyId", 403))));
+    }
+
+    @Test
+    public void retriesTransientErrors()
+    {
+        FailingCallable callable = new FailingCallable(serviceException("SlowDown", 503), 4, null);
+        callQuietly(callable);
+        assertEquals(4, callable.attempts);
+    }
+
+    @Test
+    public void fatalErrorsAreNotRetried()
+    {
+        Counter fatalErrors = MetricRegistry.getInstance().counter("retry.fatal_errors");
+        long fatal = fatalErrors.getCount();
+        FailingCallable callable = new FailingCallable(serviceException("AccessDenied", 403), 4, null);
+        callQuietly(callable);
+        assertEquals(1, callable.attempts);
+        assertEquals(fatal + 1, fatalErrors.getCount());
+    }
+
+    @Test
+    public void budgetLimitsRetries()
+    {
+        RetryBudget budget = new RetryBudget(3, 0.5);
+        FailingCallable callable = new FailingCallable(new IOException("reset"), 10, budget);
+        callQuietly(callable);
+        // the first attempt plus three budgeted retries
+        assertEquals(4, callable.attempts);
+        assertFalse(budget.tryAcquire());
+        budget.onSuccess();
+        budget.onSuccess();
+        assertTrue(budget.tryAcquire());
+    }
+
+    @Test
+    public void decorrelatedBackoffStaysWithinBounds()
+    {
+        Backoff backoff = Backoff.decorrelated(10, 1000);
+        for (int i = 0; i < 6; i++)
+        {
+            long delay = backoff.nextDelay();
+            assertTrue(delay >= 10 && delay <= 1000);
+            assertFalse(backoff.isExhausted());
+        }
+        backoff.nextDelay();
+        assertTrue(backoff.isExhausted());
+    }
+
+    @Test
+    public void exponentialGivesUpPastMaxSleep()
+    {
+        final int[] attempts = new int[1];
+        ExponentialRetryCallable<Void> callable = new ExponentialRetryCallable<Void>(1, 16)
+        {
+            @Override
+            public Void retriableCall() throws Exception
+            {
+                attempts[0]++;
+                throw new IOException("reset");
+            }
+        };
+        callQuietly(callable);
+        // delays of 2, 4, 8 and 16 ms, then 32 exceeds the max
+        assertEquals(5, attempts[0]);
+    }
+}
@@ -0,0 +1,68 @@
+package com.netflix.priam.utils;
+
+import java.io.IOException;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RingStateTest
+{
+    private static class CountingRing extends RingState
+    {
+        int fetches;
+        boolean down;
+
+        CountingRing()
+        {
+            super(null, false);
+        }
+
+        @Override
+        protected JSONArray fetch() throws Exception
+        {
+            if (down)
+                throw new IOException("Connection refused");
+            fetches++;
+            JSONArray ring = new JSONArray();
+            ring.put(new JSONObject().put("endpoint", "127.0.0.1").put("token", Integer.toString(fetches)));
+            return ring;
+        }
+    }
+
+    @Test
+    public void servedFromMemory() throws Exception
+    {
+        CountingRing ring = new CountingRing();
+        RingState.View first = ring.get();
+        assertSame(first, ring.get());
+        assertEquals(1, ring.fetches);
+
+        RingState.View refreshed = ring.refresh();
+        assertEquals(2, ring.fetches);
+        assertSame(refreshed, ring.get());
+        assertEquals("2", new JSONArray(refreshed.getJson()).getJSONObject(0).getString("token"));
+    }
+
+    @Test
+    public void keepsLastRing() throws Exception
+    {
+        CountingRing ring = new CountingRing();
+        RingState.View view = ring.get();
+        ring.down = true;
+        try
+        {
+            ring.refresh();
+            fail("Cassandra is down");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertSame(view, ring.get());
+    }
+}
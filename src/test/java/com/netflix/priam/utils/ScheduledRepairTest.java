@@ -0,0 +1,280 @@
+package com.netflix.priam.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.priam.FakeConfiguration;
+import com.netflix.priam.identity.FileInstanceFactory;
+import com.netflix.priam.identity.PriamInstance;
+import com.netflix.priam.scheduler.Operation;
+import com.netflix.priam.scheduler.OperationManager;
+import com.netflix.priam.scheduler.OperationManager.Job;
+import com.netflix.priam.scheduler.OperationManager.State;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScheduledRepairTest
+{
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long HOUR = 60L * 60 * 1000;
+
+    @Before
+    public void cleanup() throws Exception
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        FileUtils.deleteQuietly(new File(config.getMaintenanceStateLocation(), "repair.timestamps"));
+        FileUtils.deleteQuietly(new File(config.getInstanceRegistryLocation(), "fake-app-repair.properties"));
+    }
+
+    @Test
+    public void spreadsRepairsOverWindow() throws Exception
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        final List<String> repaired = Lists.newArrayList();
+        Maintenance maintenance = new Maintenance(config, null, new FakeSleeper())
+        {
+            @Override
+            public List<Unit> listUnits()
+            {
+                return Lists.newArrayList(new Unit("ks", "cf1", 10), new Unit("ks", "cf2", 10));
+            }
+        };
+        FileInstanceFactory factory = new FileInstanceFactory(config);
+        ScheduledRepair repair = new ScheduledRepair(config, maintenance, null, factory, new OperationManager())
+        {
+            @Override
+            protected void repair(Maintenance.Unit unit)
+            {
+                repaired.add(unit.getColumnFamily());
+            }
+        };
+        int slot = "az1".hashCode() & Integer.MAX_VALUE;
+        long start = System.currentTimeMillis() - 8 * DAY;
+
+        // new column families start their window
+        repair.execute(start);
+        assertEquals(0, repaired.size());
+
+        // two column families in 7 days, one every 3.5 days
+        repair.execute(start + 3 * DAY);
+        assertEquals(0, repaired.size());
+        repair.execute(start + 4 * DAY);
+        assertEquals(1, repaired.size());
+        repair.execute(start + 5 * DAY);
+        assertEquals(1, repaired.size());
+
+        // another node of the rac is repairing
+        factory.create("fake-app-repair", slot, "i-2", "host2", "10.0.0.2", "az1", null, "");
+        repair.execute(start + 8 * DAY);
+        assertEquals(1, repaired.size());
+
+        // it died, its slot is taken over once the lease ran out
+        repair.execute(start + 8 * DAY + 7 * HOUR);
+        assertEquals(2, repaired.size());
+        assertEquals(Sets.newHashSet("cf1", "cf2"), Sets.newHashSet(repaired));
+        assertNull(factory.getInstance("fake-app-repair", slot));
+    }
+
+    private static Maintenance oneUnit(FakeConfiguration config)
+    {
+        return new Maintenance(config, null, new FakeSleeper())
+        {
+            @Override
+            public List<Unit> listUnits()
+            {
+                return Lists.newArrayList(new Unit("ks", "cf1", 10));
+            }
+        };
+    }
+
+    @Test
+    public void renewsLeaseWhileRepairing() throws Exception
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        final FileInstanceFactory factory = new FileInstanceFactory(config);
+        final int slot = "az1".hashCode() & Integer.MAX_VALUE;
+        final long[] updates = new long[2];
+        ScheduledRepair repair = new ScheduledRepair(config, oneUnit(config), null, factory, new OperationManager())
+        {
+            @Override
+            protected void repair(Maintenance.Unit unit)
+            {
+                updates[0] = factory.getInstance("fake-app-repair", slot).getUpdatetime();
+                try
+                {
+                    Thread.sleep(500);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                updates[1] = factory.getInstance("fake-app-repair", slot).getUpdatetime();
+            }
+
+            @Override
+            protected long renewInterval()
+            {
+                return 50;
+            }
+        };
+        long start = System.currentTimeMillis() - 8 * DAY;
+        repair.execute(start);
+        repair.execute(start + 8 * DAY);
+        assertTrue(updates[0] > 0);
+        assertTrue(updates[1] > updates[0]);
+        assertNull(factory.getInstance("fake-app-repair", slot));
+    }
+
+    @Test
+    public void stopsWhenSlotIsTakenOver() throws Exception
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        final FileInstanceFactory factory = new FileInstanceFactory(config);
+        final int slot = "az1".hashCode() & Integer.MAX_VALUE;
+        final List<String> repaired = Lists.newArrayList();
+        Maintenance maintenance = new Maintenance(config, null, new FakeSleeper())
+        {
+            @Override
+            public List<Unit> listUnits()
+            {
+                return Lists.newArrayList(new Unit("ks", "cf1", 10), new Unit("ks", "cf2", 10));
+            }
+        };
+        ScheduledRepair repair = new ScheduledRepair(config, maintenance, null, factory, new OperationManager())
+        {
+            @Override
+            protected void repair(Maintenance.Unit unit)
+            {
+                repaired.add(unit.getColumnFamily());
+                // another node took the slot over while we were paused
+                PriamInstance ours = factory.getInstance("fake-app-repair", slot);
+                factory.delete(ours);
+                factory.create("fake-app-repair", slot, "i-2", "host2", "10.0.0.2", "az1", null, "");
+                try
+                {
+                    Thread.sleep(500);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            protected long renewInterval()
+            {
+                return 50;
+            }
+        };
+        long start = System.currentTimeMillis() - 8 * DAY;
+        repair.execute(start);
+        try
+        {
+            repair.execute(start + 8 * DAY);
+            fail("the run should stop once the slot is lost");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+        assertEquals(1, repaired.size());
+        // the other node's slot is left alone
+        assertEquals("i-2", factory.getInstance("fake-app-repair", slot).getInstanceId());
+    }
+
+    @Test
+    public void reclaimsSlotLeftByThisNode() throws Exception
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        FileInstanceFactory factory = new FileInstanceFactory(config);
+        int slot = "az1".hashCode() & Integer.MAX_VALUE;
+        final List<String> repaired = Lists.newArrayList();
+        ScheduledRepair repair = new ScheduledRepair(config, oneUnit(config), null, factory, new OperationManager())
+        {
+            @Override
+            protected void repair(Maintenance.Unit unit)
+            {
+                repaired.add(unit.getColumnFamily());
+            }
+        };
+        long start = System.currentTimeMillis() - 8 * DAY;
+        repair.execute(start);
+
+        // left by a run of this node which crashed, well within the lease
+        factory.create("fake-app-repair", slot, config.getInstanceName(), "host1", "10.0.0.1", "az1", null, "");
+        repair.execute(start + 8 * DAY);
+        assertEquals(1, repaired.size());
+        assertNull(factory.getInstance("fake-app-repair", slot));
+    }
+
+    @Test
+    public void sharesRepairWithOperations() throws Exception
+    {
+        FakeConfiguration config = new FakeConfiguration("fake-region", "fake-app", "az1", "i-1");
+        final OperationManager operations = new OperationManager();
+        final List<String> repaired = Lists.newArrayList();
+        final List<Exception> rejected = Lists.newArrayList();
+        ScheduledRepair repair = new ScheduledRepair(config, oneUnit(config), null, new FileInstanceFactory(config), operations)
+        {
+            @Override
+            protected void repair(Maintenance.Unit unit)
+            {
+                repaired.add(unit.getColumnFamily());
+                try
+                {
+                    operations.submit(new Operation(Maintenance.REPAIR)
+                    {
+                        @Override
+                        public void run()
+                        {
+                        }
+                    });
+                }
+                catch (RejectedExecutionException e)
+                {
+                    rejected.add(e);
+                }
+            }
+        };
+        long start = System.currentTimeMillis() - 8 * DAY;
+        repair.execute(start);
+
+        // a repair started through the API holds the node
+        final CountDownLatch release = new CountDownLatch(1);
+        Job job = operations.submit(new Operation(Maintenance.REPAIR)
+        {
+            @Override
+            public void run() throws Exception
+            {
+                release.await();
+            }
+        });
+        repair.execute(start + 8 * DAY);
+        assertEquals(0, repaired.size());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 10 * 1000;
+        while (job.getState() != State.SUCCEEDED && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(State.SUCCEEDED, job.getState());
+
+        // and the scheduled repair holds it in turn
+        repair.execute(start + 8 * DAY);
+        assertEquals(1, repaired.size());
+        assertEquals(1, rejected.size());
+        // listed with the operations started through the API
+        assertEquals(2, operations.list().size());
+    }
+}
@@ -100,6 +100,18 @@ public class TokenManagerTest
                 ImmutableList.of(BigInteger.ZERO, BigInteger.TEN)));
     }
 
+    @Test
+    public void findClosestToken_sortedArray()
+    {
+        BigInteger[] sorted = { BigInteger.ONE, BigInteger.TEN, BigInteger.valueOf(100) };
+        assertEquals(BigInteger.ONE, TokenManager.findClosestToken(BigInteger.ZERO, sorted));
+        assertEquals(BigInteger.TEN, TokenManager.findClosestToken(BigInteger.valueOf(51), sorted));
+        assertEquals(BigInteger.valueOf(100), TokenManager.findClosestToken(BigInteger.valueOf(1000), sorted));
+        // unsorted lists are sorted first
+        assertEquals(BigInteger.TEN, TokenManager.findClosestToken(BigInteger.valueOf(12),
+                ImmutableList.of(BigInteger.valueOf(100), BigInteger.ONE, BigInteger.TEN)));
+    }
+
     @Test
     public void test4Splits()
     {